@@ -0,0 +1,24 @@
+package io.github.rcarlosdasilva.kits.cache;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步加载器，用于{@link MemoryCacheHelper#getAsync(String, String, AsyncCacheLoader)}
+ * <p>
+ * load应立即返回，不应在调用线程中阻塞等待后端结果
+ *
+ * @param <T> 值类型
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public interface AsyncCacheLoader<T> {
+
+  /**
+   * 异步加载.
+   *
+   * @param key key
+   * @return 加载结果，完成值为null时视为加载失败
+   * @throws Exception 发起加载失败
+   */
+  CompletableFuture<T> load(String key) throws Exception;
+
+}
@@ -0,0 +1,19 @@
+package io.github.rcarlosdasilva.kits.cache;
+
+/**
+ * cache容器的实现
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public enum CacheEngine {
+
+  /**
+   * Guava Cache，按LRU淘汰，支持全部配置项
+   */
+  GUAVA,
+  /**
+   * W-TinyLFU，按访问频率决定淘汰，能抵抗一次性扫描对热点数据的冲刷。需要设置maximumSize，不支持loader、maximumWeight与refreshAfterWrite
+   */
+  TINY_LFU
+
+}
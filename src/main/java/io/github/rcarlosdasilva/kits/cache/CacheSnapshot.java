@@ -0,0 +1,247 @@
+package io.github.rcarlosdasilva.kits.cache;
+
+import io.github.rcarlosdasilva.kits.Default;
+import io.github.rcarlosdasilva.kits.cache.MemoryCacheHelper.MemoryCacheConfig;
+import io.github.rcarlosdasilva.kits.cache.OffHeapTier.StoredValue;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * cache容器快照的读写
+ * <p>
+ * 格式：魔数、版本、生成时间，之后是连续的条目（标记1、key长度、key的UTF-8字节、过期时间点、是否为原始byte[]、值长度、值），以标记0结束。
+ * 过期时间点为毫秒时间戳，0为不过期，恢复时跳过已过期的条目。写入时先写临时文件再替换，读取时使用内存映射
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+final class CacheSnapshot {
+
+  private static final int MAGIC = 0x4B435331;
+  private static final int VERSION = 1;
+  private static final byte ENTRY = 1;
+  private static final byte END = 0;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final long MAP_WINDOW = 256L * 1024 * 1024;
+
+  private CacheSnapshot() {
+    throw new IllegalStateException("CacheSnapshot class");
+  }
+
+  /**
+   * 将cache容器的堆内与堆外条目写入快照文件，无法序列化或写入时间未知的值会被跳过.
+   *
+   * @param container cache容器
+   * @param file      快照文件
+   * @return 写入的条目数
+   * @throws IOException 输入输出异常
+   */
+  static int write(NamedCache container, File file) throws IOException {
+    File parent = file.getAbsoluteFile().getParentFile();
+    parent.mkdirs();
+    // 每次写入使用独立的临时文件，定时、手动与关闭时的快照可能同时进行
+    Path temp = Files.createTempFile(parent.toPath(), file.getName() + ".", ".tmp");
+    try {
+      int count = writeEntries(container, temp);
+      try {
+        Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException ex) {
+        Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      return count;
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private static int writeEntries(NamedCache container, Path temp) throws IOException {
+    int count = 0;
+    long now = System.currentTimeMillis();
+    long accessDeadline = accessDeadline(container.getConfig(), now);
+    boolean expireAfterWrite = container.getConfig().getExpireAfterWrite() >= 0;
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(now);
+
+      for (Map.Entry<String, Object> entry : container.getCache().asMap().entrySet()) {
+        Object value = entry.getValue();
+        boolean raw = value instanceof byte[];
+        byte[] data = raw ? (byte[]) value : OffHeapTier.serialize(value);
+        if (data == null) {
+          continue;
+        }
+
+        Long deadline = container.deadline(entry.getKey());
+        if (expireAfterWrite && deadline == null) {
+          // 写入时间未知，不延长其存活时间
+          continue;
+        }
+        long expireAt = accessDeadline;
+        if (deadline != null && (expireAt == 0 || deadline < expireAt)) {
+          expireAt = deadline;
+        }
+        writeEntry(out, entry.getKey(), expireAt, raw, data);
+        count++;
+      }
+
+      OffHeapTier offHeap = container.getOffHeap();
+      if (offHeap != null) {
+        long nanoNow = System.nanoTime();
+        for (String key : offHeap.keys()) {
+          StoredValue stored = offHeap.peek(key);
+          if (stored == null) {
+            continue;
+          }
+
+          long expireAt = stored.getExpireAt() == 0 ? 0
+              : now + TimeUnit.NANOSECONDS.toMillis(stored.getExpireAt() - nanoNow);
+          writeEntry(out, key, expireAt, stored.isRaw(), stored.getData());
+          count++;
+        }
+      }
+
+      out.writeByte(END);
+    }
+    return count;
+  }
+
+  /**
+   * 从快照文件恢复条目到cache容器，已过期或无法反序列化的条目会被跳过.
+   *
+   * @param container cache容器
+   * @param file      快照文件
+   * @return 恢复的条目数
+   * @throws IOException 输入输出异常，或文件不是有效的快照
+   */
+  static int read(NamedCache container, File file) throws IOException {
+    int count = 0;
+    long now = System.currentTimeMillis();
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      MappedReader reader = new MappedReader(channel);
+      if (reader.readInt() != MAGIC) {
+        throw new IOException("Not a cache snapshot: " + file);
+      }
+      int version = reader.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported cache snapshot version " + version + ": " + file);
+      }
+      reader.readLong();
+
+      while (reader.readByte() == ENTRY) {
+        String key = new String(reader.readBytes(reader.readInt()), Default.DEFAULT_CHARSET);
+        long expireAt = reader.readLong();
+        boolean raw = reader.readByte() == 1;
+        byte[] data = reader.readBytes(reader.readInt());
+        if (expireAt != 0 && expireAt <= now) {
+          continue;
+        }
+
+        // 无法反序列化的条目（如类已变更）跳过，不影响其他条目的恢复
+        Object value = raw ? data : OffHeapTier.deserialize(data);
+        if (value != null) {
+          container.restore(key, value, expireAt);
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  private static void writeEntry(DataOutputStream out, String key, long expireAt, boolean raw,
+                                 byte[] data) throws IOException {
+    byte[] keyBytes = key.getBytes(Default.DEFAULT_CHARSET);
+    out.writeByte(ENTRY);
+    out.writeInt(keyBytes.length);
+    out.write(keyBytes);
+    out.writeLong(expireAt);
+    out.writeByte(raw ? 1 : 0);
+    out.writeInt(data.length);
+    out.write(data);
+  }
+
+  /**
+   * 按访问时间过期的条目，以快照时间作为最后访问时间；按写入时间计算的过期时间点由cache容器记录，不在此估算.
+   *
+   * @param config 配置
+   * @param now    快照时间
+   * @return 过期时间点，0为不按访问时间过期
+   */
+  private static long accessDeadline(MemoryCacheConfig config, long now) {
+    if (config.getExpireAfterAccess() >= 0) {
+      return now + config.getTimeUnit().toMillis(config.getExpireAfterAccess());
+    }
+    return 0;
+  }
+
+  /**
+   * 分段内存映射读取，支持超过2GB的文件
+   */
+  private static final class MappedReader {
+
+    private final FileChannel channel;
+    private final long size;
+    private long base = 0;
+    private ByteBuffer buffer;
+
+    MappedReader(FileChannel channel) throws IOException {
+      this.channel = channel;
+      this.size = channel.size();
+      this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MAP_WINDOW));
+    }
+
+    byte readByte() throws IOException {
+      ensure(1);
+      return buffer.get();
+    }
+
+    int readInt() throws IOException {
+      ensure(4);
+      return buffer.getInt();
+    }
+
+    long readLong() throws IOException {
+      ensure(8);
+      return buffer.getLong();
+    }
+
+    byte[] readBytes(int length) throws IOException {
+      if (length < 0) {
+        throw new IOException("Corrupted cache snapshot");
+      }
+      ensure(length);
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      return bytes;
+    }
+
+    private void ensure(int length) throws IOException {
+      if (buffer.remaining() >= length) {
+        return;
+      }
+
+      long position = base + buffer.position();
+      if (position + length > size) {
+        throw new IOException("Truncated cache snapshot");
+      }
+      base = position;
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+          Math.min(size - position, Math.max(MAP_WINDOW, length)));
+    }
+
+  }
+
+}
@@ -0,0 +1,105 @@
+package io.github.rcarlosdasilva.kits.cache;
+
+/**
+ * 访问频率估算（Count-Min Sketch）
+ * <p>
+ * 每个long存放16个4位计数器，每个元素对应4个计数器，取最小值作为频率，最大为15。累计增加次数达到样本数（容量的10倍）时，
+ * 所有计数器减半，使频率随时间衰减
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+final class FrequencySketch {
+
+  private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+      0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK = 0x1111111111111111L;
+  private static final int MAX_TABLE_SIZE = 1 << 30;
+
+  private final long[] table;
+  private final int tableMask;
+  private final long sampleSize;
+  private long size;
+
+  FrequencySketch(long maximumSize) {
+    long capacity = Math.max(1, Math.min(maximumSize, MAX_TABLE_SIZE));
+    int tableSize = Integer.highestOneBit((int) capacity);
+    if (tableSize < capacity) {
+      tableSize <<= 1;
+    }
+    this.table = new long[tableSize];
+    this.tableMask = tableSize - 1;
+    this.sampleSize = 10 * capacity;
+  }
+
+  /**
+   * 估算元素的访问频率.
+   *
+   * @param e 元素
+   * @return 0~15
+   */
+  int frequency(Object e) {
+    int hash = spread(e.hashCode());
+    int start = (hash & 3) << 2;
+    int frequency = Integer.MAX_VALUE;
+    for (int i = 0; i < 4; i++) {
+      int index = indexOf(hash, i);
+      int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /**
+   * 记录一次访问.
+   *
+   * @param e 元素
+   */
+  void increment(Object e) {
+    int hash = spread(e.hashCode());
+    int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+
+    if (added && ++size == sampleSize) {
+      reset();
+    }
+  }
+
+  private boolean incrementAt(int index, int counter) {
+    int offset = counter << 2;
+    long mask = 0xfL << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * 所有计数器减半.
+   */
+  private void reset() {
+    long odd = 0;
+    for (int i = 0; i < table.length; i++) {
+      odd += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    size = (size >>> 1) - (odd >>> 2);
+  }
+
+  private int indexOf(int hash, int i) {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    h += h >>> 32;
+    return ((int) h) & tableMask;
+  }
+
+  private static int spread(int x) {
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    return (x >>> 16) ^ x;
+  }
+
+}
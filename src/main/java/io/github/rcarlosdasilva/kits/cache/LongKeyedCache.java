@@ -0,0 +1,422 @@
+package io.github.rcarlosdasilva.kits.cache;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheStats;
+
+/**
+ * 以long为key的缓存
+ * <p>
+ * 使用开放寻址（线性探测）的哈希表，key直接存放在long[]中，按key读取时不需要创建String或装箱，也不分配任何对象。
+ * 表按key的哈希分为多段，每段一把锁；容量满时按CLOCK（二次机会）淘汰，过期在读取时检查，也可调用{@link #cleanUp()}批量清理
+ * <p>
+ * 通过{@link MemoryCacheHelper#createLongKeyed(String, MemoryCacheHelper.MemoryCacheConfig)}创建
+ *
+ * @param <V> value类型
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public final class LongKeyedCache<V> {
+
+  private static final int DEFAULT_SEGMENTS = 16;
+  private static final int MAX_SEGMENTS = 1 << 16;
+  private static final int MIN_TABLE_SIZE = 8;
+
+  private final String name;
+  private final boolean recordStats;
+  private final Segment[] segments;
+  private final int segmentShift;
+
+  LongKeyedCache(String name, long maximumSize, long expireAfterWriteNanos,
+                 long expireAfterAccessNanos, int concurrencyLevel, int initialCapacity,
+                 boolean recordStats) {
+    this.name = name;
+    this.recordStats = recordStats;
+
+    int count = concurrencyLevel > 0 ? Math.min(concurrencyLevel, MAX_SEGMENTS) : DEFAULT_SEGMENTS;
+    if (maximumSize > 0) {
+      // 每段至少能容纳一个条目
+      count = (int) Math.max(1, Math.min(count, maximumSize));
+    }
+    int segmentCount = Integer.highestOneBit(count);
+    this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+    this.segments = new Segment[segmentCount];
+
+    long segmentMaximum = maximumSize > 0 ? maximumSize / segmentCount : -1;
+    int segmentInitial = initialCapacity > 0 ? initialCapacity / segmentCount : 0;
+    for (int i = 0; i < segmentCount; i++) {
+      long maximum = segmentMaximum;
+      if (maximum > 0 && i < maximumSize % segmentCount) {
+        maximum++;
+      }
+      segments[i] = new Segment(maximum, segmentInitial, expireAfterWriteNanos,
+          expireAfterAccessNanos, recordStats);
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * 读取缓存.
+   *
+   * @param key key
+   * @return 值，不存在或已过期时为null
+   */
+  public V get(long key) {
+    int hash = hash(key);
+    return cast(segmentFor(hash).get(key, hash));
+  }
+
+  /**
+   * 读取缓存，不存在时返回默认值.
+   *
+   * @param key          key
+   * @param defaultValue 默认值
+   * @return 值
+   */
+  public V get(long key, V defaultValue) {
+    V value = get(key);
+    return value == null ? defaultValue : value;
+  }
+
+  /**
+   * 写入缓存.
+   *
+   * @param key   key
+   * @param value 值，不能为null
+   */
+  public void put(long key, V value) {
+    Preconditions.checkNotNull(value);
+    int hash = hash(key);
+    segmentFor(hash).put(key, hash, value);
+  }
+
+  public void remove(long key) {
+    int hash = hash(key);
+    segmentFor(hash).remove(key, hash);
+  }
+
+  public boolean exists(long key) {
+    return get(key) != null;
+  }
+
+  /**
+   * 清空缓存.
+   */
+  public void empty() {
+    for (Segment segment : segments) {
+      segment.clear();
+    }
+  }
+
+  /**
+   * 条目数，可能包含已过期但尚未清理的条目.
+   *
+   * @return 条目数
+   */
+  public long size() {
+    long size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  /**
+   * 清理所有已过期的条目.
+   */
+  public void cleanUp() {
+    for (Segment segment : segments) {
+      segment.cleanUp();
+    }
+  }
+
+  /**
+   * 统计快照，命中与淘汰次数需要在配置中开启recordStats.
+   *
+   * @return {@link MemoryCacheStats}
+   */
+  public MemoryCacheStats stats() {
+    long hits = 0;
+    long misses = 0;
+    long evictions = 0;
+    long size = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        hits += segment.hitCount;
+        misses += segment.missCount;
+        evictions += segment.evictionCount;
+        size += segment.size;
+      }
+    }
+    return new MemoryCacheStats(name, recordStats,
+        new CacheStats(hits, misses, 0, 0, 0, evictions), size, -1, 0, 0);
+  }
+
+  private Segment segmentFor(int hash) {
+    return segments.length == 1 ? segments[0] : segments[hash >>> segmentShift];
+  }
+
+  @SuppressWarnings("unchecked")
+  private V cast(Object value) {
+    return (V) value;
+  }
+
+  private static int hash(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  /**
+   * 一段哈希表，values为null的槽位为空
+   */
+  private static final class Segment {
+
+    private final long maximumSize;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    private final boolean recordStats;
+
+    private long[] keys;
+    private Object[] values;
+    private long[] writeTimes;
+    private long[] accessTimes;
+    private boolean[] referenced;
+    private int mask;
+    private int size;
+    private int hand;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    Segment(long maximumSize, int initialCapacity, long expireAfterWriteNanos,
+            long expireAfterAccessNanos, boolean recordStats) {
+      this.maximumSize = maximumSize;
+      this.expireAfterWriteNanos = expireAfterWriteNanos;
+      this.expireAfterAccessNanos = expireAfterAccessNanos;
+      this.recordStats = recordStats;
+
+      // 有容量上限时一次分配到位，负载因子不超过0.5，之后不再扩容
+      long expected = maximumSize > 0 ? maximumSize : initialCapacity;
+      allocate(tableSizeFor(expected));
+    }
+
+    synchronized Object get(long key, int hash) {
+      int index = indexOf(key, hash);
+      if (index < 0) {
+        if (recordStats) {
+          missCount++;
+        }
+        return null;
+      }
+
+      long now = expireAfterWriteNanos > 0 || expireAfterAccessNanos > 0 ? System.nanoTime() : 0;
+      if (isExpired(index, now)) {
+        delete(index);
+        if (recordStats) {
+          missCount++;
+        }
+        return null;
+      }
+
+      referenced[index] = true;
+      if (accessTimes != null) {
+        accessTimes[index] = now;
+      }
+      if (recordStats) {
+        hitCount++;
+      }
+      return values[index];
+    }
+
+    synchronized void put(long key, int hash, Object value) {
+      int index = indexOf(key, hash);
+      if (index < 0) {
+        if (maximumSize > 0 && size >= maximumSize) {
+          evict();
+        } else if (maximumSize <= 0 && (size + 1) * 2 > keys.length) {
+          allocate(keys.length * 2);
+        }
+        index = insertionPoint(hash);
+        keys[index] = key;
+        size++;
+      }
+
+      values[index] = value;
+      referenced[index] = false;
+      long now = writeTimes != null || accessTimes != null ? System.nanoTime() : 0;
+      if (writeTimes != null) {
+        writeTimes[index] = now;
+      }
+      if (accessTimes != null) {
+        accessTimes[index] = now;
+      }
+    }
+
+    synchronized void remove(long key, int hash) {
+      int index = indexOf(key, hash);
+      if (index >= 0) {
+        delete(index);
+      }
+    }
+
+    synchronized void clear() {
+      values = null;
+      allocate(tableSizeFor(maximumSize > 0 ? maximumSize : 0));
+    }
+
+    synchronized int size() {
+      return size;
+    }
+
+    synchronized void cleanUp() {
+      if (writeTimes == null && accessTimes == null) {
+        return;
+      }
+
+      long now = System.nanoTime();
+      int index = 0;
+      while (index < keys.length) {
+        // 删除时后续条目会前移到当前位置，需要再次检查同一位置
+        if (values[index] != null && isExpired(index, now)) {
+          delete(index);
+        } else {
+          index++;
+        }
+      }
+    }
+
+    private int indexOf(long key, int hash) {
+      int index = hash & mask;
+      while (values[index] != null) {
+        if (keys[index] == key) {
+          return index;
+        }
+        index = (index + 1) & mask;
+      }
+      return -1;
+    }
+
+    private int insertionPoint(int hash) {
+      int index = hash & mask;
+      while (values[index] != null) {
+        index = (index + 1) & mask;
+      }
+      return index;
+    }
+
+    /**
+     * CLOCK淘汰：跳过最近被访问过的条目并清除其标记，淘汰遇到的第一个未被访问的条目；已过期的条目优先淘汰.
+     */
+    private void evict() {
+      long now = writeTimes != null || accessTimes != null ? System.nanoTime() : 0;
+      while (true) {
+        hand = hand & mask;
+        if (values[hand] != null) {
+          if (referenced[hand] && !isExpired(hand, now)) {
+            referenced[hand] = false;
+          } else {
+            delete(hand);
+            if (recordStats) {
+              evictionCount++;
+            }
+            return;
+          }
+        }
+        hand++;
+      }
+    }
+
+    /**
+     * 删除条目，并将同一探测链上的后续条目前移，保持线性探测不出现空洞.
+     *
+     * @param index 位置
+     */
+    private void delete(int index) {
+      int gap = index;
+      int next = (gap + 1) & mask;
+      while (values[next] != null) {
+        int home = hash(keys[next]) & mask;
+        // home不在(gap, next]之间时，next可以前移到gap
+        if (((next - home) & mask) >= ((next - gap) & mask)) {
+          move(next, gap);
+          gap = next;
+        }
+        next = (next + 1) & mask;
+      }
+
+      values[gap] = null;
+      referenced[gap] = false;
+      size--;
+    }
+
+    private void move(int from, int to) {
+      keys[to] = keys[from];
+      values[to] = values[from];
+      referenced[to] = referenced[from];
+      if (writeTimes != null) {
+        writeTimes[to] = writeTimes[from];
+      }
+      if (accessTimes != null) {
+        accessTimes[to] = accessTimes[from];
+      }
+    }
+
+    private boolean isExpired(int index, long now) {
+      return (writeTimes != null && now - writeTimes[index] >= expireAfterWriteNanos)
+          || (accessTimes != null && now - accessTimes[index] >= expireAfterAccessNanos);
+    }
+
+    /**
+     * 分配新表，已有条目重新插入到新表中.
+     *
+     * @param tableSize 表大小，2的幂
+     */
+    private void allocate(int tableSize) {
+      long[] oldKeys = keys;
+      Object[] oldValues = values;
+      long[] oldWriteTimes = writeTimes;
+      long[] oldAccessTimes = accessTimes;
+      boolean[] oldReferenced = referenced;
+
+      keys = new long[tableSize];
+      values = new Object[tableSize];
+      referenced = new boolean[tableSize];
+      writeTimes = expireAfterWriteNanos > 0 ? new long[tableSize] : null;
+      accessTimes = expireAfterAccessNanos > 0 ? new long[tableSize] : null;
+      mask = tableSize - 1;
+      size = 0;
+      hand = 0;
+
+      if (oldValues == null) {
+        return;
+      }
+      for (int i = 0; i < oldValues.length; i++) {
+        if (oldValues[i] == null) {
+          continue;
+        }
+        int index = insertionPoint(hash(oldKeys[i]));
+        keys[index] = oldKeys[i];
+        values[index] = oldValues[i];
+        referenced[index] = oldReferenced[i];
+        if (writeTimes != null) {
+          writeTimes[index] = oldWriteTimes[i];
+        }
+        if (accessTimes != null) {
+          accessTimes[index] = oldAccessTimes[i];
+        }
+        size++;
+      }
+    }
+
+    private static int tableSizeFor(long expected) {
+      long size = Math.max(MIN_TABLE_SIZE, expected * 2);
+      Preconditions.checkArgument(size <= 1 << 30, "Segment too large: %s", expected);
+      int tableSize = Integer.highestOneBit((int) size);
+      return tableSize < size ? tableSize << 1 : tableSize;
+    }
+
+  }
+
+}
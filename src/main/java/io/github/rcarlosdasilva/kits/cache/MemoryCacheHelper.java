@@ -3,10 +3,34 @@ package io.github.rcarlosdasilva.kits.cache;
 import com.google.common.base.Preconditions;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 /**
  * 内存缓存助手
@@ -15,43 +39,139 @@ import java.util.concurrent.TimeUnit;
  */
 public class MemoryCacheHelper {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(MemoryCacheHelper.class);
+
   public static final int DEFAULT_EXPIRE_AFTER_ACCESS = 10;
   public static final int DEFAULT_EXPIRE_AFTER_WRITE = 30;
   public static final int DEFAULT_MAX_SIZE = 5000;
   private static final String DEFAULT_CACHE_NAME = "__default_cache__";
-  private static final Map<String, Cache<String, Object>> cacheManager = Maps.newConcurrentMap();
+  private static final ConcurrentMap<String, NamedCache> cacheManager = Maps.newConcurrentMap();
+  private static final ConcurrentMap<String, LongKeyedCache<?>> longKeyedManager = Maps
+      .newConcurrentMap();
+  private static final Executor DEFAULT_REFRESH_EXECUTOR = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setNameFormat("kits-cache-refresh-%d").setDaemon(true).build());
+  private static final ScheduledExecutorService SNAPSHOT_SCHEDULER = Executors
+      .newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+          .setNameFormat("kits-cache-snapshot-%d").setDaemon(true).build());
+  private static final ScheduledExecutorService ASYNC_TIMEOUT_SCHEDULER = Executors
+      .newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+          .setNameFormat("kits-cache-timeout-%d").setDaemon(true).build());
+  private static final AtomicBoolean snapshotHookRegistered = new AtomicBoolean(false);
 
   static {
     create(DEFAULT_CACHE_NAME, MemoryCacheConfig.getDefault());
   }
 
-  private static Cache<String, Object> cache(String target) {
-    Cache<String, Object> cache = cacheManager.get(target);
-    if (cache == null) {
-      synchronized (MemoryCacheHelper.class) {
-        if (cache == null) {
-          cache = build(target, MemoryCacheConfig.getDefault());
-        }
-      }
+  /**
+   * 获取cache容器，不存在时以默认配置创建.
+   * <p>
+   * 已存在的容器直接从map中读取，不加锁；首次访问时通过computeIfAbsent原子创建，并发访问时每个名字只创建一个容器，
+   * 不会有多余的容器占用堆外内存或MBean
+   *
+   * @param target cache名
+   * @return cache容器
+   */
+  private static NamedCache container(String target) {
+    NamedCache container = cacheManager.get(target);
+    if (container != null) {
+      return container;
     }
-    return cache;
+
+    return cacheManager.computeIfAbsent(target, new Function<String, NamedCache>() {
+
+      @Override
+      public NamedCache apply(String name) {
+        NamedCache created = build(name, MemoryCacheConfig.getDefault());
+        created.register();
+        return created;
+      }
+
+    });
   }
 
   /**
-   * 创建一个新的cache容器.
+   * 创建一个新的cache容器，已存在的同名容器会被替换.
    *
    * @param name   cache名
    * @param config 配置
    */
   public static void create(String name, MemoryCacheConfig config) {
-    build(name, config);
+    NamedCache container = build(name, config);
+    if (config.getSnapshotFile() != null && config.getSnapshotFile().exists()) {
+      restore(container, config.getSnapshotFile());
+    }
+
+    NamedCache previous = cacheManager.put(name, container);
+    if (previous != null) {
+      release(previous);
+    }
+    container.register();
+    if (config.getSnapshotFile() != null) {
+      scheduleSnapshot(container);
+    }
   }
 
-  private static Cache<String, Object> build(String name, MemoryCacheConfig config) {
+  private static void release(NamedCache container) {
+    container.unregister();
+    Future<?> task = container.getSnapshotTask();
+    if (task != null) {
+      task.cancel(false);
+    }
+  }
+
+  private static NamedCache build(String name, MemoryCacheConfig config) {
     Preconditions.checkNotNull(name);
     Preconditions.checkNotNull(config);
 
-    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+    OffHeapTier offHeap = null;
+    if (config.getOffHeapCapacity() > 0) {
+      offHeap = new OffHeapTier(config.getOffHeapCapacity(), offHeapExpireNanos(config));
+    }
+    ConcurrentMap<String, Long> deadlines = null;
+    if (config.getExpireAfterWrite() >= 0) {
+      deadlines = Maps.newConcurrentMap();
+    }
+    WeightTracker weights = null;
+    if (config.getMaximumWeight() >= 0) {
+      Weigher<String, Object> weigher = config.getWeigher();
+      weights = new WeightTracker(weigher == null ? ObjectSizeWeigher.getInstance() : weigher);
+    }
+    return new NamedCache(name, config, buildCache(config, offHeap, deadlines, weights), offHeap,
+        deadlines, weights);
+  }
+
+  private static Cache<String, Object> buildCache(MemoryCacheConfig config,
+                                                  final OffHeapTier offHeap,
+                                                  final ConcurrentMap<String, Long> deadlines,
+                                                  final WeightTracker weights) {
+    RemovalListener<String, Object> listener = null;
+    if (offHeap != null || deadlines != null || weights != null) {
+      listener = new RemovalListener<String, Object>() {
+
+        @Override
+        public void onRemoval(RemovalNotification<String, Object> notification) {
+          if (weights != null) {
+            weights.onRemoval(notification);
+          }
+          // 因容量被淘汰的条目降级到堆外，保留其按写入时间计算的过期时间点
+          if (offHeap != null) {
+            Long deadline = deadlines == null ? null : deadlines.get(notification.getKey());
+            offHeap.demote(notification, deadline == null ? 0 : deadline);
+          }
+          // 被替换时新值已记录了过期时间点
+          if (deadlines != null && notification.getCause() != RemovalCause.REPLACED) {
+            deadlines.remove(notification.getKey());
+          }
+        }
+
+      };
+    }
+
+    if (config.getEngine() == CacheEngine.TINY_LFU) {
+      return buildTinyLfuCache(config, listener);
+    }
+
+    CacheBuilder<String, Object> builder = newBuilder(config, weights);
     if (config.getInitialCapacity() >= 0) {
       builder.initialCapacity(config.getInitialCapacity());
     }
@@ -64,18 +184,122 @@ public class MemoryCacheHelper {
     if (config.getExpireAfterWrite() >= 0) {
       builder.expireAfterWrite(config.getExpireAfterWrite(), config.getTimeUnit());
     }
-    if (config.getMaximumSize() >= 0) {
-      builder.maximumSize(config.getMaximumSize());
+    if (config.isRecordStats()) {
+      builder.recordStats();
     }
-    if (config.getMaximumWeight() >= 0) {
-      builder.maximumWeight(config.getMaximumWeight());
+    if (listener != null) {
+      builder = builder.removalListener(listener);
+    }
+
+    final CacheLoader<String, Object> loader = config.getLoader();
+    if (loader == null) {
+      return builder.build();
     }
+
+    // refreshAfterWrite只对LoadingCache有效，刷新在executor中异步执行，刷新期间读取到的仍是旧值
     if (config.getRefreshAfterWrite() >= 0) {
       builder.refreshAfterWrite(config.getRefreshAfterWrite(), config.getTimeUnit());
     }
-    Cache<String, Object> cache = builder.build();
-    cacheManager.put(name, cache);
-    return cache;
+    Executor executor = config.getRefreshExecutor();
+    CacheLoader<String, Object> tieredLoader = loader;
+    if (offHeap != null || deadlines != null) {
+      // 加载前先尝试从堆外提升，并记录加载或刷新后的过期时间点
+      final long expireAfterWriteMillis = config.getTimeUnit()
+          .toMillis(config.getExpireAfterWrite());
+      tieredLoader = new CacheLoader<String, Object>() {
+
+        @Override
+        public Object load(final String key) throws Exception {
+          return NamedCache.load(key, new Callable<Object>() {
+
+            @Override
+            public Object call() throws Exception {
+              return loader.load(key);
+            }
+
+          }, offHeap, deadlines, expireAfterWriteMillis);
+        }
+
+      };
+    }
+    return builder.build(CacheLoader.asyncReloading(tieredLoader,
+        executor == null ? DEFAULT_REFRESH_EXECUTOR : executor));
+  }
+
+  /**
+   * 创建W-TinyLFU cache，只支持按条目数限制容量，不支持loader、权重和刷新.
+   *
+   * @param config   配置
+   * @param listener 移除监听，可为null
+   * @return cache
+   */
+  private static Cache<String, Object> buildTinyLfuCache(MemoryCacheConfig config,
+                                                         RemovalListener<String, Object> listener) {
+    Preconditions.checkArgument(config.getMaximumSize() > 0,
+        "TinyLFU engine requires maximumSize");
+    Preconditions.checkArgument(config.getMaximumWeight() < 0,
+        "TinyLFU engine does not support maximumWeight");
+    Preconditions.checkArgument(config.getLoader() == null,
+        "TinyLFU engine does not support loader");
+
+    TimeUnit unit = config.getTimeUnit();
+    long expireAfterWrite = config.getExpireAfterWrite() >= 0
+        ? Math.max(1, unit.toNanos(config.getExpireAfterWrite())) : 0;
+    long expireAfterAccess = config.getExpireAfterAccess() >= 0
+        ? Math.max(1, unit.toNanos(config.getExpireAfterAccess())) : 0;
+    return new TinyLfuCache<String, Object>(config.getMaximumSize(), expireAfterWrite,
+        expireAfterAccess, config.isRecordStats(), listener);
+  }
+
+  /**
+   * 降级到堆外的条目按访问时间计算的存活时间，从降级时开始计算；按写入时间计算的过期时间点在降级时保留，不重新计算.
+   *
+   * @param config 配置
+   * @return 纳秒，不按访问时间过期时为0
+   */
+  private static long offHeapExpireNanos(MemoryCacheConfig config) {
+    long expire = config.getExpireAfterAccess();
+    return expire < 0 ? 0 : Math.max(1, config.getTimeUnit().toNanos(expire));
+  }
+
+  /**
+   * 按容量配置创建CacheBuilder.
+   * <p>
+   * 配置了maximumWeight时按权重淘汰，忽略maximumSize，未指定weigher时使用{@link ObjectSizeWeigher}按估算的字节数计算权重
+   *
+   * @param config  配置
+   * @param weights 包装了配置的weigher并累计总权重，未配置maximumWeight时为null
+   * @return CacheBuilder
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static CacheBuilder<String, Object> newBuilder(MemoryCacheConfig config,
+                                                         WeightTracker weights) {
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+    if (weights != null) {
+      return builder.maximumWeight(config.getMaximumWeight()).weigher(weights);
+    }
+    if (config.getMaximumSize() >= 0) {
+      builder.maximumSize(config.getMaximumSize());
+    }
+    return (CacheBuilder) builder;
+  }
+
+  /**
+   * 读取缓存，配置了loader时不存在的key会被加载.
+   *
+   * @param container cache容器
+   * @param key       key
+   * @return 值，加载失败或loader返回null时为null
+   */
+  private static Object load(NamedCache container, String key) {
+    try {
+      return container.get(key);
+    } catch (ExecutionException | UncheckedExecutionException ex) {
+      LOGGER.error("[MemoryCache] - 加载缓存失败，key: " + key, ex.getCause());
+    } catch (InvalidCacheLoadException ex) {
+      LOGGER.debug("[MemoryCache] - loader返回null，key: {}", key);
+    }
+    return null;
   }
 
   public static Object get(String key) {
@@ -100,9 +324,20 @@ public class MemoryCacheHelper {
     return get(target, key, Object.class);
   }
 
+  /**
+   * 获取缓存.
+   * <p>
+   * 如果cache容器配置了loader，不存在时会使用loader加载，同一个key同时只会有一个线程执行加载
+   *
+   * @param <T>    类型
+   * @param target cache名
+   * @param key    key
+   * @param clazz  类型
+   * @return 值
+   */
   @SuppressWarnings("unchecked")
   public static <T> T get(String target, String key, Class<T> clazz) {
-    return (T) cache(target).getIfPresent(key);
+    return (T) load(container(target), key);
   }
 
   public static Object get(String target, String key, Object defaultValue) {
@@ -110,18 +345,130 @@ public class MemoryCacheHelper {
     return value == null ? defaultValue : value;
   }
 
-  @SuppressWarnings("unchecked")
   public static <T> T get(String target, String key, Class<T> clazz, T defaultValue) {
-    T value = (T) cache(target).getIfPresent(key);
+    T value = get(target, key, clazz);
     return value == null ? defaultValue : value;
   }
 
+  public static <T> T get(String key, Callable<T> loader) {
+    return get(DEFAULT_CACHE_NAME, key, loader);
+  }
+
+  /**
+   * 获取缓存，不存在时使用loader加载并放入缓存.
+   * <p>
+   * 同一个key并发获取时，只有一个线程执行loader，其他线程等待其结果，loader抛出异常或返回null时返回null，且不会缓存
+   *
+   * @param <T>    类型
+   * @param target cache名
+   * @param key    key
+   * @param loader 加载器
+   * @return 值
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> T get(String target, String key, Callable<T> loader) {
+    Preconditions.checkNotNull(loader);
+
+    try {
+      return (T) container(target).get(key, loader);
+    } catch (ExecutionException | UncheckedExecutionException ex) {
+      LOGGER.error("[MemoryCache] - 加载缓存失败，key: " + key, ex.getCause());
+    } catch (InvalidCacheLoadException ex) {
+      LOGGER.debug("[MemoryCache] - loader返回null，key: {}", key);
+    }
+    return null;
+  }
+
+  public static <T> CompletableFuture<T> getAsync(String key, AsyncCacheLoader<T> loader) {
+    return getAsync(DEFAULT_CACHE_NAME, key, loader);
+  }
+
+  public static <T> CompletableFuture<T> getAsync(String target, String key,
+                                                  AsyncCacheLoader<T> loader) {
+    return getAsync(target, key, loader, 0, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * 异步获取缓存，不存在时使用loader异步加载并放入缓存，不会阻塞调用线程.
+   * <p>
+   * 同一个key并发获取时只加载一次，所有调用方得到同一个结果。加载失败、超时或结果为null时，返回的future以异常完成，
+   * 且结果不会被缓存，下次获取会重新加载。每个调用方得到独立的future，取消它不影响其他调用方与正在进行的加载
+   *
+   * @param <T>     类型
+   * @param target  cache名
+   * @param key     key
+   * @param loader  异步加载器
+   * @param timeout 加载超时，小于等于0不限制，超时后future以{@link java.util.concurrent.TimeoutException}完成
+   * @param unit    超时单位
+   * @return 值的future
+   */
+  public static <T> CompletableFuture<T> getAsync(String target, String key,
+                                                  AsyncCacheLoader<T> loader, long timeout,
+                                                  TimeUnit unit) {
+    Preconditions.checkNotNull(key);
+    Preconditions.checkNotNull(loader);
+
+    CompletableFuture<Object> shared = container(target)
+        .getAsync(key, loader, unit.toNanos(timeout), ASYNC_TIMEOUT_SCHEDULER);
+    final CompletableFuture<T> result = new CompletableFuture<T>();
+    shared.whenComplete(new BiConsumer<Object, Throwable>() {
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public void accept(Object value, Throwable ex) {
+        if (ex != null) {
+          result.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null
+              ? ex.getCause() : ex);
+        } else {
+          result.complete((T) value);
+        }
+      }
+
+    });
+    return result;
+  }
+
   public static void put(String key, Object value) {
     put(DEFAULT_CACHE_NAME, key, value);
   }
 
   public static void put(String target, String key, Object value) {
-    cache(target).put(key, value);
+    container(target).put(key, value);
+  }
+
+  public static void putAll(Map<String, ?> values) {
+    putAll(DEFAULT_CACHE_NAME, values);
+  }
+
+  /**
+   * 批量放入缓存.
+   *
+   * @param target cache名
+   * @param values 缓存内容
+   */
+  public static void putAll(String target, Map<String, ?> values) {
+    Preconditions.checkNotNull(values);
+
+    container(target).putAll(values);
+  }
+
+  public static Map<String, Object> getAll(Iterable<String> keys) {
+    return getAll(DEFAULT_CACHE_NAME, keys);
+  }
+
+  /**
+   * 批量获取缓存，只查找一次cache容器.
+   * <p>
+   * 只返回已存在的缓存，不会触发loader
+   *
+   * @param target cache名
+   * @param keys   keys
+   * @return 存在的key与值
+   */
+  public static Map<String, Object> getAll(String target, Iterable<String> keys) {
+    Preconditions.checkNotNull(keys);
+
+    return container(target).getAllPresent(keys);
   }
 
   public static void remove(String key) {
@@ -129,7 +476,23 @@ public class MemoryCacheHelper {
   }
 
   public static void remove(String target, String key) {
-    cache(target).invalidate(key);
+    container(target).invalidate(key);
+  }
+
+  public static void removeAll(Iterable<String> keys) {
+    removeAll(DEFAULT_CACHE_NAME, keys);
+  }
+
+  /**
+   * 批量删除缓存.
+   *
+   * @param target cache名
+   * @param keys   keys
+   */
+  public static void removeAll(String target, Iterable<String> keys) {
+    Preconditions.checkNotNull(keys);
+
+    container(target).invalidateAll(keys);
   }
 
   public static boolean exists(String key) {
@@ -137,7 +500,7 @@ public class MemoryCacheHelper {
   }
 
   public static boolean exists(String target, String key) {
-    return cache(target).getIfPresent(key) != null;
+    return container(target).exists(key);
   }
 
   public static void empty() {
@@ -145,7 +508,7 @@ public class MemoryCacheHelper {
   }
 
   public static void empty(String target) {
-    cache(target).invalidateAll();
+    container(target).invalidateAll();
   }
 
   /**
@@ -159,12 +522,169 @@ public class MemoryCacheHelper {
   }
 
   /**
-   * 删除Cache容器.
+   * 获取cache容器的统计信息.
+   * <p>
+   * 命中、加载、淘汰等计数需要在配置中开启recordStats，开启后同时会注册JMX MBean
+   *
+   * @param target cache名
+   * @return {@link MemoryCacheStats}
+   */
+  public static MemoryCacheStats stats(String target) {
+    return container(target).stats();
+  }
+
+  /**
+   * 将cache容器写入配置的快照文件.
+   *
+   * @param target cache名
+   * @return 写入的条目数，未配置快照文件或写入失败时为-1
+   */
+  public static int snapshot(String target) {
+    File file = container(target).getConfig().getSnapshotFile();
+    if (file == null) {
+      return -1;
+    }
+    return snapshot(target, file);
+  }
+
+  /**
+   * 将cache容器写入快照文件，包括堆外的条目，无法序列化的值会被跳过.
+   * <p>
+   * 快照中保存每个条目的剩余存活时间，恢复后按原过期时间失效
+   *
+   * @param target cache名
+   * @param file   快照文件
+   * @return 写入的条目数，失败时为-1
+   */
+  public static int snapshot(String target, File file) {
+    Preconditions.checkNotNull(file);
+
+    return snapshot(container(target), file);
+  }
+
+  private static int snapshot(NamedCache container, File file) {
+    try {
+      return CacheSnapshot.write(container, file);
+    } catch (IOException ex) {
+      LOGGER.error("[MemoryCache] - 写入快照失败，cache: " + container.getName(), ex);
+      return -1;
+    }
+  }
+
+  /**
+   * 从快照文件恢复条目到cache容器，已过期的条目会被跳过.
+   *
+   * @param target cache名
+   * @param file   快照文件
+   * @return 恢复的条目数，失败时为-1
+   */
+  public static int restore(String target, File file) {
+    Preconditions.checkNotNull(file);
+
+    return restore(container(target), file);
+  }
+
+  private static int restore(NamedCache container, File file) {
+    try {
+      int count = CacheSnapshot.read(container, file);
+      LOGGER.info("[MemoryCache] - 从快照恢复 {} 个条目，cache: {}", count, container.getName());
+      return count;
+    } catch (IOException ex) {
+      LOGGER.error("[MemoryCache] - 读取快照失败，cache: " + container.getName(), ex);
+      return -1;
+    }
+  }
+
+  /**
+   * 按配置的间隔定时写快照，并在JVM关闭时写入所有配置了快照文件的cache容器.
+   *
+   * @param container cache容器
+   */
+  private static void scheduleSnapshot(final NamedCache container) {
+    final MemoryCacheConfig config = container.getConfig();
+    if (config.getSnapshotInterval() > 0) {
+      container.setSnapshotTask(SNAPSHOT_SCHEDULER.scheduleWithFixedDelay(new Runnable() {
+
+        @Override
+        public void run() {
+          snapshot(container, config.getSnapshotFile());
+        }
+
+      }, config.getSnapshotInterval(), config.getSnapshotInterval(), config.getTimeUnit()));
+    }
+
+    if (snapshotHookRegistered.compareAndSet(false, true)) {
+      Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+
+        @Override
+        public void run() {
+          for (NamedCache named : cacheManager.values()) {
+            File file = named.getConfig().getSnapshotFile();
+            if (file != null) {
+              snapshot(named, file);
+            }
+          }
+        }
+
+      }, "kits-cache-snapshot-shutdown"));
+    }
+  }
+
+  /**
+   * 创建一个以long为key的cache，已存在的同名long key cache会被替换.
+   * <p>
+   * 按long读取时不需要转换为String，也不分配对象，适合以数字id为key的高频读取。配置中的maximumSize、expireAfterWrite、
+   * expireAfterAccess、concurrencyLevel、initialCapacity与recordStats生效，不支持loader与maximumWeight，
+   * 堆外缓存层、快照与engine不适用
+   *
+   * @param name   cache名
+   * @param config 配置
+   * @param <V>    value类型
+   * @return {@link LongKeyedCache}
+   */
+  public static <V> LongKeyedCache<V> createLongKeyed(String name, MemoryCacheConfig config) {
+    Preconditions.checkNotNull(name);
+    Preconditions.checkNotNull(config);
+    Preconditions.checkArgument(config.getLoader() == null,
+        "Long keyed cache does not support loader");
+    Preconditions.checkArgument(config.getMaximumWeight() < 0,
+        "Long keyed cache does not support maximumWeight");
+
+    TimeUnit unit = config.getTimeUnit();
+    long expireAfterWrite = config.getExpireAfterWrite() >= 0
+        ? Math.max(1, unit.toNanos(config.getExpireAfterWrite())) : 0;
+    long expireAfterAccess = config.getExpireAfterAccess() >= 0
+        ? Math.max(1, unit.toNanos(config.getExpireAfterAccess())) : 0;
+    LongKeyedCache<V> cache = new LongKeyedCache<V>(name, config.getMaximumSize(),
+        expireAfterWrite, expireAfterAccess, config.getConcurrencyLevel(),
+        config.getInitialCapacity(), config.isRecordStats());
+    longKeyedManager.put(name, cache);
+    return cache;
+  }
+
+  /**
+   * 获取以long为key的cache.
+   *
+   * @param name cache名
+   * @param <V>  value类型
+   * @return {@link LongKeyedCache}，不存在时为null
+   */
+  @SuppressWarnings("unchecked")
+  public static <V> LongKeyedCache<V> longKeyed(String name) {
+    return (LongKeyedCache<V>) longKeyedManager.get(name);
+  }
+
+  /**
+   * 删除Cache容器，同名的long key cache也会被删除.
    *
    * @param target cache名
    */
   public static void discardCache(String target) {
-    cacheManager.remove(target);
+    NamedCache container = cacheManager.remove(target);
+    if (container != null) {
+      release(container);
+    }
+    longKeyedManager.remove(target);
   }
 
   /**
@@ -172,7 +692,7 @@ public class MemoryCacheHelper {
    *
    * @author Dean Zhao (rcarlosdasilva@qq.com)
    */
-  static class MemoryCacheConfig {
+  public static class MemoryCacheConfig {
 
     private static final int UNCONFIG_INT = -1;
 
@@ -191,6 +711,14 @@ public class MemoryCacheHelper {
     private long expireAfterAccess = UNCONFIG_INT;
     private long refreshAfterWrite = UNCONFIG_INT;
     private TimeUnit timeUnit = TimeUnit.MINUTES;
+    private CacheLoader<String, Object> loader;
+    private Executor refreshExecutor;
+    private Weigher<String, Object> weigher;
+    private boolean recordStats = false;
+    private long offHeapCapacity = UNCONFIG_INT;
+    private File snapshotFile;
+    private long snapshotInterval = UNCONFIG_INT;
+    private CacheEngine engine = CacheEngine.GUAVA;
 
     public static MemoryCacheConfig getDefault() {
       return DEFAULT_CONFIG;
@@ -224,6 +752,13 @@ public class MemoryCacheHelper {
       return maximumWeight;
     }
 
+    /**
+     * 按权重限制容量，与maximumSize互斥，设置后maximumSize不再生效.
+     * <p>
+     * 使用默认的{@link ObjectSizeWeigher}时，权重即估算的字节数，如256MB：256L * 1024 * 1024
+     *
+     * @param maximumWeight 最大权重
+     */
     public void setMaximumWeight(long maximumWeight) {
       this.maximumWeight = maximumWeight;
     }
@@ -260,6 +795,113 @@ public class MemoryCacheHelper {
       this.timeUnit = timeUnit;
     }
 
+    public CacheLoader<String, Object> getLoader() {
+      return loader;
+    }
+
+    /**
+     * 设置loader后cache容器为LoadingCache，get时不存在的key会自动加载，refreshAfterWrite也只在设置了loader后生效.
+     *
+     * @param loader loader
+     */
+    public void setLoader(CacheLoader<String, Object> loader) {
+      this.loader = loader;
+    }
+
+    public Weigher<String, Object> getWeigher() {
+      return weigher;
+    }
+
+    /**
+     * 权重计算器，只在设置了maximumWeight时生效.
+     *
+     * @param weigher weigher
+     */
+    public void setWeigher(Weigher<String, Object> weigher) {
+      this.weigher = weigher;
+    }
+
+    public boolean isRecordStats() {
+      return recordStats;
+    }
+
+    /**
+     * 开启统计，可通过{@link MemoryCacheHelper#stats(String)}或JMX获取命中率等信息，统计会带来少量额外开销.
+     *
+     * @param recordStats 是否开启
+     */
+    public void setRecordStats(boolean recordStats) {
+      this.recordStats = recordStats;
+    }
+
+    public long getOffHeapCapacity() {
+      return offHeapCapacity;
+    }
+
+    /**
+     * 开启堆外缓存层并设置其容量（字节）.
+     * <p>
+     * 堆内因maximumSize或maximumWeight被淘汰的条目会降级到堆外，读取时再提升回堆内，get/put接口不变。
+     * byte[]直接存储，其他值需要实现Serializable，否则淘汰后即丢弃；单个值不能超过4MB
+     *
+     * @param offHeapCapacity 堆外容量
+     */
+    public void setOffHeapCapacity(long offHeapCapacity) {
+      this.offHeapCapacity = offHeapCapacity;
+    }
+
+    public File getSnapshotFile() {
+      return snapshotFile;
+    }
+
+    /**
+     * 快照文件，设置后创建cache容器时如果文件存在会先从中恢复，JVM关闭时会写入快照.
+     *
+     * @param snapshotFile 快照文件
+     */
+    public void setSnapshotFile(File snapshotFile) {
+      this.snapshotFile = snapshotFile;
+    }
+
+    public long getSnapshotInterval() {
+      return snapshotInterval;
+    }
+
+    /**
+     * 定时写快照的间隔，单位为timeUnit，需要同时设置snapshotFile.
+     *
+     * @param snapshotInterval 间隔
+     */
+    public void setSnapshotInterval(long snapshotInterval) {
+      this.snapshotInterval = snapshotInterval;
+    }
+
+    public Executor getRefreshExecutor() {
+      return refreshExecutor;
+    }
+
+    /**
+     * refreshAfterWrite后台刷新使用的线程池，不设置时使用内置的守护线程池.
+     *
+     * @param refreshExecutor executor
+     */
+    public void setRefreshExecutor(Executor refreshExecutor) {
+      this.refreshExecutor = refreshExecutor;
+    }
+
+    public CacheEngine getEngine() {
+      return engine;
+    }
+
+    /**
+     * 缓存实现，默认为Guava（LRU），访问分布不均匀、存在批量扫描时可使用{@link CacheEngine#TINY_LFU}提高命中率.
+     *
+     * @param engine 缓存实现
+     */
+    public void setEngine(CacheEngine engine) {
+      this.engine = Preconditions.checkNotNull(engine);
+    }
+
   }
 
 }
@@ -0,0 +1,154 @@
+package io.github.rcarlosdasilva.kits.cache;
+
+import com.google.common.cache.CacheStats;
+
+/**
+ * 缓存统计快照
+ * <p>
+ * 只有在配置中开启了recordStats的cache容器才会记录命中、加载、淘汰次数，否则这些值均为0
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public class MemoryCacheStats {
+
+  private String name;
+  private boolean recording;
+  private long hitCount;
+  private long missCount;
+  private long loadSuccessCount;
+  private long loadExceptionCount;
+  private long totalLoadTime;
+  private long evictionCount;
+  private long estimatedSize;
+  private long estimatedWeight;
+  private long offHeapSize;
+  private long offHeapBytes;
+
+  MemoryCacheStats(String name, boolean recording, CacheStats stats, long estimatedSize,
+                   long estimatedWeight, long offHeapSize, long offHeapBytes) {
+    this.name = name;
+    this.recording = recording;
+    this.hitCount = stats.hitCount();
+    this.missCount = stats.missCount();
+    this.loadSuccessCount = stats.loadSuccessCount();
+    this.loadExceptionCount = stats.loadExceptionCount();
+    this.totalLoadTime = stats.totalLoadTime();
+    this.evictionCount = stats.evictionCount();
+    this.estimatedSize = estimatedSize;
+    this.estimatedWeight = estimatedWeight;
+    this.offHeapSize = offHeapSize;
+    this.offHeapBytes = offHeapBytes;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * 是否开启了统计.
+   *
+   * @return boolean
+   */
+  public boolean isRecording() {
+    return recording;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public long getRequestCount() {
+    return hitCount + missCount;
+  }
+
+  /**
+   * 命中率，没有任何请求时为1.
+   *
+   * @return 0~1
+   */
+  public double getHitRate() {
+    long requestCount = getRequestCount();
+    return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+  }
+
+  public long getLoadSuccessCount() {
+    return loadSuccessCount;
+  }
+
+  public long getLoadExceptionCount() {
+    return loadExceptionCount;
+  }
+
+  /**
+   * 加载总耗时.
+   *
+   * @return 纳秒
+   */
+  public long getTotalLoadTime() {
+    return totalLoadTime;
+  }
+
+  /**
+   * 平均加载耗时.
+   *
+   * @return 纳秒
+   */
+  public double getAverageLoadPenalty() {
+    long loadCount = loadSuccessCount + loadExceptionCount;
+    return loadCount == 0 ? 0.0 : (double) totalLoadTime / loadCount;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * 缓存条目数的估计值.
+   *
+   * @return 条目数
+   */
+  public long getEstimatedSize() {
+    return estimatedSize;
+  }
+
+  /**
+   * 缓存总权重的估计值，未配置maximumWeight时为-1.
+   *
+   * @return 权重
+   */
+  public long getEstimatedWeight() {
+    return estimatedWeight;
+  }
+
+  /**
+   * 堆外缓存的条目数，未开启堆外缓存时为0.
+   *
+   * @return 条目数
+   */
+  public long getOffHeapSize() {
+    return offHeapSize;
+  }
+
+  /**
+   * 堆外缓存已使用的字节数，未开启堆外缓存时为0.
+   *
+   * @return 字节数
+   */
+  public long getOffHeapBytes() {
+    return offHeapBytes;
+  }
+
+  @Override
+  public String toString() {
+    return "MemoryCacheStats{name=" + name + ", hitCount=" + hitCount + ", missCount=" + missCount
+        + ", loadSuccessCount=" + loadSuccessCount + ", loadExceptionCount=" + loadExceptionCount
+        + ", totalLoadTime=" + totalLoadTime + ", evictionCount=" + evictionCount
+        + ", estimatedSize=" + estimatedSize + ", estimatedWeight=" + estimatedWeight
+        + ", offHeapSize=" + offHeapSize + ", offHeapBytes=" + offHeapBytes + "}";
+  }
+
+}
@@ -0,0 +1,37 @@
+package io.github.rcarlosdasilva.kits.cache;
+
+/**
+ * 缓存统计的JMX接口，开启recordStats的cache容器会以
+ * io.github.rcarlosdasilva.kits:type=MemoryCache,name=[cache名] 注册到平台MBeanServer
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public interface MemoryCacheStatsMXBean {
+
+  String getName();
+
+  long getHitCount();
+
+  long getMissCount();
+
+  long getRequestCount();
+
+  double getHitRate();
+
+  long getLoadSuccessCount();
+
+  long getLoadExceptionCount();
+
+  double getAverageLoadPenalty();
+
+  long getEvictionCount();
+
+  long getEstimatedSize();
+
+  long getEstimatedWeight();
+
+  long getOffHeapSize();
+
+  long getOffHeapBytes();
+
+}
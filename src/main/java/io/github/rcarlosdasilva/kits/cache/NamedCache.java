@@ -0,0 +1,538 @@
+package io.github.rcarlosdasilva.kits.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Maps;
+import io.github.rcarlosdasilva.kits.cache.MemoryCacheHelper.MemoryCacheConfig;
+import io.github.rcarlosdasilva.kits.cache.OffHeapTier.StoredValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * 命名的cache容器，持有Guava缓存及其配置
+ * <p>
+ * 配置了堆外容量时，读取在堆内未命中会继续查找堆外，命中后提升回堆内。配置了expireAfterWrite时，额外记录每个条目按写入时间计算的过期时间点，
+ * 用于快照中保存剩余存活时间，以及从快照恢复或从堆外提升的条目在读取时按原过期时间失效
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+final class NamedCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(NamedCache.class);
+
+  private static final String JMX_DOMAIN = "io.github.rcarlosdasilva.kits";
+
+  private final String name;
+  private final MemoryCacheConfig config;
+  private final Cache<String, Object> cache;
+  private final OffHeapTier offHeap;
+  private final ConcurrentMap<String, Long> deadlines;
+  private final WeightTracker weights;
+  private final ConcurrentMap<String, CompletableFuture<Object>> loading = Maps
+      .newConcurrentMap();
+  private ObjectName objectName;
+  private Future<?> snapshotTask;
+
+  NamedCache(String name, MemoryCacheConfig config, Cache<String, Object> cache,
+             OffHeapTier offHeap, ConcurrentMap<String, Long> deadlines, WeightTracker weights) {
+    this.name = name;
+    this.config = config;
+    this.cache = cache;
+    this.offHeap = offHeap;
+    this.deadlines = deadlines;
+    this.weights = weights;
+  }
+
+  String getName() {
+    return name;
+  }
+
+  MemoryCacheConfig getConfig() {
+    return config;
+  }
+
+  Cache<String, Object> getCache() {
+    return cache;
+  }
+
+  /**
+   * 获取缓存，LoadingCache不存在时使用配置的loader加载.
+   *
+   * @param key key
+   * @return 值
+   * @throws ExecutionException loader异常
+   */
+  Object get(String key) throws ExecutionException {
+    expireIfDue(key);
+    if (cache instanceof LoadingCache) {
+      return ((LoadingCache<String, Object>) cache).get(key);
+    }
+    return getIfPresent(key);
+  }
+
+  Object getIfPresent(String key) {
+    if (expireIfDue(key)) {
+      return null;
+    }
+
+    Object value = cache.getIfPresent(key);
+    if (value == null && offHeap != null) {
+      value = promote(key);
+    }
+    return value;
+  }
+
+  Object get(final String key, final Callable<?> loader) throws ExecutionException {
+    expireIfDue(key);
+    if (offHeap == null && deadlines == null) {
+      return cache.get(key, loader);
+    }
+
+    return cache.get(key, new Callable<Object>() {
+
+      @Override
+      public Object call() throws Exception {
+        return load(key, loader, offHeap, deadlines, expireAfterWriteMillis());
+      }
+
+    });
+  }
+
+  Map<String, Object> getAllPresent(Iterable<String> keys) {
+    if (deadlines != null) {
+      for (String key : keys) {
+        expireIfDue(key);
+      }
+    }
+
+    Map<String, Object> present = cache.getAllPresent(keys);
+    if (offHeap == null) {
+      return present;
+    }
+
+    Map<String, Object> result = Maps.newLinkedHashMap(present);
+    for (String key : keys) {
+      if (!result.containsKey(key)) {
+        Object value = promote(key);
+        if (value != null) {
+          result.put(key, value);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * 异步获取缓存，不存在时使用loader异步加载.
+   * <p>
+   * 同一个key正在加载时返回同一个future；加载成功后写入缓存，失败、超时或结果为null时不缓存，且立即从进行中移除，下次获取会重新加载。
+   * 超时后会尝试取消loader返回的future
+   *
+   * @param key          key
+   * @param loader       异步加载器
+   * @param timeoutNanos 加载超时，小于等于0不限制
+   * @param scheduler    超时调度
+   * @return 共享的加载结果
+   */
+  CompletableFuture<Object> getAsync(final String key, AsyncCacheLoader<?> loader,
+                                     long timeoutNanos, ScheduledExecutorService scheduler) {
+    Object value = getIfPresent(key);
+    if (value != null) {
+      return CompletableFuture.completedFuture(value);
+    }
+
+    final CompletableFuture<Object> future = new CompletableFuture<Object>();
+    CompletableFuture<Object> existing = loading.putIfAbsent(key, future);
+    if (existing != null) {
+      return existing;
+    }
+    future.whenComplete(new BiConsumer<Object, Throwable>() {
+
+      @Override
+      public void accept(Object result, Throwable ex) {
+        loading.remove(key, future);
+      }
+
+    });
+
+    // 检查与登记之间，其他线程的加载可能已经完成
+    value = getIfPresent(key);
+    if (value != null) {
+      future.complete(value);
+      return future;
+    }
+
+    final CompletableFuture<?> source;
+    try {
+      source = loader.load(key);
+    } catch (Exception ex) {
+      future.completeExceptionally(ex);
+      return future;
+    }
+    if (source == null) {
+      future.completeExceptionally(
+          new InvalidCacheLoadException("AsyncCacheLoader returned null future for key " + key));
+      return future;
+    }
+
+    final AtomicBoolean timedOut = new AtomicBoolean(false);
+    if (timeoutNanos > 0) {
+      final long timeout = timeoutNanos;
+      final Future<?> timer = scheduler.schedule(new Runnable() {
+
+        @Override
+        public void run() {
+          if (!future.isDone() && timedOut.compareAndSet(false, true)) {
+            // 先取消后端调用，调用方收到超时时后端已被取消
+            source.cancel(true);
+            future.completeExceptionally(new TimeoutException(
+                "Async load of key " + key + " timed out after " + timeout + " ns"));
+          }
+        }
+
+      }, timeoutNanos, TimeUnit.NANOSECONDS);
+      future.whenComplete(new BiConsumer<Object, Throwable>() {
+
+        @Override
+        public void accept(Object result, Throwable ex) {
+          timer.cancel(false);
+        }
+
+      });
+    }
+
+    source.whenComplete(new BiConsumer<Object, Throwable>() {
+
+      @Override
+      public void accept(Object result, Throwable ex) {
+        if (timedOut.get()) {
+          return;
+        }
+        if (ex != null) {
+          future.completeExceptionally(ex);
+        } else if (result == null) {
+          future.completeExceptionally(
+              new InvalidCacheLoadException("AsyncCacheLoader returned null for key " + key));
+        } else if (!future.isDone()) {
+          // 先写入缓存再完成，避免完成后到写入前的获取重复加载；已超时的结果丢弃
+          put(key, result);
+          future.complete(result);
+        }
+      }
+
+    });
+    return future;
+  }
+
+  void put(String key, Object value) {
+    if (deadlines != null) {
+      deadlines.put(key, System.currentTimeMillis() + expireAfterWriteMillis());
+    }
+    cache.put(key, value);
+    if (offHeap != null) {
+      offHeap.remove(key);
+    }
+  }
+
+  void putAll(Map<String, ?> values) {
+    if (deadlines != null) {
+      long deadline = System.currentTimeMillis() + expireAfterWriteMillis();
+      for (String key : values.keySet()) {
+        deadlines.put(key, deadline);
+      }
+    }
+    cache.putAll(values);
+    if (offHeap != null) {
+      for (String key : values.keySet()) {
+        offHeap.remove(key);
+      }
+    }
+  }
+
+  void invalidate(String key) {
+    cache.invalidate(key);
+    if (offHeap != null) {
+      offHeap.remove(key);
+    }
+  }
+
+  void invalidateAll(Iterable<String> keys) {
+    cache.invalidateAll(keys);
+    if (offHeap != null) {
+      for (String key : keys) {
+        offHeap.remove(key);
+      }
+    }
+  }
+
+  void invalidateAll() {
+    cache.invalidateAll();
+    if (offHeap != null) {
+      offHeap.clear();
+    }
+  }
+
+  boolean exists(String key) {
+    if (expireIfDue(key)) {
+      return false;
+    }
+    return cache.getIfPresent(key) != null || (offHeap != null && offHeap.contains(key));
+  }
+
+  /**
+   * 放入从快照恢复的条目，保留其原有的过期时间点.
+   *
+   * @param key      key
+   * @param value    值
+   * @param deadline 过期时间点（毫秒时间戳），0为不过期
+   */
+  void restore(String key, Object value, long deadline) {
+    put(key, value);
+    if (deadlines != null && deadline > 0) {
+      deadlines.put(key, deadline);
+    }
+  }
+
+  /**
+   * 条目按写入时间计算的过期时间点，未记录时为null.
+   *
+   * @param key key
+   * @return 毫秒时间戳
+   */
+  Long deadline(String key) {
+    return deadlines == null ? null : deadlines.get(key);
+  }
+
+  OffHeapTier getOffHeap() {
+    return offHeap;
+  }
+
+  Future<?> getSnapshotTask() {
+    return snapshotTask;
+  }
+
+  void setSnapshotTask(Future<?> snapshotTask) {
+    this.snapshotTask = snapshotTask;
+  }
+
+  private long expireAfterWriteMillis() {
+    return config.getTimeUnit().toMillis(config.getExpireAfterWrite());
+  }
+
+  /**
+   * 加载堆内不存在的值，先尝试从堆外提升，并记录值写入堆内后按写入时间计算的过期时间点.
+   * <p>
+   * 从堆外提升的值沿用原有的过期时间点，新加载的值从现在开始计算
+   *
+   * @param key                    key
+   * @param loader                 加载器
+   * @param offHeap                堆外缓存层，可为null
+   * @param deadlines              过期时间点，可为null
+   * @param expireAfterWriteMillis 按写入时间计算的存活时间
+   * @return 值
+   * @throws Exception 加载器异常
+   */
+  static Object load(String key, Callable<?> loader, OffHeapTier offHeap,
+                     ConcurrentMap<String, Long> deadlines, long expireAfterWriteMillis)
+      throws Exception {
+    StoredValue stored = offHeap == null ? null : offHeap.take(key);
+    Object value = stored == null ? null : stored.getValue();
+    long deadline = 0;
+    if (value != null) {
+      deadline = stored.getWriteDeadline();
+    } else {
+      value = loader.call();
+    }
+
+    if (value != null && deadlines != null) {
+      deadlines.put(key,
+          deadline > 0 ? deadline : System.currentTimeMillis() + expireAfterWriteMillis);
+    }
+    return value;
+  }
+
+  /**
+   * 已超过记录的过期时间点的条目立即失效.
+   *
+   * @param key key
+   * @return 是否已失效
+   */
+  private boolean expireIfDue(String key) {
+    if (deadlines == null) {
+      return false;
+    }
+
+    Long deadline = deadlines.get(key);
+    if (deadline != null && deadline <= System.currentTimeMillis()) {
+      invalidate(key);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * 从堆外取出并放回堆内，堆内已有新值时以堆内为准；放回的值沿用降级前按写入时间计算的过期时间点.
+   *
+   * @param key key
+   * @return 值
+   */
+  private Object promote(String key) {
+    StoredValue stored = offHeap.take(key);
+    Object value = stored == null ? null : stored.getValue();
+    if (value == null) {
+      return null;
+    }
+    Object existing = cache.asMap().putIfAbsent(key, value);
+    if (existing != null) {
+      return existing;
+    }
+    if (deadlines != null) {
+      deadlines.put(key, stored.getWriteDeadline() > 0 ? stored.getWriteDeadline()
+          : System.currentTimeMillis() + expireAfterWriteMillis());
+    }
+    return value;
+  }
+
+  /**
+   * 生成统计快照，权重为写入与移除时累计的总权重，只在配置了maximumWeight时统计.
+   *
+   * @return {@link MemoryCacheStats}
+   */
+  MemoryCacheStats stats() {
+    return new MemoryCacheStats(name, config.isRecordStats(), cache.stats(), cache.size(),
+        estimatedWeight(), offHeap == null ? 0 : offHeap.size(),
+        offHeap == null ? 0 : offHeap.usedBytes());
+  }
+
+  private long estimatedWeight() {
+    return weights == null ? -1 : weights.total();
+  }
+
+  /**
+   * 开启了recordStats时注册JMX MBean.
+   */
+  void register() {
+    if (!config.isRecordStats()) {
+      return;
+    }
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      ObjectName objectName = new ObjectName(
+          JMX_DOMAIN + ":type=MemoryCache,name=" + ObjectName.quote(name));
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+      server.registerMBean(new StatsMXBean(), objectName);
+      this.objectName = objectName;
+    } catch (JMException ex) {
+      LOGGER.warn("[MemoryCache] - 注册JMX统计失败，cache: " + name, ex);
+    }
+  }
+
+  /**
+   * 注销JMX MBean.
+   */
+  void unregister() {
+    if (objectName == null) {
+      return;
+    }
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+    } catch (JMException ex) {
+      LOGGER.warn("[MemoryCache] - 注销JMX统计失败，cache: " + name, ex);
+    }
+    objectName = null;
+  }
+
+  private class StatsMXBean implements MemoryCacheStatsMXBean {
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public long getHitCount() {
+      return cache.stats().hitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+      return cache.stats().missCount();
+    }
+
+    @Override
+    public long getRequestCount() {
+      return cache.stats().requestCount();
+    }
+
+    @Override
+    public double getHitRate() {
+      return cache.stats().hitRate();
+    }
+
+    @Override
+    public long getLoadSuccessCount() {
+      return cache.stats().loadSuccessCount();
+    }
+
+    @Override
+    public long getLoadExceptionCount() {
+      return cache.stats().loadExceptionCount();
+    }
+
+    @Override
+    public double getAverageLoadPenalty() {
+      return cache.stats().averageLoadPenalty();
+    }
+
+    @Override
+    public long getEvictionCount() {
+      return cache.stats().evictionCount();
+    }
+
+    @Override
+    public long getEstimatedSize() {
+      return cache.size();
+    }
+
+    @Override
+    public long getEstimatedWeight() {
+      return estimatedWeight();
+    }
+
+    @Override
+    public long getOffHeapSize() {
+      return offHeap == null ? 0 : offHeap.size();
+    }
+
+    @Override
+    public long getOffHeapBytes() {
+      return offHeap == null ? 0 : offHeap.usedBytes();
+    }
+
+  }
+
+}
@@ -0,0 +1,184 @@
+package io.github.rcarlosdasilva.kits.cache;
+
+import com.google.common.cache.Weigher;
+import com.google.common.collect.Lists;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按估算的内存占用（字节）计算缓存权重
+ * <p>
+ * byte[]、String、基本类型包装类按JVM对象布局估算；Collection和Map累加其元素；其他对象按字段布局估算：
+ * 对象头加各字段的大小，再累加引用字段指向的对象。每个类的字段布局只解析一次，同一个对象只计算一次，
+ * 超过{@value #MAX_DEPTH}层或无法访问的字段只计引用本身
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public class ObjectSizeWeigher implements Weigher<String, Object> {
+
+  private static final ObjectSizeWeigher INSTANCE = new ObjectSizeWeigher();
+
+  private static final int OBJECT_HEADER = 16;
+  private static final int ARRAY_HEADER = 16;
+  private static final int REFERENCE = 8;
+  private static final int STRING_SHALLOW = 24;
+  private static final int ENTRY_OVERHEAD = 32;
+  private static final int MAX_DEPTH = 8;
+
+  private static final ClassValue<Layout> LAYOUTS = new ClassValue<Layout>() {
+
+    @Override
+    protected Layout computeValue(Class<?> type) {
+      return new Layout(type);
+    }
+
+  };
+
+  public static ObjectSizeWeigher getInstance() {
+    return INSTANCE;
+  }
+
+  @Override
+  public int weigh(String key, Object value) {
+    long weight = ENTRY_OVERHEAD + estimate(key) + estimate(value);
+    return (int) Math.min(weight, Integer.MAX_VALUE);
+  }
+
+  /**
+   * 估算对象占用的字节数.
+   *
+   * @param obj 对象
+   * @return 字节数
+   */
+  public long estimate(Object obj) {
+    return estimate(obj, 0, null);
+  }
+
+  private long estimate(Object obj, int depth, Map<Object, Boolean> visited) {
+    if (obj == null) {
+      return 0;
+    }
+    if (obj instanceof byte[]) {
+      return ARRAY_HEADER + ((byte[]) obj).length;
+    }
+    if (obj instanceof String) {
+      return STRING_SHALLOW + ARRAY_HEADER + 2L * ((String) obj).length();
+    }
+    if (obj instanceof char[]) {
+      return ARRAY_HEADER + 2L * ((char[]) obj).length;
+    }
+    if (obj instanceof int[]) {
+      return ARRAY_HEADER + 4L * ((int[]) obj).length;
+    }
+    if (obj instanceof long[]) {
+      return ARRAY_HEADER + 8L * ((long[]) obj).length;
+    }
+    if (obj instanceof Number || obj instanceof Boolean || obj instanceof Character) {
+      return OBJECT_HEADER + 8;
+    }
+    if (obj.getClass().isArray() && obj.getClass().getComponentType().isPrimitive()) {
+      return ARRAY_HEADER
+          + (long) Array.getLength(obj) * sizeOf(obj.getClass().getComponentType());
+    }
+    if (depth >= MAX_DEPTH) {
+      return OBJECT_HEADER;
+    }
+
+    if (visited == null) {
+      visited = new IdentityHashMap<Object, Boolean>();
+    }
+    if (visited.put(obj, Boolean.TRUE) != null) {
+      return 0;
+    }
+    if (obj instanceof Collection) {
+      long size = OBJECT_HEADER + ARRAY_HEADER;
+      for (Object element : (Collection<?>) obj) {
+        size += REFERENCE + estimate(element, depth + 1, visited);
+      }
+      return size;
+    }
+    if (obj instanceof Map) {
+      long size = OBJECT_HEADER + ARRAY_HEADER;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) obj).entrySet()) {
+        size += ENTRY_OVERHEAD + estimate(entry.getKey(), depth + 1, visited)
+            + estimate(entry.getValue(), depth + 1, visited);
+      }
+      return size;
+    }
+    if (obj instanceof Object[]) {
+      long size = ARRAY_HEADER;
+      for (Object element : (Object[]) obj) {
+        size += REFERENCE + estimate(element, depth + 1, visited);
+      }
+      return size;
+    }
+
+    Layout layout = LAYOUTS.get(obj.getClass());
+    long size = layout.shallowSize;
+    for (Field field : layout.references) {
+      try {
+        size += estimate(field.get(obj), depth + 1, visited);
+      } catch (IllegalAccessException ex) {
+        // 只计引用本身，已包含在shallowSize中
+      }
+    }
+    return size;
+  }
+
+  private static int sizeOf(Class<?> type) {
+    if (type == long.class || type == double.class) {
+      return 8;
+    }
+    if (type == int.class || type == float.class) {
+      return 4;
+    }
+    if (type == short.class || type == char.class) {
+      return 2;
+    }
+    if (type == byte.class || type == boolean.class) {
+      return 1;
+    }
+    return REFERENCE;
+  }
+
+  /**
+   * 类的字段布局：对象本身的大小（按8字节对齐）与可以读取的引用字段
+   */
+  private static final class Layout {
+
+    private final long shallowSize;
+    private final Field[] references;
+
+    Layout(Class<?> type) {
+      long size = OBJECT_HEADER;
+      List<Field> fields = Lists.newArrayList();
+      for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+        for (Field field : c.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers())) {
+            continue;
+          }
+          size += sizeOf(field.getType());
+          if (field.getType().isPrimitive()) {
+            continue;
+          }
+          try {
+            field.setAccessible(true);
+            fields.add(field);
+          } catch (RuntimeException ex) {
+            // 模块或SecurityManager不允许访问时只计引用本身
+          }
+        }
+      }
+      this.shallowSize = (size + 7) / 8 * 8;
+      this.references = fields.toArray(new Field[fields.size()]);
+    }
+
+  }
+
+}
@@ -0,0 +1,370 @@
+package io.github.rcarlosdasilva.kits.cache;
+
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 堆外缓存层
+ * <p>
+ * 堆内缓存因容量淘汰的值被序列化后写入堆外的direct ByteBuffer，堆内只保留key到偏移量的索引。堆外由多个固定大小的slab组成环形日志，
+ * 写满当前slab后回收下一个slab，其中仍存活的即是最早写入的条目。命中的条目会从堆外移除并提升回堆内，
+ * 所以堆外条目只会被读取一次，按写入顺序回收即为LRU
+ * <p>
+ * 条目按写入时间计算的过期时间点在降级时保留，提升回堆内时由调用方继续沿用，不会因降级或提升重新计算存活时间
+ * <p>
+ * byte[]直接存储，其他值需要实现Serializable，无法序列化或大于一个slab的值会被丢弃
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+final class OffHeapTier {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapTier.class);
+
+  static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+  private static final int MIN_SLAB_COUNT = 2;
+
+  private final int slabSize;
+  private final ByteBuffer[] slabs;
+  private final List<List<String>> slabKeys;
+  private final ConcurrentMap<String, Slot> index = Maps.newConcurrentMap();
+  private final long expireAfterAccessNanos;
+  private int current = 0;
+  private int position = 0;
+  private long usedBytes = 0;
+  private long evictionCount = 0;
+
+  /**
+   * 构造函数.
+   *
+   * @param capacity               堆外容量，字节
+   * @param expireAfterAccessNanos 降级到堆外的条目按访问时间计算的存活时间，从降级时开始计算，小于等于0不过期
+   */
+  OffHeapTier(long capacity, long expireAfterAccessNanos) {
+    this.slabSize = (int) Math.max(1, Math.min(DEFAULT_SLAB_SIZE, capacity / MIN_SLAB_COUNT));
+    int count = (int) Math.max(MIN_SLAB_COUNT, capacity / slabSize);
+    this.slabs = new ByteBuffer[count];
+    this.slabKeys = Lists.newArrayListWithCapacity(count);
+    for (int i = 0; i < count; i++) {
+      slabKeys.add(Lists.<String>newArrayList());
+    }
+    this.expireAfterAccessNanos = expireAfterAccessNanos;
+  }
+
+  /**
+   * 因容量被淘汰的条目降级到堆外，已超过按写入时间计算的过期时间点的条目直接丢弃.
+   *
+   * @param notification  堆内缓存的移除通知
+   * @param writeDeadline 按写入时间计算的过期时间点（毫秒时间戳），0为不按写入时间过期
+   */
+  void demote(RemovalNotification<String, Object> notification, long writeDeadline) {
+    if (notification.getCause() != RemovalCause.SIZE || notification.getKey() == null) {
+      return;
+    }
+
+    long nanoNow = System.nanoTime();
+    long expireAt = expireAfterAccessNanos > 0 ? nanoNow + expireAfterAccessNanos : 0;
+    if (writeDeadline > 0) {
+      long remaining = writeDeadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        return;
+      }
+      long writeExpireAt = nanoNow + TimeUnit.MILLISECONDS.toNanos(remaining);
+      if (expireAt == 0 || writeExpireAt - expireAt < 0) {
+        expireAt = writeExpireAt;
+      }
+    }
+
+    Object value = notification.getValue();
+    boolean raw = value instanceof byte[];
+    byte[] data = raw ? (byte[]) value : serialize(value);
+    if (data != null) {
+      put(notification.getKey(), data, raw, expireAt, writeDeadline);
+    }
+  }
+
+  /**
+   * 写入堆外.
+   *
+   * @param key           key
+   * @param data          值的字节
+   * @param raw           值本身即为byte[]，未经过序列化
+   * @param expireAt      过期时间点（System.nanoTime），0为不过期
+   * @param writeDeadline 按写入时间计算的过期时间点（毫秒时间戳），0为不按写入时间过期
+   * @return 是否写入
+   */
+  synchronized boolean put(String key, byte[] data, boolean raw, long expireAt,
+                           long writeDeadline) {
+    if (data.length > slabSize) {
+      return false;
+    }
+
+    if (position + data.length > slabSize) {
+      advance();
+    }
+    ByteBuffer buffer = slab(current).duplicate();
+    buffer.position(position);
+    buffer.put(data);
+
+    Slot previous = index.put(key,
+        new Slot(current, position, data.length, raw, expireAt, writeDeadline));
+    if (previous != null) {
+      usedBytes -= previous.length;
+    }
+    usedBytes += data.length;
+    slabKeys.get(current).add(key);
+    position += data.length;
+    return true;
+  }
+
+  /**
+   * 从堆外取出并移除.
+   *
+   * @param key key
+   * @return {@link StoredValue}，不存在或已过期时为null
+   */
+  StoredValue take(String key) {
+    if (!index.containsKey(key)) {
+      return null;
+    }
+
+    synchronized (this) {
+      Slot slot = index.remove(key);
+      if (slot == null) {
+        return null;
+      }
+      usedBytes -= slot.length;
+      if (slot.isExpired()) {
+        return null;
+      }
+      return slot.read(slabs[slot.slab]);
+    }
+  }
+
+  /**
+   * 读取堆外条目的原始字节，不移除，用于生成快照.
+   *
+   * @param key key
+   * @return {@link StoredValue}，不存在或已过期时为null
+   */
+  StoredValue peek(String key) {
+    if (!index.containsKey(key)) {
+      return null;
+    }
+
+    synchronized (this) {
+      Slot slot = index.get(key);
+      if (slot == null || slot.isExpired()) {
+        return null;
+      }
+      return slot.read(slabs[slot.slab]);
+    }
+  }
+
+  Set<String> keys() {
+    return index.keySet();
+  }
+
+  boolean contains(String key) {
+    Slot slot = index.get(key);
+    return slot != null && !slot.isExpired();
+  }
+
+  void remove(String key) {
+    if (!index.containsKey(key)) {
+      return;
+    }
+
+    synchronized (this) {
+      Slot slot = index.remove(key);
+      if (slot != null) {
+        usedBytes -= slot.length;
+      }
+    }
+  }
+
+  synchronized void clear() {
+    index.clear();
+    for (List<String> keys : slabKeys) {
+      keys.clear();
+    }
+    current = 0;
+    position = 0;
+    usedBytes = 0;
+  }
+
+  long size() {
+    return index.size();
+  }
+
+  synchronized long usedBytes() {
+    return usedBytes;
+  }
+
+  synchronized long evictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * 切换到下一个slab，回收其中仍存活的条目.
+   */
+  private void advance() {
+    current = (current + 1) % slabs.length;
+    position = 0;
+
+    List<String> keys = slabKeys.get(current);
+    for (String key : keys) {
+      Slot slot = index.get(key);
+      if (slot != null && slot.slab == current && index.remove(key, slot)) {
+        usedBytes -= slot.length;
+        evictionCount++;
+      }
+    }
+    keys.clear();
+  }
+
+  private ByteBuffer slab(int i) {
+    if (slabs[i] == null) {
+      slabs[i] = ByteBuffer.allocateDirect(slabSize);
+    }
+    return slabs[i];
+  }
+
+  /**
+   * 序列化值，在缓存的移除监听中调用，失败时只记录日志.
+   *
+   * @param value 值
+   * @return 字节，无法序列化时为null
+   */
+  static byte[] serialize(Object value) {
+    if (!(value instanceof Serializable)) {
+      return null;
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(value);
+    } catch (IOException ex) {
+      LOGGER.debug("[MemoryCache] - 序列化缓存值失败，type: " + value.getClass().getName(), ex);
+      return null;
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * 反序列化值，失败时只记录日志.
+   *
+   * @param data 字节
+   * @return 值，无法反序列化时为null
+   */
+  static Object deserialize(byte[] data) {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+      return in.readObject();
+    } catch (IOException | ClassNotFoundException ex) {
+      LOGGER.debug("[MemoryCache] - 反序列化缓存值失败", ex);
+      return null;
+    }
+  }
+
+  /**
+   * 堆外条目的原始内容
+   */
+  static final class StoredValue {
+
+    private final byte[] data;
+    private final boolean raw;
+    private final long expireAt;
+    private final long writeDeadline;
+
+    StoredValue(byte[] data, boolean raw, long expireAt, long writeDeadline) {
+      this.data = data;
+      this.raw = raw;
+      this.expireAt = expireAt;
+      this.writeDeadline = writeDeadline;
+    }
+
+    /**
+     * 还原后的值.
+     *
+     * @return 值，无法反序列化时为null
+     */
+    Object getValue() {
+      return raw ? data : deserialize(data);
+    }
+
+    byte[] getData() {
+      return data;
+    }
+
+    boolean isRaw() {
+      return raw;
+    }
+
+    /**
+     * 过期时间点.
+     *
+     * @return System.nanoTime，0为不过期
+     */
+    long getExpireAt() {
+      return expireAt;
+    }
+
+    /**
+     * 按写入时间计算的过期时间点.
+     *
+     * @return 毫秒时间戳，0为不按写入时间过期
+     */
+    long getWriteDeadline() {
+      return writeDeadline;
+    }
+
+  }
+
+  private static final class Slot {
+
+    private final int slab;
+    private final int offset;
+    private final int length;
+    private final boolean raw;
+    private final long expireAt;
+    private final long writeDeadline;
+
+    Slot(int slab, int offset, int length, boolean raw, long expireAt, long writeDeadline) {
+      this.slab = slab;
+      this.offset = offset;
+      this.length = length;
+      this.raw = raw;
+      this.expireAt = expireAt;
+      this.writeDeadline = writeDeadline;
+    }
+
+    boolean isExpired() {
+      return expireAt != 0 && System.nanoTime() - expireAt >= 0;
+    }
+
+    StoredValue read(ByteBuffer slab) {
+      byte[] data = new byte[length];
+      ByteBuffer buffer = slab.duplicate();
+      buffer.position(offset);
+      buffer.get(data);
+      return new StoredValue(data, raw, expireAt, writeDeadline);
+    }
+
+  }
+
+}
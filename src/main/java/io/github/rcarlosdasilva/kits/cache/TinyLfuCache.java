@@ -0,0 +1,727 @@
+package io.github.rcarlosdasilva.kits.cache;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.AbstractCache;
+import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.util.AbstractMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 使用W-TinyLFU淘汰策略的缓存
+ * <p>
+ * 新条目先进入容量为1%的窗口LRU，从窗口淘汰的条目作为候选者，与主区域（分段LRU，probation + protected）中最久未使用的条目比较访问频率，
+ * 频率更高者留下。访问频率由{@link FrequencySketch}估算并随时间衰减，因此一次性扫描大量冷数据不会冲掉热点数据。
+ * <p>
+ * 只支持按条目数限制容量，过期在读取时检查。读取不加锁，直接查询并发的数据表，访问记录写入有损的环形缓冲区，
+ * 缓冲区满时尝试获取锁批量更新频率与LRU顺序，竞争激烈或缓冲区已满时丢弃记录；写入在同一把锁内先清空缓冲区再修改，
+ * 淘汰通知在锁外发送
+ *
+ * @param <K> key类型
+ * @param <V> value类型
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+final class TinyLfuCache<K, V> extends AbstractCache<K, V> {
+
+  private static final double WINDOW_RATIO = 0.01;
+  private static final double PROTECTED_RATIO = 0.8;
+
+  private final long maximumSize;
+  private final long windowMaximum;
+  private final long protectedMaximum;
+  private final long expireAfterWriteNanos;
+  private final long expireAfterAccessNanos;
+  private final RemovalListener<K, V> removalListener;
+  private final StatsCounter statsCounter;
+
+  private final ConcurrentMap<K, Node<K, V>> data = Maps.newConcurrentMap();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final ReadBuffer readBuffer = new ReadBuffer();
+  private final FrequencySketch sketch;
+  private final AccessOrder<K, V> window = new AccessOrder<K, V>();
+  private final AccessOrder<K, V> probation = new AccessOrder<K, V>();
+  private final AccessOrder<K, V> protect = new AccessOrder<K, V>();
+  private final ConcurrentMap<K, SettableFuture<V>> loading = Maps.newConcurrentMap();
+  private ConcurrentMap<K, V> asMap;
+
+  /**
+   * 构造函数.
+   *
+   * @param maximumSize            最大条目数
+   * @param expireAfterWriteNanos  写入后过期时间，小于等于0不过期
+   * @param expireAfterAccessNanos 访问后过期时间，小于等于0不过期
+   * @param recordStats            是否记录统计
+   * @param removalListener        移除监听，可为null
+   */
+  TinyLfuCache(long maximumSize, long expireAfterWriteNanos, long expireAfterAccessNanos,
+               boolean recordStats, RemovalListener<K, V> removalListener) {
+    Preconditions.checkArgument(maximumSize > 0, "TinyLFU cache requires maximumSize > 0");
+
+    this.maximumSize = maximumSize;
+    this.windowMaximum = Math.max(1, (long) (maximumSize * WINDOW_RATIO));
+    this.protectedMaximum = (long) ((maximumSize - windowMaximum) * PROTECTED_RATIO);
+    this.expireAfterWriteNanos = expireAfterWriteNanos;
+    this.expireAfterAccessNanos = expireAfterAccessNanos;
+    this.removalListener = removalListener;
+    this.statsCounter = recordStats ? new SimpleStatsCounter() : null;
+    this.sketch = new FrequencySketch(maximumSize);
+  }
+
+  @Override
+  public V getIfPresent(Object key) {
+    Node<K, V> node = data.get(key);
+    V value = null;
+    if (node != null) {
+      long now = System.nanoTime();
+      if (isExpired(node, now)) {
+        expire(node);
+      } else {
+        node.accessTime = now;
+        value = node.value;
+      }
+    }
+
+    if (statsCounter != null) {
+      if (value == null) {
+        statsCounter.recordMisses(1);
+      } else {
+        statsCounter.recordHits(1);
+      }
+    }
+    if (readBuffer.offer(key)) {
+      tryDrain();
+    }
+    return value;
+  }
+
+  @Override
+  public V get(K key, Callable<? extends V> loader) throws ExecutionException {
+    Preconditions.checkNotNull(key);
+    Preconditions.checkNotNull(loader);
+
+    V value = getIfPresent(key);
+    if (value != null) {
+      return value;
+    }
+
+    SettableFuture<V> future = SettableFuture.create();
+    SettableFuture<V> existing = loading.putIfAbsent(key, future);
+    if (existing != null) {
+      try {
+        return Uninterruptibles.getUninterruptibly(existing);
+      } catch (ExecutionException ex) {
+        throw rethrow(ex.getCause());
+      }
+    }
+
+    try {
+      value = peek(key);
+      if (value == null) {
+        value = load(key, loader);
+        put(key, value);
+      }
+      future.set(value);
+      return value;
+    } catch (Throwable ex) {
+      future.setException(ex);
+      throw rethrow(ex);
+    } finally {
+      loading.remove(key, future);
+    }
+  }
+
+  @Override
+  public void put(K key, V value) {
+    Preconditions.checkNotNull(key);
+    Preconditions.checkNotNull(value);
+
+    List<RemovalNotification<K, V>> removed = Lists.newArrayListWithCapacity(0);
+    lock.lock();
+    try {
+      put(key, value, false, removed);
+    } finally {
+      lock.unlock();
+    }
+    notifyRemoval(removed);
+  }
+
+  @Override
+  public void invalidate(Object key) {
+    remove(key, null);
+  }
+
+  @Override
+  public void invalidateAll() {
+    List<RemovalNotification<K, V>> removed = Lists.newArrayList();
+    lock.lock();
+    try {
+      drainReadBuffer();
+      for (Node<K, V> node : data.values()) {
+        removed.add(RemovalNotification.create(node.key, node.value, RemovalCause.EXPLICIT));
+      }
+      data.clear();
+      window.clear();
+      probation.clear();
+      protect.clear();
+    } finally {
+      lock.unlock();
+    }
+    notifyRemoval(removed);
+  }
+
+  @Override
+  public long size() {
+    return data.size();
+  }
+
+  @Override
+  public CacheStats stats() {
+    return statsCounter == null ? new CacheStats(0, 0, 0, 0, 0, 0) : statsCounter.snapshot();
+  }
+
+  @Override
+  public void cleanUp() {
+    List<RemovalNotification<K, V>> removed = Lists.newArrayList();
+    lock.lock();
+    try {
+      drainReadBuffer();
+      long now = System.nanoTime();
+      for (Node<K, V> node : Lists.newArrayList(data.values())) {
+        if (isExpired(node, now)) {
+          unlink(node);
+          removed.add(RemovalNotification.create(node.key, node.value, RemovalCause.EXPIRED));
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    notifyRemoval(removed);
+  }
+
+  @Override
+  public ConcurrentMap<K, V> asMap() {
+    if (asMap == null) {
+      asMap = new AsMapView();
+    }
+    return asMap;
+  }
+
+  private V load(K key, Callable<? extends V> loader) throws Exception {
+    long start = System.nanoTime();
+    V value;
+    try {
+      value = loader.call();
+    } catch (Exception | Error ex) {
+      if (statsCounter != null) {
+        statsCounter.recordLoadException(System.nanoTime() - start);
+      }
+      throw ex;
+    }
+
+    if (value == null) {
+      if (statsCounter != null) {
+        statsCounter.recordLoadException(System.nanoTime() - start);
+      }
+      throw new InvalidCacheLoadException("CacheLoader returned null for key " + key + ".");
+    }
+    if (statsCounter != null) {
+      statsCounter.recordLoadSuccess(System.nanoTime() - start);
+    }
+    return value;
+  }
+
+  /**
+   * 读取但不记录访问.
+   *
+   * @param key key
+   * @return 值
+   */
+  private V peek(Object key) {
+    Node<K, V> node = data.get(key);
+    return node == null || isExpired(node, System.nanoTime()) ? null : node.value;
+  }
+
+  /**
+   * 写入，需要持有锁.
+   *
+   * @param key          key
+   * @param value        值
+   * @param onlyIfAbsent 只在不存在时写入
+   * @param removed      收集移除通知
+   * @return 原值
+   */
+  private V put(K key, V value, boolean onlyIfAbsent, List<RemovalNotification<K, V>> removed) {
+    drainReadBuffer();
+    long now = System.nanoTime();
+    sketch.increment(key);
+
+    Node<K, V> node = data.get(key);
+    if (node != null && isExpired(node, now)) {
+      unlink(node);
+      removed.add(RemovalNotification.create(node.key, node.value, RemovalCause.EXPIRED));
+      node = null;
+    }
+
+    if (node != null) {
+      V previous = node.value;
+      if (!onlyIfAbsent) {
+        node.value = value;
+        node.writeTime = now;
+        removed.add(RemovalNotification.create(key, previous, RemovalCause.REPLACED));
+      }
+      onAccess(node, now);
+      return previous;
+    }
+
+    node = new Node<K, V>(key, value, now);
+    data.put(key, node);
+    node.queue = Node.WINDOW;
+    window.addLast(node);
+    evict(removed);
+    return null;
+  }
+
+  private V remove(Object key, Object expected) {
+    Node<K, V> node;
+    RemovalCause cause;
+    lock.lock();
+    try {
+      drainReadBuffer();
+      node = data.get(key);
+      if (node == null || (expected != null && !expected.equals(node.value))) {
+        return null;
+      }
+
+      unlink(node);
+      cause = isExpired(node, System.nanoTime()) ? RemovalCause.EXPIRED : RemovalCause.EXPLICIT;
+    } finally {
+      lock.unlock();
+    }
+
+    if (removalListener != null) {
+      removalListener.onRemoval(RemovalNotification.create(node.key, node.value, cause));
+    }
+    return cause == RemovalCause.EXPIRED ? null : node.value;
+  }
+
+  /**
+   * 移除读取时发现已过期的条目，条目已被替换或移除时不处理.
+   *
+   * @param node 条目
+   */
+  private void expire(Node<K, V> node) {
+    lock.lock();
+    try {
+      if (data.get(node.key) != node || !isExpired(node, System.nanoTime())) {
+        return;
+      }
+      unlink(node);
+    } finally {
+      lock.unlock();
+    }
+
+    if (removalListener != null) {
+      removalListener.onRemoval(
+          RemovalNotification.create(node.key, node.value, RemovalCause.EXPIRED));
+    }
+  }
+
+  /**
+   * 锁空闲时清空读缓冲区，锁被占用时由持有者或之后的操作处理.
+   */
+  private void tryDrain() {
+    if (lock.tryLock()) {
+      try {
+        drainReadBuffer();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * 按读取顺序累加频率并调整LRU顺序，需要持有锁.
+   */
+  private void drainReadBuffer() {
+    Object key;
+    while ((key = readBuffer.poll()) != null) {
+      sketch.increment(key);
+      Node<K, V> node = data.get(key);
+      if (node != null) {
+        reorder(node);
+      }
+    }
+  }
+
+  private void onAccess(Node<K, V> node, long now) {
+    node.accessTime = now;
+    reorder(node);
+  }
+
+  /**
+   * 命中后调整位置：窗口和protected内移到队尾，probation中的条目晋升到protected.
+   *
+   * @param node 条目
+   */
+  private void reorder(Node<K, V> node) {
+    if (node.queue == Node.WINDOW) {
+      window.moveToBack(node);
+    } else if (node.queue == Node.PROTECTED) {
+      protect.moveToBack(node);
+    } else {
+      probation.remove(node);
+      node.queue = Node.PROTECTED;
+      protect.addLast(node);
+      if (protect.size() > protectedMaximum) {
+        Node<K, V> demoted = protect.pollFirst();
+        demoted.queue = Node.PROBATION;
+        probation.addLast(demoted);
+      }
+    }
+  }
+
+  /**
+   * 窗口溢出的条目进入probation，总数超出时候选者与主区域的淘汰者按频率决定去留.
+   *
+   * @param removed 收集移除通知
+   */
+  private void evict(List<RemovalNotification<K, V>> removed) {
+    while (window.size() > windowMaximum) {
+      Node<K, V> candidate = window.pollFirst();
+      candidate.queue = Node.PROBATION;
+      probation.addLast(candidate);
+      if (data.size() <= maximumSize) {
+        continue;
+      }
+
+      Node<K, V> victim = probation.peekFirst();
+      if (victim == candidate) {
+        victim = protect.peekFirst();
+      }
+      Node<K, V> evicted = victim == null || sketch.frequency(candidate.key) <= sketch
+          .frequency(victim.key) ? candidate : victim;
+      evict(evicted, removed);
+    }
+
+    while (data.size() > maximumSize) {
+      Node<K, V> evicted = probation.peekFirst();
+      if (evicted == null) {
+        evicted = protect.peekFirst();
+      }
+      if (evicted == null) {
+        evicted = window.peekFirst();
+      }
+      evict(evicted, removed);
+    }
+  }
+
+  private void evict(Node<K, V> node, List<RemovalNotification<K, V>> removed) {
+    unlink(node);
+    removed.add(RemovalNotification.create(node.key, node.value, RemovalCause.SIZE));
+    if (statsCounter != null) {
+      statsCounter.recordEviction();
+    }
+  }
+
+  private void unlink(Node<K, V> node) {
+    data.remove(node.key);
+    if (node.queue == Node.WINDOW) {
+      window.remove(node);
+    } else if (node.queue == Node.PROBATION) {
+      probation.remove(node);
+    } else {
+      protect.remove(node);
+    }
+  }
+
+  private boolean isExpired(Node<K, V> node, long now) {
+    return (expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos)
+        || (expireAfterAccessNanos > 0 && now - node.accessTime >= expireAfterAccessNanos);
+  }
+
+  private void notifyRemoval(List<RemovalNotification<K, V>> removed) {
+    if (removalListener == null) {
+      return;
+    }
+    for (RemovalNotification<K, V> notification : removed) {
+      removalListener.onRemoval(notification);
+    }
+  }
+
+  private static RuntimeException rethrow(Throwable cause) throws ExecutionException {
+    if (cause instanceof InvalidCacheLoadException) {
+      throw (InvalidCacheLoadException) cause;
+    }
+    if (cause instanceof Error) {
+      throw new ExecutionError((Error) cause);
+    }
+    if (cause instanceof RuntimeException) {
+      throw new UncheckedExecutionException(cause);
+    }
+    throw new ExecutionException(cause);
+  }
+
+  private static final class Node<K, V> {
+
+    static final int WINDOW = 0;
+    static final int PROBATION = 1;
+    static final int PROTECTED = 2;
+
+    private final K key;
+    private volatile V value;
+    private volatile long writeTime;
+    private volatile long accessTime;
+    private int queue;
+    private Node<K, V> prev;
+    private Node<K, V> next;
+
+    Node(K key, V value, long now) {
+      this.key = key;
+      this.value = value;
+      this.writeTime = now;
+      this.accessTime = now;
+    }
+
+  }
+
+  /**
+   * 有损的环形缓冲区，记录读取过的key
+   * <p>
+   * 读取线程通过CAS占用位置后写入，写入失败或缓冲区已满时丢弃；只在持有锁时取出，取到尚未写入完成的位置时停止
+   */
+  private static final class ReadBuffer {
+
+    private static final int SIZE = 128;
+    private static final int MASK = SIZE - 1;
+
+    private final AtomicReferenceArray<Object> buffer = new AtomicReferenceArray<Object>(SIZE);
+    private final AtomicLong writeCounter = new AtomicLong();
+    private volatile long readCounter;
+
+    /**
+     * 记录一次读取.
+     *
+     * @param key key
+     * @return 缓冲区是否已满，需要清空
+     */
+    boolean offer(Object key) {
+      long head = readCounter;
+      long tail = writeCounter.get();
+      if (tail - head >= SIZE) {
+        return true;
+      }
+      if (writeCounter.compareAndSet(tail, tail + 1)) {
+        buffer.lazySet((int) (tail & MASK), key);
+        return tail + 1 - head >= SIZE;
+      }
+      return false;
+    }
+
+    /**
+     * 取出最早的记录，需要持有锁.
+     *
+     * @return key，没有可取的记录时为null
+     */
+    Object poll() {
+      long head = readCounter;
+      if (head == writeCounter.get()) {
+        return null;
+      }
+      int index = (int) (head & MASK);
+      Object key = buffer.get(index);
+      if (key == null) {
+        return null;
+      }
+      buffer.lazySet(index, null);
+      readCounter = head + 1;
+      return key;
+    }
+
+  }
+
+  /**
+   * 侵入式双向链表，队首为最久未访问的条目
+   */
+  private static final class AccessOrder<K, V> {
+
+    private Node<K, V> first;
+    private Node<K, V> last;
+    private long size;
+
+    long size() {
+      return size;
+    }
+
+    Node<K, V> peekFirst() {
+      return first;
+    }
+
+    Node<K, V> pollFirst() {
+      Node<K, V> node = first;
+      if (node != null) {
+        remove(node);
+      }
+      return node;
+    }
+
+    void addLast(Node<K, V> node) {
+      node.prev = last;
+      node.next = null;
+      if (last == null) {
+        first = node;
+      } else {
+        last.next = node;
+      }
+      last = node;
+      size++;
+    }
+
+    void remove(Node<K, V> node) {
+      if (node.prev == null) {
+        first = node.next;
+      } else {
+        node.prev.next = node.next;
+      }
+      if (node.next == null) {
+        last = node.prev;
+      } else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+      size--;
+    }
+
+    void moveToBack(Node<K, V> node) {
+      if (node != last) {
+        remove(node);
+        addLast(node);
+      }
+    }
+
+    void clear() {
+      first = null;
+      last = null;
+      size = 0;
+    }
+
+  }
+
+  /**
+   * {@link #asMap()}视图，读取不记录访问，遍历的是调用时的快照
+   */
+  private final class AsMapView extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+    @Override
+    public V get(Object key) {
+      return peek(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return peek(key) != null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+      return write(key, value, false);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+      return write(key, value, true);
+    }
+
+    @Override
+    public V remove(Object key) {
+      return TinyLfuCache.this.remove(key, null);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+      return value != null && TinyLfuCache.this.remove(key, value) != null;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+      lock.lock();
+      try {
+        if (oldValue == null || !oldValue.equals(peek(key))) {
+          return false;
+        }
+        write(key, newValue, false);
+        return true;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public V replace(K key, V value) {
+      lock.lock();
+      try {
+        return peek(key) == null ? null : write(key, value, false);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public int size() {
+      return (int) Math.min(TinyLfuCache.this.size(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void clear() {
+      invalidateAll();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+      ImmutableSet.Builder<Entry<K, V>> entries = ImmutableSet.builder();
+      long now = System.nanoTime();
+      for (Node<K, V> node : data.values()) {
+        if (!isExpired(node, now)) {
+          entries.add(new SimpleImmutableEntry<K, V>(node.key, node.value));
+        }
+      }
+      return entries.build();
+    }
+
+    private V write(K key, V value, boolean onlyIfAbsent) {
+      Preconditions.checkNotNull(key);
+      Preconditions.checkNotNull(value);
+
+      List<RemovalNotification<K, V>> removed = Lists.newArrayListWithCapacity(0);
+      V previous;
+      lock.lock();
+      try {
+        previous = TinyLfuCache.this.put(key, value, onlyIfAbsent, removed);
+      } finally {
+        lock.unlock();
+      }
+      notifyRemoval(removed);
+      return previous;
+    }
+
+  }
+
+}
@@ -0,0 +1,84 @@
+package io.github.rcarlosdasilva.kits.cache;
+
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.Maps;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 累计cache容器的总权重
+ * <p>
+ * 作为Guava缓存的weigher，每次写入值时记录该key的权重并累加差值；作为移除监听，条目被移除时减去记录的权重，不再重新计算。
+ * 读取总权重不需要遍历条目，值在缓存中被修改时总权重不会随之变化
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+final class WeightTracker implements Weigher<String, Object>, RemovalListener<String, Object> {
+
+  private final Weigher<String, Object> weigher;
+  private final ConcurrentMap<String, Weighed> weighed = Maps.newConcurrentMap();
+  private final AtomicLong total = new AtomicLong();
+
+  WeightTracker(Weigher<String, Object> weigher) {
+    this.weigher = weigher;
+  }
+
+  @Override
+  public int weigh(String key, Object value) {
+    int weight = weigher.weigh(key, value);
+    Weighed previous = weighed.put(key, new Weighed(System.identityHashCode(value), weight));
+    total.addAndGet(previous == null ? weight : weight - previous.weight);
+    return weight;
+  }
+
+  @Override
+  public void onRemoval(RemovalNotification<String, Object> notification) {
+    String key = notification.getKey();
+    // 被替换时新值写入时已扣除了旧值的权重
+    if (key == null || notification.getCause() == RemovalCause.REPLACED) {
+      return;
+    }
+
+    Weighed current = weighed.get(key);
+    if (current == null) {
+      return;
+    }
+    // 值已被回收时无法比对，否则只移除与被移除的值对应的记录，避免误删并发写入的新值
+    Object value = notification.getValue();
+    if (value != null && current.identity != System.identityHashCode(value)) {
+      return;
+    }
+    if (weighed.remove(key, current)) {
+      total.addAndGet(-current.weight);
+    }
+  }
+
+  /**
+   * 当前的总权重.
+   *
+   * @return 总权重
+   */
+  long total() {
+    return Math.max(0, total.get());
+  }
+
+  /**
+   * 写入时记录的值与权重
+   */
+  private static final class Weighed {
+
+    private final int identity;
+    private final int weight;
+
+    Weighed(int identity, int weight) {
+      this.identity = identity;
+      this.weight = weight;
+    }
+
+  }
+
+}
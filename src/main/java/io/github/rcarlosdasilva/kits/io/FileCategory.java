@@ -0,0 +1,35 @@
+package io.github.rcarlosdasilva.kits.io;
+
+/**
+ * 文件分类
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public enum FileCategory {
+
+  /**
+   * 图片.
+   */
+  IMAGE,
+  /**
+   * 音频.
+   */
+  AUDIO,
+  /**
+   * 视频.
+   */
+  VIDEO,
+  /**
+   * 压缩包与磁盘镜像.
+   */
+  ARCHIVE,
+  /**
+   * 文档.
+   */
+  DOCUMENT,
+  /**
+   * 其他，或同一个签名对应多个分类.
+   */
+  OTHER
+
+}
@@ -0,0 +1,146 @@
+package io.github.rcarlosdasilva.kits.io;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * 文件格式定义，由{@link SignatureRegistry}识别
+ * <p>
+ * 一个格式可以有多个签名，符合任意一个即为该格式；一个签名由空白分隔的多个片段组成，所有片段都符合才匹配，
+ * 片段的写法为"偏移量:十六进制"，"??"表示任意字节，例如"0:504B0304 30:6D696D65??"
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public final class FileFormat {
+
+  /**
+   * 无法识别的格式.
+   */
+  public static final FileFormat UNKNOWN = new FileFormat("UNKNOWN", ImmutableList.<String>of(),
+      FileSignatureIndex.DEFAULT_MIME_TYPE, FileCategory.OTHER, ImmutableList.<String>of());
+
+  private static final Splitter SEGMENT_SPLITTER =
+      Splitter.on(CharMatcher.whitespace()).omitEmptyStrings();
+
+  private final String name;
+  private final ImmutableList<String> extensions;
+  private final String mimeType;
+  private final FileCategory category;
+  private final ImmutableList<String> signatures;
+  private final ImmutableList<List<SignatureMatcher.Segment>> compiled;
+
+  /**
+   * 创建格式定义，签名不合法时抛出IllegalArgumentException.
+   *
+   * @param name       名称
+   * @param extensions 扩展名
+   * @param mimeType   MIME类型，为null时为application/octet-stream
+   * @param category   分类，为null时为{@link FileCategory#OTHER}
+   * @param signatures 签名
+   */
+  public FileFormat(String name, List<String> extensions, String mimeType, FileCategory category,
+                    List<String> signatures) {
+    Preconditions.checkArgument(!Strings.isNullOrEmpty(name), "Empty format name");
+    Preconditions.checkNotNull(extensions);
+    Preconditions.checkNotNull(signatures);
+
+    this.name = name;
+    this.extensions = ImmutableList.copyOf(extensions);
+    this.mimeType = Strings.isNullOrEmpty(mimeType) ? FileSignatureIndex.DEFAULT_MIME_TYPE
+        : mimeType;
+    this.category = category == null ? FileCategory.OTHER : category;
+    this.signatures = ImmutableList.copyOf(signatures);
+
+    ImmutableList.Builder<List<SignatureMatcher.Segment>> builder = ImmutableList.builder();
+    for (String signature : this.signatures) {
+      builder.add(parse(signature));
+    }
+    this.compiled = builder.build();
+  }
+
+  /**
+   * 由内置的{@link FileSignatures}创建.
+   *
+   * @param sig {@link FileSignatures}
+   * @return FileFormat
+   */
+  static FileFormat of(FileSignatures sig) {
+    return new FileFormat(sig.name(), ImmutableList.copyOf(sig.getExtensions()),
+        sig.getMimeType(), sig.getCategory(),
+        ImmutableList.of(sig.getPosition() + ":" + sig.getPattern()));
+  }
+
+  private static List<SignatureMatcher.Segment> parse(String signature) {
+    ImmutableList.Builder<SignatureMatcher.Segment> segments = ImmutableList.builder();
+    for (String segment : SEGMENT_SPLITTER.split(signature)) {
+      int colon = segment.indexOf(':');
+      Preconditions.checkArgument(colon > 0, "Invalid signature segment: %s", segment);
+      int position;
+      try {
+        position = Integer.parseInt(segment.substring(0, colon));
+      } catch (NumberFormatException ex) {
+        throw new IllegalArgumentException("Invalid signature offset: " + segment, ex);
+      }
+      segments.add(SignatureMatcher.Segment.parse(position, segment.substring(colon + 1)));
+    }
+    ImmutableList<SignatureMatcher.Segment> result = segments.build();
+    Preconditions.checkArgument(!result.isEmpty(), "Empty signature");
+    return result;
+  }
+
+  List<List<SignatureMatcher.Segment>> getCompiled() {
+    return compiled;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public List<String> getExtensions() {
+    return extensions;
+  }
+
+  public String getMimeType() {
+    return mimeType;
+  }
+
+  public FileCategory getCategory() {
+    return category;
+  }
+
+  public List<String> getSignatures() {
+    return signatures;
+  }
+
+  /**
+   * 是否为扩展名X.
+   *
+   * @param ext X，不区分大小写，可以带"."
+   * @return boolean
+   */
+  public boolean is(String ext) {
+    if (Strings.isNullOrEmpty(ext)) {
+      return false;
+    }
+
+    String key = ext.startsWith(".") ? ext.substring(1) : ext;
+    for (String extension : extensions) {
+      if (key.equalsIgnoreCase(extension)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return "FileFormat{name=" + name + ", extensions=" + extensions + ", mimeType=" + mimeType
+        + ", category=" + category + "}";
+  }
+
+}
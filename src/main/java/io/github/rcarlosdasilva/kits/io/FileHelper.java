@@ -2,14 +2,10 @@ package io.github.rcarlosdasilva.kits.io;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Ordering;
 import io.github.rcarlosdasilva.kits.net.HttpHelper;
 import io.github.rcarlosdasilva.kits.net.http.ContentType;
 import io.github.rcarlosdasilva.kits.net.http.HttpMethod;
 import io.github.rcarlosdasilva.kits.net.http.ResponseDigest;
-import io.github.rcarlosdasilva.kits.string.TextHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,7 +14,13 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * 文件工具
@@ -35,22 +37,31 @@ public class FileHelper {
   private static final String FTP_SCHEME = "ftp";
   private static final FileSignatures NONE_FILE_SIGNATURE = FileSignatures.NON;
 
-  private static final List<FileSignatures> fsCache;
+  private static final SignatureMatcher<FileSignatures> MATCHER;
+  private static final ThreadLocal<byte[]> HEADER_BUFFER = new ThreadLocal<byte[]>() {
 
-  static {
-    List<FileSignatures> temp = Lists.newArrayList(FileSignatures.values());
-    temp.sort(new Ordering<FileSignatures>() {
+    @Override
+    protected byte[] initialValue() {
+      return new byte[MATCHER.getHeaderLength()];
+    }
 
-      @Override
-      public int compare(FileSignatures left, FileSignatures right) {
-        if (left.getPosition() == right.getPosition()) {
-          return right.getPattern().length() - left.getPattern().length();
+  };
+  private static final ThreadLocal<ByteBuffer> DIRECT_HEADER_BUFFER =
+      new ThreadLocal<ByteBuffer>() {
+
+        @Override
+        protected ByteBuffer initialValue() {
+          return ByteBuffer.allocateDirect(MATCHER.getHeaderLength());
         }
-        return left.getPosition() - right.getPosition();
-      }
 
-    });
-    fsCache = ImmutableList.copyOf(temp);
+      };
+
+  static {
+    SignatureMatcher.Builder<FileSignatures> builder = SignatureMatcher.builder();
+    for (FileSignatures sig : FileSignatures.values()) {
+      builder.add(sig.getPosition(), sig.getBytes(), sig);
+    }
+    MATCHER = builder.build();
   }
 
   private FileHelper() {
@@ -83,37 +94,230 @@ public class FileHelper {
     return NONE_FILE_SIGNATURE;
   }
 
+  /**
+   * 按文件头判断文件类型.
+   * <p>
+   * 通过FileChannel按位置只读取需要的文件头字节，读入线程内复用的直接缓冲区，不创建输入流，适合大量文件
+   *
+   * @param path 文件路径
+   * @return {@link FileSignatures}，不是普通文件或无法识别时为{@link FileSignatures#NON}
+   */
+  public static FileSignatures type(Path path) {
+    Preconditions.checkNotNull(path);
+
+    if (!Files.isRegularFile(path)) {
+      return NONE_FILE_SIGNATURE;
+    }
+    return typeOfRegularFile(path);
+  }
+
+  /**
+   * 并行判断目录（包括子目录）下所有普通文件的类型，不跟随符号链接.
+   * <p>
+   * 使用并行度为parallelism的ForkJoinPool遍历与判断，结果按完成的顺序通过返回的{@link FileTypeScan}逐个取得；
+   * 消费不及时时工作线程会等待，不会无限堆积结果。没有遍历完时需要关闭{@link FileTypeScan}以停止工作线程
+   *
+   * @param dir         目录
+   * @param parallelism 并行度
+   * @return {@link FileTypeScan}
+   */
+  public static FileTypeScan typeAll(Path dir, int parallelism) {
+    Preconditions.checkNotNull(dir);
+    Preconditions.checkArgument(Files.isDirectory(dir), "Not a directory: %s", dir);
+    Preconditions.checkArgument(parallelism > 0);
+
+    return new FileTypeScan(dir, parallelism);
+  }
+
+  static FileSignatures typeOfRegularFile(Path path) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = DIRECT_HEADER_BUFFER.get();
+      header.clear();
+      readHeader(channel, header);
+      FileSignatures result = MATCHER.match(header);
+      return result == null ? NONE_FILE_SIGNATURE : result;
+    } catch (NoSuchFileException ex) {
+      LOGGER.debug("找不到文件 - {}", path);
+    } catch (ClosedByInterruptException ex) {
+      // FileTypeScan关闭时中断工作线程
+      LOGGER.debug("读取文件被中断 - {}", path);
+    } catch (SecurityException | IOException ex) {
+      LOGGER.error("", ex);
+    }
+    return NONE_FILE_SIGNATURE;
+  }
+
+  /**
+   * 按文件头判断文件类型.
+   * <p>
+   * 流支持mark时读取后会reset，否则会消耗文件头；需要继续读取完整内容时使用{@link #detect(InputStream)}
+   *
+   * @param stream 输入流
+   * @return {@link FileSignatures}，无法识别时为{@link FileSignatures#NON}
+   */
   public static FileSignatures type(InputStream stream) {
-    int matchedLength = 0;
-    FileSignatures result = NONE_FILE_SIGNATURE;
-    int pos = -1;
-    String hex = "";
-    for (FileSignatures sig : fsCache) {
-      if (sig.getPosition() > pos) {
-        pos = sig.getPosition();
-        try {
-          byte[] bytes = StreamHelper.readBytes(stream,
-              pos + FileSignatures.MAX_PATTERN_CHARACTER_LENGTH / 2);
-          if (bytes.length <= 0) {
-            break;
-          }
-          hex = TextHelper.toHexString(bytes);
-          hex = hex.substring(pos).toUpperCase();
-        } catch (Exception ex) {
-          LOGGER.error("", ex);
-          break;
-        }
+    Preconditions.checkNotNull(stream);
+
+    byte[] header = HEADER_BUFFER.get();
+    try {
+      if (stream.markSupported()) {
+        stream.mark(header.length);
+      }
+      int length = readHeader(stream, header);
+      if (stream.markSupported()) {
+        stream.reset();
       }
+      return type(header, length);
+    } catch (IOException ex) {
+      LOGGER.error("", ex);
+    }
+    return NONE_FILE_SIGNATURE;
+  }
 
-      if (hex.startsWith(sig.getPattern())) {
-        if (sig.getPattern().length() > matchedLength) {
-          matchedLength = sig.getPattern().length();
-          result = sig;
-        }
+  /**
+   * 按文件头判断文件类型，并返回可以继续读取完整内容的流.
+   * <p>
+   * 文件头只读取一次，直接读入返回的流的回退缓冲区，不要求原始流支持mark，适用于Servlet、Socket等输入流
+   *
+   * @param stream 输入流，之后只应通过返回的流读取
+   * @return {@link TypedInputStream}
+   * @throws IOException 读取失败
+   */
+  public static TypedInputStream detect(InputStream stream) throws IOException {
+    Preconditions.checkNotNull(stream);
+
+    return new TypedInputStream(stream, MATCHER);
+  }
+
+  /**
+   * 按文件头判断文件类型.
+   *
+   * @param header 文件头，需要的长度见{@link #headerLength()}，不足时只匹配已有的部分
+   * @param length header中有效的字节数
+   * @return {@link FileSignatures}，无法识别时为{@link FileSignatures#NON}
+   */
+  public static FileSignatures type(byte[] header, int length) {
+    Preconditions.checkNotNull(header);
+    Preconditions.checkArgument(length >= 0 && length <= header.length);
+
+    FileSignatures result = MATCHER.match(header, 0, length);
+    return result == null ? NONE_FILE_SIGNATURE : result;
+  }
+
+  /**
+   * 验证文件头是否符合扩展名，例如上传的文件是否真的是PNG.
+   * <p>
+   * 只比较扩展名对应的签名，只读取这些签名需要的文件头字节；流支持mark时读取后会reset，否则会消耗文件头
+   *
+   * @param stream            输入流
+   * @param expectedExtension 期望的扩展名，不区分大小写，可以带"."
+   * @return 符合扩展名的任意一个签名时为true，未知的扩展名为false
+   */
+  public static boolean verify(InputStream stream, String expectedExtension) {
+    Preconditions.checkNotNull(stream);
+
+    int length = FileSignatureIndex.headerLength(expectedExtension);
+    if (length == 0) {
+      return false;
+    }
+
+    byte[] header = HEADER_BUFFER.get();
+    try {
+      if (stream.markSupported()) {
+        stream.mark(length);
+      }
+      length = readHeader(stream, header, length);
+      if (stream.markSupported()) {
+        stream.reset();
+      }
+      return verify(header, length, expectedExtension);
+    } catch (IOException ex) {
+      LOGGER.error("", ex);
+    }
+    return false;
+  }
+
+  /**
+   * 验证文件头是否符合扩展名.
+   *
+   * @param header            文件头
+   * @param length            header中有效的字节数
+   * @param expectedExtension 期望的扩展名，不区分大小写，可以带"."
+   * @return 符合扩展名的任意一个签名时为true，未知的扩展名为false
+   */
+  public static boolean verify(byte[] header, int length, String expectedExtension) {
+    Preconditions.checkNotNull(header);
+    Preconditions.checkArgument(length >= 0 && length <= header.length);
+
+    for (FileSignatures candidate : FileSignatureIndex.ofExtension(expectedExtension)) {
+      if (candidate.matches(header, length)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 共用的文件签名库，包含内置签名与classpath中的{@link SignatureRegistry#DEFINITION_RESOURCE}，第一次使用时加载.
+   * <p>
+   * 需要识别自定义格式、更长的签名或通配时使用，可以在运行时注册或重新加载
+   *
+   * @return {@link SignatureRegistry}
+   */
+  public static SignatureRegistry registry() {
+    return RegistryHolder.REGISTRY;
+  }
+
+  /**
+   * 判断文件类型需要的文件头字节数.
+   *
+   * @return 字节数
+   */
+  public static int headerLength() {
+    return MATCHER.getHeaderLength();
+  }
+
+  /**
+   * 读满缓冲区或读到流结束，流可能每次只返回部分数据.
+   *
+   * @param stream 输入流
+   * @param buffer 缓冲区
+   * @return 读取的字节数
+   * @throws IOException 读取失败
+   */
+  static int readHeader(InputStream stream, byte[] buffer) throws IOException {
+    return readHeader(stream, buffer, buffer.length);
+  }
+
+  static int readHeader(InputStream stream, byte[] buffer, int limit) throws IOException {
+    int length = 0;
+    while (length < limit) {
+      int read = stream.read(buffer, length, limit - length);
+      if (read == -1) {
+        break;
       }
+      length += read;
     }
+    return length;
+  }
 
-    return result;
+  /**
+   * 从文件开头按位置读取，直到填满缓冲区的剩余空间或到文件结束，读取后flip.
+   *
+   * @param channel FileChannel
+   * @param buffer  缓冲区
+   * @throws IOException 读取失败
+   */
+  static void readHeader(FileChannel channel, ByteBuffer buffer) throws IOException {
+    long position = 0;
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position);
+      if (read == -1) {
+        break;
+      }
+      position += read;
+    }
+    buffer.flip();
   }
 
   // -----------------------------------------------------------------
@@ -221,4 +425,10 @@ public class FileHelper {
     }
   }
 
+  private static final class RegistryHolder {
+
+    private static final SignatureRegistry REGISTRY = SignatureRegistry.defaults();
+
+  }
+
 }
@@ -0,0 +1,237 @@
+package io.github.rcarlosdasilva.kits.io;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Maps;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * {@link FileSignatures}的查询索引，类初始化时构建，之后不可变
+ * <p>
+ * 签名的MIME类型与分类由扩展名推导：签名的各个扩展名中已知的MIME类型（分类）一致时使用它，不一致时为
+ * application/octet-stream（{@link FileCategory#OTHER}）；ZIP容器等格式单独指定
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+final class FileSignatureIndex {
+
+  static final String DEFAULT_MIME_TYPE = "application/octet-stream";
+
+  private static final Map<String, String> EXTENSION_MIME_TYPES = Maps.newHashMap();
+  private static final Map<String, FileCategory> EXTENSION_CATEGORIES = Maps.newHashMap();
+
+  private static final ImmutableListMultimap<String, FileSignatures> BY_EXTENSION;
+  private static final ImmutableMap<String, Integer> HEADER_LENGTHS;
+  private static final ImmutableMap<FileSignatures, String> MIME_TYPES;
+  private static final ImmutableMap<FileSignatures, FileCategory> CATEGORIES;
+  private static final ImmutableSetMultimap<FileCategory, FileSignatures> BY_CATEGORY;
+
+  static {
+    register(FileCategory.IMAGE, "image/png", "PNG");
+    register(FileCategory.IMAGE, "image/jpeg", "JPG", "JPEG", "JPE", "JFIF");
+    register(FileCategory.IMAGE, "image/gif", "GIF");
+    register(FileCategory.IMAGE, "image/bmp", "BMP", "DIB");
+    register(FileCategory.IMAGE, "image/tiff", "TIF", "TIFF");
+    register(FileCategory.IMAGE, "image/x-icon", "ICO", "CUR");
+    register(FileCategory.IMAGE, "image/webp", "WEBP");
+    register(FileCategory.IMAGE, "image/jp2", "JP2");
+    register(FileCategory.IMAGE, "image/vnd.adobe.photoshop", "PSD");
+    register(FileCategory.IMAGE, "image/x-pcx", "PCX");
+    register(FileCategory.IMAGE, "image/wmf", "WMF");
+    register(FileCategory.IMAGE, "image/x-xcf", "XCF");
+    register(FileCategory.IMAGE, "image/bpg", "BPG");
+    register(FileCategory.IMAGE, "image/x-exr", "EXR");
+    register(FileCategory.IMAGE, "image/x-portable-graymap", "PGM");
+
+    register(FileCategory.AUDIO, "audio/mpeg", "MP3");
+    register(FileCategory.AUDIO, "audio/wav", "WAV");
+    register(FileCategory.AUDIO, "audio/flac", "FLAC");
+    register(FileCategory.AUDIO, "audio/ogg", "OGG", "OGA");
+    register(FileCategory.AUDIO, "audio/aac", "AAC");
+    register(FileCategory.AUDIO, "audio/mp4", "M4A");
+    register(FileCategory.AUDIO, "audio/midi", "MID", "MIDI", "RMI");
+    register(FileCategory.AUDIO, "audio/aiff", "AIFF");
+    register(FileCategory.AUDIO, "audio/amr", "AMR");
+    register(FileCategory.AUDIO, "audio/x-ms-wma", "WMA");
+    register(FileCategory.AUDIO, "audio/basic", "AU");
+    register(FileCategory.AUDIO, "audio/x-pn-realaudio", "RA", "RAM");
+
+    register(FileCategory.VIDEO, "video/mp4", "MP4");
+    register(FileCategory.VIDEO, "video/x-m4v", "M4V");
+    register(FileCategory.VIDEO, "video/quicktime", "MOV");
+    register(FileCategory.VIDEO, "video/x-msvideo", "AVI");
+    register(FileCategory.VIDEO, "video/x-matroska", "MKV");
+    register(FileCategory.VIDEO, "video/webm", "WEBM");
+    register(FileCategory.VIDEO, "video/x-flv", "FLV");
+    register(FileCategory.VIDEO, "video/mpeg", "MPG", "VOB");
+    register(FileCategory.VIDEO, "video/x-ms-wmv", "WMV");
+    register(FileCategory.VIDEO, "video/x-ms-asf", "ASF");
+    register(FileCategory.VIDEO, "video/3gpp", "3GP", "3GP5");
+    register(FileCategory.VIDEO, "video/3gpp2", "3G2");
+    register(FileCategory.VIDEO, "video/ogg", "OGV");
+    register(FileCategory.VIDEO, "application/vnd.rn-realmedia", "RM", "RMVB");
+
+    register(FileCategory.ARCHIVE, "application/zip", "ZIP");
+    register(FileCategory.ARCHIVE, "application/x-rar-compressed", "RAR");
+    register(FileCategory.ARCHIVE, "application/x-7z-compressed", "7Z");
+    register(FileCategory.ARCHIVE, "application/gzip", "GZ");
+    register(FileCategory.ARCHIVE, "application/x-bzip2", "BZ2", "TBZ2", "TB2", "TAR.BZ2");
+    register(FileCategory.ARCHIVE, "application/x-tar", "TAR");
+    register(FileCategory.ARCHIVE, "application/x-compress", "TAR.Z");
+    register(FileCategory.ARCHIVE, "application/x-xz", "XZ");
+    register(FileCategory.ARCHIVE, "application/vnd.ms-cab-compressed", "CAB");
+    register(FileCategory.ARCHIVE, "application/java-archive", "JAR");
+    register(FileCategory.ARCHIVE, "application/x-arj", "ARJ");
+    register(FileCategory.ARCHIVE, "application/x-lzh-compressed", "LHA", "LZH");
+    register(FileCategory.ARCHIVE, "application/x-stuffit", "SIT");
+    register(FileCategory.ARCHIVE, "application/x-zoo", "ZOO");
+    register(FileCategory.ARCHIVE, "application/x-xar", "XAR");
+    register(FileCategory.ARCHIVE, "application/x-rpm", "RPM");
+    register(FileCategory.ARCHIVE, "application/x-iso9660-image", "ISO");
+    register(FileCategory.ARCHIVE, "application/x-apple-diskimage", "DMG");
+
+    register(FileCategory.DOCUMENT, "application/pdf", "PDF");
+    register(FileCategory.DOCUMENT, "application/msword", "DOC", "DOT");
+    register(FileCategory.DOCUMENT, "application/vnd.ms-excel", "XLS", "XLA");
+    register(FileCategory.DOCUMENT, "application/vnd.ms-powerpoint", "PPT", "PPS");
+    register(FileCategory.DOCUMENT,
+        "application/vnd.openxmlformats-officedocument.wordprocessingml.document", "DOCX");
+    register(FileCategory.DOCUMENT,
+        "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "XLSX");
+    register(FileCategory.DOCUMENT,
+        "application/vnd.openxmlformats-officedocument.presentationml.presentation", "PPTX");
+    register(FileCategory.DOCUMENT, "application/vnd.oasis.opendocument.text", "ODT");
+    register(FileCategory.DOCUMENT, "application/vnd.oasis.opendocument.presentation", "ODP");
+    register(FileCategory.DOCUMENT, "application/vnd.oasis.opendocument.text-template", "OTT");
+    register(FileCategory.DOCUMENT, "application/vnd.sun.xml.writer", "SXW");
+    register(FileCategory.DOCUMENT, "application/vnd.sun.xml.calc", "SXC");
+    register(FileCategory.DOCUMENT, "application/vnd.sun.xml.impress", "SXI");
+    register(FileCategory.DOCUMENT, "application/vnd.sun.xml.draw", "SXD");
+    register(FileCategory.DOCUMENT, "application/rtf", "RTF");
+    register(FileCategory.DOCUMENT, "application/epub+zip", "EPUB");
+    register(FileCategory.DOCUMENT, "application/vnd.ms-xpsdocument", "XPS");
+    register(FileCategory.DOCUMENT, "application/vnd.wordperfect", "WPD");
+    register(FileCategory.DOCUMENT, "application/vnd.ms-works", "WPS");
+    register(FileCategory.DOCUMENT, "application/vnd.ms-publisher", "PUB");
+    register(FileCategory.DOCUMENT, "application/vnd.visio", "VSD");
+    register(FileCategory.DOCUMENT, "application/vnd.ms-htmlhelp", "CHM");
+    register(FileCategory.DOCUMENT, "application/postscript", "EPS");
+    register(FileCategory.DOCUMENT, "application/xml", "XML");
+    register(FileCategory.DOCUMENT, "message/rfc822", "EML");
+
+    register(FileCategory.OTHER, "application/x-msdownload", "EXE", "DLL", "COM", "SYS");
+    register(FileCategory.OTHER, "application/java-vm", "CLASS");
+    register(FileCategory.OTHER, "application/x-shockwave-flash", "SWF");
+    register(FileCategory.OTHER, "application/x-msaccess", "MDB", "ACCDB");
+    register(FileCategory.OTHER, "font/ttf", "TTF");
+
+    ImmutableListMultimap.Builder<String, FileSignatures> byExtension =
+        ImmutableListMultimap.builder();
+    Map<String, Integer> headerLengths = Maps.newHashMap();
+    EnumMap<FileSignatures, String> mimeTypes = Maps.newEnumMap(FileSignatures.class);
+    EnumMap<FileSignatures, FileCategory> categories = Maps.newEnumMap(FileSignatures.class);
+    ImmutableSetMultimap.Builder<FileCategory, FileSignatures> byCategory =
+        ImmutableSetMultimap.builder();
+    for (FileSignatures sig : FileSignatures.values()) {
+      if (sig == FileSignatures.NON) {
+        continue;
+      }
+
+      String mimeType = null;
+      FileCategory category = null;
+      for (String extension : ImmutableSet.copyOf(sig.getExtensions())) {
+        String key = key(extension);
+        byExtension.put(key, sig);
+        Integer length = headerLengths.get(key);
+        headerLengths.put(key, Math.max(length == null ? 0 : length, sig.getHeaderLength()));
+
+        mimeType = agree(mimeType, EXTENSION_MIME_TYPES.get(key), DEFAULT_MIME_TYPE);
+        category = agree(category, EXTENSION_CATEGORIES.get(key), FileCategory.OTHER);
+      }
+      mimeTypes.put(sig, mimeType == null ? DEFAULT_MIME_TYPE : mimeType);
+      categories.put(sig, category == null ? FileCategory.OTHER : category);
+    }
+    // 以ZIP为容器的格式共用同一个文件头，只能判断为ZIP
+    mimeTypes.put(FileSignatures.FILE_NUM_288, "application/zip");
+    categories.put(FileSignatures.FILE_NUM_288, FileCategory.ARCHIVE);
+    for (Map.Entry<FileSignatures, FileCategory> entry : categories.entrySet()) {
+      byCategory.put(entry.getValue(), entry.getKey());
+    }
+
+    BY_EXTENSION = byExtension.build();
+    HEADER_LENGTHS = ImmutableMap.copyOf(headerLengths);
+    MIME_TYPES = Maps.immutableEnumMap(mimeTypes);
+    CATEGORIES = Maps.immutableEnumMap(categories);
+    BY_CATEGORY = byCategory.build();
+  }
+
+  private FileSignatureIndex() {
+    throw new IllegalStateException("FileSignatureIndex class");
+  }
+
+  /**
+   * 扩展名对应的签名.
+   *
+   * @param extension 扩展名，不区分大小写，可以带"."
+   * @return 签名，按声明顺序，没有时为空列表
+   */
+  static ImmutableList<FileSignatures> ofExtension(String extension) {
+    return Strings.isNullOrEmpty(extension) ? ImmutableList.<FileSignatures>of()
+        : BY_EXTENSION.get(key(extension));
+  }
+
+  /**
+   * 判断扩展名需要的文件头字节数.
+   *
+   * @param extension 扩展名，不区分大小写，可以带"."
+   * @return 字节数，未知的扩展名为0
+   */
+  static int headerLength(String extension) {
+    Integer length = Strings.isNullOrEmpty(extension) ? null : HEADER_LENGTHS.get(key(extension));
+    return length == null ? 0 : length;
+  }
+
+  static String mimeType(FileSignatures sig) {
+    String mimeType = MIME_TYPES.get(sig);
+    return mimeType == null ? DEFAULT_MIME_TYPE : mimeType;
+  }
+
+  static FileCategory category(FileSignatures sig) {
+    FileCategory category = CATEGORIES.get(sig);
+    return category == null ? FileCategory.OTHER : category;
+  }
+
+  static ImmutableSet<FileSignatures> ofCategory(FileCategory category) {
+    return BY_CATEGORY.get(category);
+  }
+
+  private static void register(FileCategory category, String mimeType, String... extensions) {
+    for (String extension : extensions) {
+      EXTENSION_MIME_TYPES.put(extension, mimeType);
+      EXTENSION_CATEGORIES.put(extension, category);
+    }
+  }
+
+  /**
+   * 合并签名的多个扩展名对应的值，未知的忽略，不一致时为conflict.
+   */
+  private static <V> V agree(V current, V value, V conflict) {
+    if (value == null || value.equals(current)) {
+      return current;
+    }
+    return current == null ? value : conflict;
+  }
+
+  private static String key(String extension) {
+    String key = extension.startsWith(".") ? extension.substring(1) : extension;
+    return key.toUpperCase(Locale.ROOT);
+  }
+
+}
@@ -1,7 +1,11 @@
 package io.github.rcarlosdasilva.kits.io;
 
+import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 
+import java.util.List;
+import java.util.Set;
+
 /**
  * 文件签名
  * <p>
@@ -1972,10 +1976,12 @@ public enum FileSignatures {
    * Info -> Ext
    */
   private String[] extensions;
+  private byte[] bytes;
 
   private FileSignatures(String pattern, int position, String extension) {
     this.pattern = pattern;
     this.position = position;
+    this.bytes = SignatureMatcher.parseHex(pattern);
 
     boolean isMultiExtension = extension.contains("|");
     if (isMultiExtension) {
@@ -1993,10 +1999,62 @@ public enum FileSignatures {
     return position;
   }
 
+  byte[] getBytes() {
+    return bytes;
+  }
+
+  /**
+   * 判断签名需要的文件头字节数.
+   *
+   * @return 偏移量加签名长度
+   */
+  int getHeaderLength() {
+    return position + bytes.length;
+  }
+
+  /**
+   * 文件头是否符合当前签名.
+   *
+   * @param header 文件头
+   * @param length header中有效的字节数
+   * @return boolean
+   */
+  boolean matches(byte[] header, int length) {
+    if (bytes.length == 0 || length < position + bytes.length) {
+      return false;
+    }
+    for (int i = 0; i < bytes.length; i++) {
+      if (header[position + i] != bytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   public String[] getExtensions() {
     return extensions;
   }
 
+  /**
+   * MIME类型.
+   * <p>
+   * 多个扩展名的MIME类型不一致时为application/octet-stream
+   *
+   * @return MIME类型
+   */
+  public String getMimeType() {
+    return FileSignatureIndex.mimeType(this);
+  }
+
+  /**
+   * 文件分类.
+   *
+   * @return {@link FileCategory}，无法确定时为{@link FileCategory#OTHER}
+   */
+  public FileCategory getCategory() {
+    return FileSignatureIndex.category(this);
+  }
+
   /**
    * 不是准确的扩展名.
    * <p>
@@ -2027,4 +2085,26 @@ public enum FileSignatures {
     return false;
   }
 
+  /**
+   * 扩展名对应的所有签名.
+   *
+   * @param ext 扩展名，不区分大小写，可以带"."
+   * @return 签名，没有时为空列表
+   */
+  public static List<FileSignatures> ofExtension(String ext) {
+    return FileSignatureIndex.ofExtension(ext);
+  }
+
+  /**
+   * 分类下的所有签名.
+   *
+   * @param category {@link FileCategory}
+   * @return 签名
+   */
+  public static Set<FileSignatures> ofCategory(FileCategory category) {
+    Preconditions.checkNotNull(category);
+
+    return FileSignatureIndex.ofCategory(category);
+  }
+
 }
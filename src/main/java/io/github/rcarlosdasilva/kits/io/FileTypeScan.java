@@ -0,0 +1,224 @@
+package io.github.rcarlosdasilva.kits.io;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 并行判断目录下文件类型的结果，见{@link FileHelper#typeAll(Path, int)}
+ * <p>
+ * 每个目录一个任务，子目录与每批文件再拆分为子任务，在独立的ForkJoinPool中执行；结果放入有界队列，按完成的顺序迭代。
+ * 迭代结束时自动关闭，提前结束迭代时需要调用{@link #close()}
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public class FileTypeScan implements Iterator<Map.Entry<Path, FileSignatures>>, Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(FileTypeScan.class);
+
+  private static final int BATCH_SIZE = 64;
+  private static final int QUEUE_CAPACITY = 1024;
+  private static final long OFFER_WAIT_MILLIS = 100;
+  private static final long CLOSE_WAIT_MILLIS = 1000;
+  private static final Object END = new Object();
+
+  private final ForkJoinPool pool;
+  private final BlockingQueue<Object> results = new ArrayBlockingQueue<Object>(QUEUE_CAPACITY);
+  private volatile boolean closed = false;
+  private Map.Entry<Path, FileSignatures> next;
+  private boolean finished = false;
+
+  FileTypeScan(final Path dir, int parallelism) {
+    pool = new ForkJoinPool(parallelism);
+    pool.execute(new RecursiveAction() {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected void compute() {
+        try {
+          new DirectoryTask(dir).invoke();
+        } catch (RuntimeException ex) {
+          // 关闭时未完成的任务会被取消
+          if (!closed) {
+            LOGGER.error("", ex);
+          }
+        } finally {
+          publish(END);
+        }
+      }
+
+    });
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean hasNext() {
+    if (next != null) {
+      return true;
+    }
+    if (finished) {
+      return false;
+    }
+
+    Object result;
+    try {
+      result = results.take();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      result = END;
+    }
+    if (result == END) {
+      finished = true;
+      close();
+      return false;
+    }
+    next = (Map.Entry<Path, FileSignatures>) result;
+    return true;
+  }
+
+  @Override
+  public Map.Entry<Path, FileSignatures> next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    Map.Entry<Path, FileSignatures> result = next;
+    next = null;
+    return result;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * 停止遍历，未完成的文件不再判断，最多等待{@value #CLOSE_WAIT_MILLIS}毫秒让工作线程退出.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    finished = true;
+    next = null;
+    pool.shutdownNow();
+    results.clear();
+    try {
+      if (!pool.awaitTermination(CLOSE_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+        LOGGER.warn("文件类型判断的工作线程未能在{}毫秒内退出", CLOSE_WAIT_MILLIS);
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void publish(Object result) {
+    try {
+      while (!closed && !results.offer(result, OFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+        // 等待消费者取走结果，关闭后放弃
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private final class DirectoryTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Path dir;
+
+    DirectoryTask(Path dir) {
+      this.dir = dir;
+    }
+
+    @Override
+    protected void compute() {
+      List<RecursiveAction> tasks = Lists.newArrayList();
+      List<Path> batch = Lists.newArrayListWithCapacity(BATCH_SIZE);
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+        for (Path entry : entries) {
+          if (closed) {
+            return;
+          }
+          BasicFileAttributes attributes;
+          try {
+            attributes = Files.readAttributes(entry, BasicFileAttributes.class,
+                LinkOption.NOFOLLOW_LINKS);
+          } catch (NoSuchFileException ex) {
+            LOGGER.debug("文件已不存在 - {}", entry);
+            continue;
+          } catch (IOException ex) {
+            LOGGER.warn("无法读取文件属性 - {}", entry, ex);
+            continue;
+          }
+          if (attributes.isDirectory()) {
+            tasks.add(fork(new DirectoryTask(entry)));
+          } else if (attributes.isRegularFile()) {
+            batch.add(entry);
+            if (batch.size() == BATCH_SIZE) {
+              tasks.add(fork(new FilesTask(batch)));
+              batch = Lists.newArrayListWithCapacity(BATCH_SIZE);
+            }
+          }
+        }
+      } catch (NoSuchFileException ex) {
+        LOGGER.debug("目录已不存在 - {}", dir);
+      } catch (IOException | SecurityException ex) {
+        LOGGER.warn("无法遍历目录 - {}", dir, ex);
+      }
+
+      new FilesTask(batch).compute();
+      for (RecursiveAction task : tasks) {
+        task.join();
+      }
+    }
+
+    private RecursiveAction fork(RecursiveAction task) {
+      task.fork();
+      return task;
+    }
+
+  }
+
+  private final class FilesTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<Path> files;
+
+    FilesTask(List<Path> files) {
+      this.files = files;
+    }
+
+    @Override
+    protected void compute() {
+      for (Path file : files) {
+        if (closed) {
+          return;
+        }
+        publish(Maps.immutableEntry(file, FileHelper.typeOfRegularFile(file)));
+      }
+    }
+
+  }
+
+}
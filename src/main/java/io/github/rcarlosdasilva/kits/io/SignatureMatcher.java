@@ -0,0 +1,410 @@
+package io.github.rcarlosdasilva.kits.io;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 按字节匹配文件签名的前缀树
+ * <p>
+ * 每个偏移量一棵树，节点的子节点按字节值有序存放在平铺的数组中，匹配时按偏移量从小到大沿树逐字节查找，返回最具体的签名，
+ * 即确定字节最多的签名；相同时偏移量小的、先加入的签名优先。匹配过程不分配内存，构建后不可变，可以被多个线程共用
+ * <p>
+ * 签名可以由多个片段组成，片段中可以有通配的字节：树中只存放签名中最长的一段确定字节，沿树找到后再校验完整的签名
+ *
+ * @param <T> 匹配结果类型
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+final class SignatureMatcher<T> {
+
+  private static final int WILDCARD = -1;
+
+  private final int[] positions;
+  private final int[] roots;
+  private final int[] childStart;
+  private final int[] childCount;
+  private final byte[] edgeBytes;
+  private final int[] edgeTargets;
+  private final int[] candidateStart;
+  private final int[] candidateCount;
+  private final Object[] results;
+  private final int[] scores;
+  private final Segment[][] verifications;
+  private final int headerLength;
+
+  private SignatureMatcher(Builder<T> builder) {
+    positions = new int[builder.roots.size()];
+    roots = new int[positions.length];
+
+    List<Node> nodes = Lists.newArrayList();
+    int p = 0;
+    for (Map.Entry<Integer, Node> entry : builder.roots.entrySet()) {
+      positions[p] = entry.getKey();
+      roots[p++] = nodes.size();
+      nodes.add(entry.getValue());
+    }
+    // 广度优先编号，子节点的编号在数组中连续
+    int edges = 0;
+    int candidates = 0;
+    for (int i = 0; i < nodes.size(); i++) {
+      edges += nodes.get(i).children.size();
+      candidates += nodes.get(i).candidates.size();
+      nodes.addAll(nodes.get(i).children.values());
+    }
+
+    childStart = new int[nodes.size()];
+    childCount = new int[nodes.size()];
+    edgeBytes = new byte[edges];
+    edgeTargets = new int[edges];
+    candidateStart = new int[nodes.size()];
+    candidateCount = new int[nodes.size()];
+    results = new Object[candidates];
+    scores = new int[candidates];
+    verifications = new Segment[candidates][];
+    int next = positions.length;
+    int edge = 0;
+    int candidate = 0;
+    for (int i = 0; i < nodes.size(); i++) {
+      Node node = nodes.get(i);
+      childStart[i] = edge;
+      childCount[i] = node.children.size();
+      for (Integer value : node.children.keySet()) {
+        edgeBytes[edge] = (byte) value.intValue();
+        edgeTargets[edge++] = next++;
+      }
+      candidateStart[i] = candidate;
+      candidateCount[i] = node.candidates.size();
+      for (Candidate c : node.candidates) {
+        results[candidate] = c.result;
+        scores[candidate] = c.score;
+        verifications[candidate++] = c.verification;
+      }
+    }
+    headerLength = builder.headerLength;
+  }
+
+  static <T> Builder<T> builder() {
+    return new Builder<T>();
+  }
+
+  /**
+   * 匹配需要的文件头字节数，即所有签名中偏移量加长度的最大值.
+   *
+   * @return 字节数
+   */
+  int getHeaderLength() {
+    return headerLength;
+  }
+
+  /**
+   * 匹配文件头.
+   *
+   * @param header 文件头
+   * @param offset 文件头在header中的起始位置
+   * @param length 文件头的字节数
+   * @return 最具体的签名，没有匹配时为null
+   */
+  @SuppressWarnings("unchecked")
+  T match(byte[] header, int offset, int length) {
+    Object best = null;
+    int bestScore = 0;
+    int end = offset + length;
+    for (int p = 0; p < positions.length && positions[p] < length; p++) {
+      int start = offset + positions[p];
+      int node = roots[p];
+      for (int i = start; i < end; i++) {
+        node = child(node, header[i]);
+        if (node < 0) {
+          break;
+        }
+        int last = candidateStart[node] + candidateCount[node];
+        for (int c = candidateStart[node]; c < last; c++) {
+          if (scores[c] > bestScore
+              && (verifications[c] == null || verify(verifications[c], header, offset, length))) {
+            best = results[c];
+            bestScore = scores[c];
+          }
+        }
+      }
+    }
+    return (T) best;
+  }
+
+  /**
+   * 匹配文件头，使用绝对位置读取，不改变缓冲区的position.
+   *
+   * @param header 文件头，从0到limit
+   * @return 最具体的签名，没有匹配时为null
+   */
+  @SuppressWarnings("unchecked")
+  T match(ByteBuffer header) {
+    Object best = null;
+    int bestScore = 0;
+    int length = header.limit();
+    for (int p = 0; p < positions.length && positions[p] < length; p++) {
+      int start = positions[p];
+      int node = roots[p];
+      for (int i = start; i < length; i++) {
+        node = child(node, header.get(i));
+        if (node < 0) {
+          break;
+        }
+        int last = candidateStart[node] + candidateCount[node];
+        for (int c = candidateStart[node]; c < last; c++) {
+          if (scores[c] > bestScore
+              && (verifications[c] == null || verify(verifications[c], header))) {
+            best = results[c];
+            bestScore = scores[c];
+          }
+        }
+      }
+    }
+    return (T) best;
+  }
+
+  private int child(int node, byte value) {
+    int key = value & 0xFF;
+    int low = childStart[node];
+    int high = low + childCount[node] - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int midKey = edgeBytes[mid] & 0xFF;
+      if (midKey < key) {
+        low = mid + 1;
+      } else if (midKey > key) {
+        high = mid - 1;
+      } else {
+        return edgeTargets[mid];
+      }
+    }
+    return -1;
+  }
+
+  private static boolean verify(Segment[] segments, byte[] header, int offset, int length) {
+    for (Segment segment : segments) {
+      int[] values = segment.values;
+      if (segment.position + values.length > length) {
+        return false;
+      }
+      int start = offset + segment.position;
+      for (int i = 0; i < values.length; i++) {
+        if (values[i] != WILDCARD && values[i] != (header[start + i] & 0xFF)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean verify(Segment[] segments, ByteBuffer header) {
+    for (Segment segment : segments) {
+      int[] values = segment.values;
+      if (segment.position + values.length > header.limit()) {
+        return false;
+      }
+      for (int i = 0; i < values.length; i++) {
+        if (values[i] != WILDCARD && values[i] != (header.get(segment.position + i) & 0xFF)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 解析十六进制字符串，不区分大小写.
+   *
+   * @param hex 十六进制字符串
+   * @return 字节
+   */
+  static byte[] parseHex(String hex) {
+    Preconditions.checkArgument(hex.length() % 2 == 0, "Odd length hex pattern: %s", hex);
+
+    byte[] bytes = new byte[hex.length() / 2];
+    for (int i = 0; i < bytes.length; i++) {
+      int high = Character.digit(hex.charAt(i * 2), 16);
+      int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+      Preconditions.checkArgument(high >= 0 && low >= 0, "Invalid hex pattern: %s", hex);
+      bytes[i] = (byte) (high << 4 | low);
+    }
+    return bytes;
+  }
+
+  /**
+   * 签名的一个片段：在指定偏移量上的一段字节，可以包含通配的字节
+   */
+  static final class Segment {
+
+    private final int position;
+    private final int[] values;
+
+    private Segment(int position, int[] values) {
+      this.position = position;
+      this.values = values;
+    }
+
+    /**
+     * 解析十六进制字符串，"??"表示任意字节，不区分大小写.
+     *
+     * @param position 偏移量（字节）
+     * @param hex      十六进制字符串
+     * @return Segment
+     */
+    static Segment parse(int position, String hex) {
+      Preconditions.checkArgument(position >= 0, "Negative position: %s", position);
+      Preconditions.checkArgument(!hex.isEmpty() && hex.length() % 2 == 0,
+          "Invalid hex pattern: %s", hex);
+
+      int[] values = new int[hex.length() / 2];
+      for (int i = 0; i < values.length; i++) {
+        char high = hex.charAt(i * 2);
+        char low = hex.charAt(i * 2 + 1);
+        if (high == '?' && low == '?') {
+          values[i] = WILDCARD;
+          continue;
+        }
+        int h = Character.digit(high, 16);
+        int l = Character.digit(low, 16);
+        Preconditions.checkArgument(h >= 0 && l >= 0, "Invalid hex pattern: %s", hex);
+        values[i] = h << 4 | l;
+      }
+      return new Segment(position, values);
+    }
+
+    static Segment of(int position, byte[] bytes) {
+      int[] values = new int[bytes.length];
+      for (int i = 0; i < bytes.length; i++) {
+        values[i] = bytes[i] & 0xFF;
+      }
+      return new Segment(position, values);
+    }
+
+    int getPosition() {
+      return position;
+    }
+
+    int getLength() {
+      return values.length;
+    }
+
+  }
+
+  /**
+   * 构建{@link SignatureMatcher}
+   *
+   * @param <T> 匹配结果类型
+   */
+  static final class Builder<T> {
+
+    private final TreeMap<Integer, Node> roots = Maps.newTreeMap();
+    private int headerLength = 0;
+
+    private Builder() {
+    }
+
+    /**
+     * 加入签名，偏移量与内容都相同时保留先加入的.
+     *
+     * @param position 偏移量（字节）
+     * @param pattern  签名
+     * @param result   匹配结果
+     * @return Builder
+     */
+    Builder<T> add(int position, byte[] pattern, T result) {
+      Preconditions.checkArgument(position >= 0);
+      if (pattern.length == 0) {
+        return this;
+      }
+      return add(ImmutableList.of(Segment.of(position, pattern)), result);
+    }
+
+    /**
+     * 加入由多个片段组成的签名，所有片段都符合时才匹配，确定的字节数相同时保留先加入的.
+     *
+     * @param segments 片段，至少有一个确定的字节
+     * @param result   匹配结果
+     * @return Builder
+     */
+    Builder<T> add(List<Segment> segments, T result) {
+      Preconditions.checkNotNull(result);
+      Preconditions.checkArgument(!segments.isEmpty());
+
+      // 用最长的一段确定字节作为树中的索引
+      int score = 0;
+      int anchorPosition = -1;
+      int anchorStart = 0;
+      int anchorLength = 0;
+      Segment anchorSegment = null;
+      for (Segment segment : segments) {
+        headerLength = Math.max(headerLength, segment.position + segment.values.length);
+        int run = 0;
+        for (int i = 0; i < segment.values.length; i++) {
+          if (segment.values[i] == WILDCARD) {
+            run = 0;
+            continue;
+          }
+          score++;
+          if (++run > anchorLength) {
+            anchorLength = run;
+            anchorStart = i - run + 1;
+            anchorPosition = segment.position + anchorStart;
+            anchorSegment = segment;
+          }
+        }
+      }
+      Preconditions.checkArgument(anchorSegment != null, "Signature without fixed bytes");
+
+      Node node = roots.get(anchorPosition);
+      if (node == null) {
+        node = new Node();
+        roots.put(anchorPosition, node);
+      }
+      for (int i = anchorStart; i < anchorStart + anchorLength; i++) {
+        Node child = node.children.get(anchorSegment.values[i]);
+        if (child == null) {
+          child = new Node();
+          node.children.put(anchorSegment.values[i], child);
+        }
+        node = child;
+      }
+      // 只有一个片段且没有通配时，沿树找到即匹配
+      boolean exact = segments.size() == 1 && anchorLength == anchorSegment.values.length;
+      node.candidates.add(new Candidate(result, score,
+          exact ? null : segments.toArray(new Segment[segments.size()])));
+      return this;
+    }
+
+    SignatureMatcher<T> build() {
+      return new SignatureMatcher<T>(this);
+    }
+
+  }
+
+  private static final class Node {
+
+    private final TreeMap<Integer, Node> children = Maps.newTreeMap();
+    private final List<Candidate> candidates = Lists.newArrayListWithCapacity(1);
+
+  }
+
+  private static final class Candidate {
+
+    private final Object result;
+    private final int score;
+    private final Segment[] verification;
+
+    Candidate(Object result, int score, Segment[] verification) {
+      this.result = result;
+      this.score = score;
+      this.verification = verification;
+    }
+
+  }
+
+}
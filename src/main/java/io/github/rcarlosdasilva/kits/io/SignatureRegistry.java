@@ -0,0 +1,338 @@
+package io.github.rcarlosdasilva.kits.io;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import io.github.rcarlosdasilva.kits.json.JsonHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 可扩展的文件签名库
+ * <p>
+ * 内置{@link FileSignatures}中的所有签名，另外可以从JSON定义加载或在运行时注册{@link FileFormat}，编译成与
+ * {@link FileHelper#type(InputStream)}相同的字节前缀树。注册与重新加载时先编译新的前缀树再整体替换，
+ * 正在进行的识别不受影响；确定字节数相同时，加载的格式优先于内置的签名
+ * <p>
+ * JSON定义的格式：
+ *
+ * <pre>
+ * {"formats": [{"name": "ACME", "extensions": ["acme"], "mimeType": "application/x-acme",
+ *   "category": "ARCHIVE", "signatures": ["0:41434D45??01", "0:504B0304 30:61636D65"]}]}
+ * </pre>
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public final class SignatureRegistry {
+
+  /**
+   * {@link #defaults()}从classpath中加载的所有同名JSON定义.
+   */
+  public static final String DEFINITION_RESOURCE = "META-INF/kits/file-signatures.json";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SignatureRegistry.class);
+
+  private final boolean builtin;
+  private volatile Snapshot snapshot;
+  private final ThreadLocal<byte[]> headerBuffer = new ThreadLocal<byte[]>();
+  private final ThreadLocal<ByteBuffer> directHeaderBuffer = new ThreadLocal<ByteBuffer>();
+
+  private SignatureRegistry(boolean builtin, ImmutableList<FileFormat> loaded) {
+    this.builtin = builtin;
+    this.snapshot = compile(loaded);
+  }
+
+  /**
+   * 包含内置签名与classpath中所有{@link #DEFINITION_RESOURCE}定义的签名库.
+   * <p>
+   * 无法解析的定义文件记录日志后跳过
+   *
+   * @return SignatureRegistry
+   */
+  public static SignatureRegistry defaults() {
+    ImmutableList.Builder<FileFormat> formats = ImmutableList.builder();
+    try {
+      ClassLoader loader = Thread.currentThread().getContextClassLoader();
+      if (loader == null) {
+        loader = SignatureRegistry.class.getClassLoader();
+      }
+      Enumeration<URL> resources = loader.getResources(DEFINITION_RESOURCE);
+      while (resources.hasMoreElements()) {
+        URL resource = resources.nextElement();
+        try (InputStream stream = resource.openStream()) {
+          formats.addAll(parse(stream));
+        } catch (IOException | IllegalArgumentException ex) {
+          LOGGER.error("无法加载文件签名定义 - {}", resource, ex);
+        }
+      }
+    } catch (IOException ex) {
+      LOGGER.error("", ex);
+    }
+    return new SignatureRegistry(true, formats.build());
+  }
+
+  /**
+   * 不包含内置签名的空签名库.
+   *
+   * @return SignatureRegistry
+   */
+  public static SignatureRegistry empty() {
+    return new SignatureRegistry(false, ImmutableList.<FileFormat>of());
+  }
+
+  /**
+   * 解析JSON定义.
+   *
+   * @param json JSON输入流，使用UTF-8编码，不会被关闭
+   * @return 格式定义
+   */
+  public static List<FileFormat> parse(InputStream json) {
+    Preconditions.checkNotNull(json);
+
+    Reader reader = new InputStreamReader(json, Charsets.UTF_8);
+    Definitions definitions = JsonHelper.gson.fromJson(reader, Definitions.class);
+    Preconditions.checkArgument(definitions != null, "Invalid signature definitions");
+    if (definitions.formats == null) {
+      return ImmutableList.of();
+    }
+
+    ImmutableList.Builder<FileFormat> formats = ImmutableList.builder();
+    for (Definition definition : definitions.formats) {
+      Preconditions.checkArgument(definition != null, "Null format definition");
+      FileCategory category = Strings.isNullOrEmpty(definition.category) ? null
+          : FileCategory.valueOf(definition.category.toUpperCase(Locale.ROOT));
+      formats.add(new FileFormat(definition.name,
+          definition.extensions == null ? ImmutableList.<String>of() : definition.extensions,
+          definition.mimeType, category,
+          definition.signatures == null ? ImmutableList.<String>of() : definition.signatures));
+    }
+    return formats.build();
+  }
+
+  /**
+   * 在已加载的格式之后追加格式.
+   *
+   * @param formats 格式定义
+   */
+  public synchronized void register(FileFormat... formats) {
+    register(Arrays.asList(formats));
+  }
+
+  /**
+   * 在已加载的格式之后追加格式.
+   *
+   * @param formats 格式定义
+   */
+  public synchronized void register(List<FileFormat> formats) {
+    Preconditions.checkNotNull(formats);
+
+    snapshot = compile(ImmutableList.<FileFormat>builder().addAll(snapshot.loaded)
+        .addAll(formats).build());
+  }
+
+  /**
+   * 加载JSON定义并追加到已加载的格式之后.
+   *
+   * @param json JSON输入流，使用UTF-8编码，不会被关闭
+   */
+  public void load(InputStream json) {
+    register(parse(json));
+  }
+
+  /**
+   * 用JSON定义替换所有已加载的格式，内置签名保留；解析失败时保持原来的格式.
+   *
+   * @param json JSON输入流，使用UTF-8编码，不会被关闭
+   */
+  public void reload(InputStream json) {
+    reload(parse(json));
+  }
+
+  /**
+   * 替换所有已加载的格式，内置签名保留.
+   *
+   * @param formats 格式定义
+   */
+  public synchronized void reload(List<FileFormat> formats) {
+    Preconditions.checkNotNull(formats);
+
+    snapshot = compile(ImmutableList.copyOf(formats));
+  }
+
+  /**
+   * 当前所有格式，已加载的在前，内置的在后.
+   *
+   * @return 格式定义
+   */
+  public List<FileFormat> getFormats() {
+    return snapshot.formats;
+  }
+
+  /**
+   * 识别需要的文件头字节数.
+   *
+   * @return 字节数
+   */
+  public int headerLength() {
+    return snapshot.matcher.getHeaderLength();
+  }
+
+  /**
+   * 按文件头识别格式.
+   *
+   * @param header 文件头，需要的长度见{@link #headerLength()}，不足时只匹配已有的部分
+   * @param length header中有效的字节数
+   * @return {@link FileFormat}，无法识别时为{@link FileFormat#UNKNOWN}
+   */
+  public FileFormat detect(byte[] header, int length) {
+    Preconditions.checkNotNull(header);
+    Preconditions.checkArgument(length >= 0 && length <= header.length);
+
+    FileFormat result = snapshot.matcher.match(header, 0, length);
+    return result == null ? FileFormat.UNKNOWN : result;
+  }
+
+  /**
+   * 按文件头识别格式，流支持mark时读取后会reset，否则会消耗文件头.
+   *
+   * @param stream 输入流
+   * @return {@link FileFormat}，无法识别时为{@link FileFormat#UNKNOWN}
+   */
+  public FileFormat detect(InputStream stream) {
+    Preconditions.checkNotNull(stream);
+
+    SignatureMatcher<FileFormat> matcher = snapshot.matcher;
+    int length = matcher.getHeaderLength();
+    byte[] header = headerBuffer.get();
+    if (header == null || header.length < length) {
+      header = new byte[length];
+      headerBuffer.set(header);
+    }
+    try {
+      if (stream.markSupported()) {
+        stream.mark(length);
+      }
+      length = FileHelper.readHeader(stream, header, length);
+      if (stream.markSupported()) {
+        stream.reset();
+      }
+      FileFormat result = matcher.match(header, 0, length);
+      return result == null ? FileFormat.UNKNOWN : result;
+    } catch (IOException ex) {
+      LOGGER.error("", ex);
+    }
+    return FileFormat.UNKNOWN;
+  }
+
+  /**
+   * 按文件头识别格式，通过FileChannel按位置只读取需要的字节.
+   *
+   * @param path 文件路径
+   * @return {@link FileFormat}，不是普通文件或无法识别时为{@link FileFormat#UNKNOWN}
+   */
+  public FileFormat detect(Path path) {
+    Preconditions.checkNotNull(path);
+
+    if (!Files.isRegularFile(path)) {
+      return FileFormat.UNKNOWN;
+    }
+
+    SignatureMatcher<FileFormat> matcher = snapshot.matcher;
+    int length = matcher.getHeaderLength();
+    ByteBuffer header = directHeaderBuffer.get();
+    if (header == null || header.capacity() < length) {
+      header = ByteBuffer.allocateDirect(length);
+      directHeaderBuffer.set(header);
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      header.clear();
+      header.limit(length);
+      FileHelper.readHeader(channel, header);
+      FileFormat result = matcher.match(header);
+      return result == null ? FileFormat.UNKNOWN : result;
+    } catch (SecurityException | IOException ex) {
+      LOGGER.error("", ex);
+    }
+    return FileFormat.UNKNOWN;
+  }
+
+  private Snapshot compile(ImmutableList<FileFormat> loaded) {
+    ImmutableList<FileFormat> formats = builtin
+        ? ImmutableList.<FileFormat>builder().addAll(loaded).addAll(Builtin.FORMATS).build()
+        : loaded;
+    SignatureMatcher.Builder<FileFormat> builder = SignatureMatcher.builder();
+    for (FileFormat format : formats) {
+      for (List<SignatureMatcher.Segment> signature : format.getCompiled()) {
+        builder.add(signature, format);
+      }
+    }
+    return new Snapshot(loaded, formats, builder.build());
+  }
+
+  private static final class Snapshot {
+
+    private final ImmutableList<FileFormat> loaded;
+    private final ImmutableList<FileFormat> formats;
+    private final SignatureMatcher<FileFormat> matcher;
+
+    Snapshot(ImmutableList<FileFormat> loaded, ImmutableList<FileFormat> formats,
+             SignatureMatcher<FileFormat> matcher) {
+      this.loaded = loaded;
+      this.formats = formats;
+      this.matcher = matcher;
+    }
+
+  }
+
+  /**
+   * 由{@link FileSignatures}转换的内置格式，第一次使用时创建
+   */
+  private static final class Builtin {
+
+    private static final ImmutableList<FileFormat> FORMATS;
+
+    static {
+      ImmutableList.Builder<FileFormat> formats = ImmutableList.builder();
+      for (FileSignatures sig : FileSignatures.values()) {
+        if (sig != FileSignatures.NON) {
+          formats.add(FileFormat.of(sig));
+        }
+      }
+      FORMATS = formats.build();
+    }
+
+  }
+
+  private static final class Definitions {
+
+    private List<Definition> formats;
+
+  }
+
+  private static final class Definition {
+
+    private String name;
+    private List<String> extensions;
+    private String mimeType;
+    private String category;
+    private List<String> signatures;
+
+  }
+
+}
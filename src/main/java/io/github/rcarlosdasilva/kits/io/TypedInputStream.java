@@ -0,0 +1,38 @@
+package io.github.rcarlosdasilva.kits.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+
+/**
+ * 已识别文件类型的输入流，文件头保存在回退缓冲区中，从这里读取仍能得到完整的内容
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public class TypedInputStream extends PushbackInputStream {
+
+  private final FileSignatures type;
+
+  TypedInputStream(InputStream in, SignatureMatcher<FileSignatures> matcher) throws IOException {
+    super(in, Math.max(1, matcher.getHeaderLength()));
+
+    // 直接读入回退缓冲区的末尾，相当于读取后unread，但不需要额外复制
+    int length = FileHelper.readHeader(in, buf);
+    pos = buf.length - length;
+    if (pos > 0) {
+      System.arraycopy(buf, 0, buf, pos, length);
+    }
+    FileSignatures matched = matcher.match(buf, pos, length);
+    this.type = matched == null ? FileSignatures.NON : matched;
+  }
+
+  /**
+   * 文件类型.
+   *
+   * @return {@link FileSignatures}，无法识别时为{@link FileSignatures#NON}
+   */
+  public FileSignatures getType() {
+    return type;
+  }
+
+}
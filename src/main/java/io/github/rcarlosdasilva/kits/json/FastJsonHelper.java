@@ -72,6 +72,16 @@ public class FastJsonHelper implements JsonHelper {
     return JSON.parseObject(json, clazz);
   }
 
+  @Override
+  public <T> T fromJson(Reader reader, Class<T> clazz) {
+    try {
+      return new JSONReader(reader).readObject(clazz);
+    } catch (Exception ex) {
+      ex.printStackTrace();
+      return null;
+    }
+  }
+
   @Override
   public Object readJsonFromFile(String path) {
     return readJsonFromFile(new File(path));
@@ -7,6 +7,7 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
 
 /**
  * JSON工具的Gson实现
@@ -86,6 +87,16 @@ public class GsonHelper implements JsonHelper {
     return normalGson.fromJson(json, clazz);
   }
 
+  @Override
+  public <T> T fromJson(Reader reader, Class<T> clazz) {
+    try {
+      return normalGson.fromJson(reader, clazz);
+    } catch (Exception ex) {
+      ex.printStackTrace();
+      return null;
+    }
+  }
+
   @Override
   public Object readJsonFromFile(String path) {
     return readJsonFromFile(path, Object.class);
@@ -6,6 +6,7 @@ import com.google.common.base.Strings;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
 
 /**
  * JSON工具的Jackson实现
@@ -87,6 +88,16 @@ public class JacksonHelper implements JsonHelper {
     return null;
   }
 
+  @Override
+  public <T> T fromJson(Reader reader, Class<T> clazz) {
+    try {
+      return normalOM.readerFor(clazz).readValue(reader);
+    } catch (IOException ex) {
+      ex.printStackTrace();
+      return null;
+    }
+  }
+
   @Override
   public Object readJsonFromFile(String path) {
     return readJsonFromFile(path, Object.class);
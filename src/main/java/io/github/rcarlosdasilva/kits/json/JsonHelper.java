@@ -1,6 +1,9 @@
 package io.github.rcarlosdasilva.kits.json;
 
+import com.google.common.io.CharStreams;
+
 import java.io.File;
+import java.io.Reader;
 
 /**
  * 封装JSON处理工具类，使用不同的JSON包来实现当前接口的功能
@@ -89,6 +92,26 @@ public interface JsonHelper {
    */
   <T> T fromJson(String json, Class<T> clazz);
 
+  /**
+   * 从字符流中读取指定类型的对象，reader不会被关闭.
+   * <p>
+   * 内置的实现边读边解析，不会先读取为完整的字符串；默认实现读取为字符串后调用{@link #fromJson(String, Class)}，
+   * 以兼容其他实现
+   *
+   * @param <T>    目标类型
+   * @param reader 字符流
+   * @param clazz  类型
+   * @return 指定类型对象，读取或解析失败时为null
+   */
+  default <T> T fromJson(Reader reader, Class<T> clazz) {
+    try {
+      return fromJson(CharStreams.toString(reader), clazz);
+    } catch (Exception ex) {
+      ex.printStackTrace();
+      return null;
+    }
+  }
+
   /**
    * 从JSON文件中读取对象.
    *
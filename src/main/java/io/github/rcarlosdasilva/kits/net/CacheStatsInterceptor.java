@@ -0,0 +1,62 @@
+package io.github.rcarlosdasilva.kits.net;
+
+import io.github.rcarlosdasilva.kits.net.http.HttpCacheStats;
+import io.github.rcarlosdasilva.kits.net.http.HttpStatusCode;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按响应的cacheResponse与networkResponse统计缓存命中，磁盘缓存与内存缓存共用
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+final class CacheStatsInterceptor implements Interceptor {
+
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong conditionalHits = new AtomicLong();
+  private final AtomicLong network = new AtomicLong();
+  private final AtomicLong savedBytes = new AtomicLong();
+
+  @Override
+  public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    Response response = chain.proceed(request);
+    if (!"GET".equals(request.method())) {
+      return response;
+    }
+
+    requests.incrementAndGet();
+    Response cacheResponse = response.cacheResponse();
+    Response networkResponse = response.networkResponse();
+    if (cacheResponse == null) {
+      network.incrementAndGet();
+      return response;
+    }
+
+    if (networkResponse == null) {
+      hits.incrementAndGet();
+    } else if (networkResponse.code() == HttpStatusCode.NOT_MODIFIED) {
+      conditionalHits.incrementAndGet();
+    } else {
+      // 缓存已过期且服务器返回了新的响应
+      network.incrementAndGet();
+      return response;
+    }
+    long length = response.body().contentLength();
+    if (length > 0) {
+      savedBytes.addAndGet(length);
+    }
+    return response;
+  }
+
+  HttpCacheStats stats() {
+    return new HttpCacheStats(requests.get(), hits.get(), conditionalHits.get(), network.get(),
+        savedBytes.get());
+  }
+
+}
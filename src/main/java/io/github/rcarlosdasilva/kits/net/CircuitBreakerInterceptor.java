@@ -0,0 +1,247 @@
+package io.github.rcarlosdasilva.kits.net;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import io.github.rcarlosdasilva.kits.net.http.CallRejectedException;
+import io.github.rcarlosdasilva.kits.net.http.CircuitBreakerPolicy;
+import io.github.rcarlosdasilva.kits.net.http.CircuitStats;
+import io.github.rcarlosdasilva.kits.net.http.CircuitStats.State;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按{@link CircuitBreakerPolicy}对每个host熔断与限制并发的拦截器
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+final class CircuitBreakerInterceptor implements Interceptor {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreakerInterceptor.class);
+
+  private final CircuitBreakerPolicy policy;
+  private final ConcurrentMap<String, HostCircuit> circuits = Maps.newConcurrentMap();
+
+  CircuitBreakerInterceptor(CircuitBreakerPolicy policy) {
+    this.policy = policy;
+  }
+
+  CircuitBreakerPolicy getPolicy() {
+    return policy;
+  }
+
+  @Override
+  public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    String host = request.url().host();
+    HostCircuit circuit = circuit(host);
+
+    circuit.acquire();
+    boolean success = false;
+    long start = System.nanoTime();
+    try {
+      Response response = chain.proceed(request);
+      success = response.code() < 500;
+      return response;
+    } finally {
+      circuit.release(success,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= policy.getSlowCallDuration());
+    }
+  }
+
+  /**
+   * 所有host的状态.
+   *
+   * @return host到状态的映射
+   */
+  Map<String, CircuitStats> stats() {
+    ImmutableMap.Builder<String, CircuitStats> stats = ImmutableMap.builder();
+    for (Map.Entry<String, HostCircuit> entry : circuits.entrySet()) {
+      stats.put(entry.getKey(), entry.getValue().stats());
+    }
+    return stats.build();
+  }
+
+  private HostCircuit circuit(String host) {
+    HostCircuit circuit = circuits.get(host);
+    if (circuit == null) {
+      HostCircuit created = new HostCircuit(host, policy);
+      circuit = circuits.putIfAbsent(host, created);
+      if (circuit == null) {
+        circuit = created;
+      }
+    }
+    return circuit;
+  }
+
+  /**
+   * 单个host的熔断器，最近的请求结果保存在环形数组中
+   */
+  private static final class HostCircuit {
+
+    private static final byte SUCCESS = 0;
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+
+    private final String host;
+    private final CircuitBreakerPolicy policy;
+    private final Semaphore bulkhead;
+    private final byte[] outcomes;
+    private int next = 0;
+    private int buffered = 0;
+    private int failures = 0;
+    private int slows = 0;
+    private State state = State.CLOSED;
+    private long openedAt = 0;
+    private int trialsStarted = 0;
+    private long rejected = 0;
+
+    HostCircuit(String host, CircuitBreakerPolicy policy) {
+      this.host = host;
+      this.policy = policy;
+      this.bulkhead = policy.getMaxConcurrentCallsPerHost() > 0
+          ? new Semaphore(policy.getMaxConcurrentCallsPerHost()) : null;
+      this.outcomes = new byte[policy.getWindowSize()];
+    }
+
+    void acquire() throws IOException {
+      synchronized (this) {
+        if (!permit()) {
+          rejected++;
+          throw new CallRejectedException(host, CallRejectedException.Reason.CIRCUIT_OPEN);
+        }
+      }
+
+      if (bulkhead == null) {
+        return;
+      }
+      boolean acquired;
+      try {
+        acquired = bulkhead.tryAcquire(policy.getBulkheadWait(), TimeUnit.MILLISECONDS);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        release(null);
+        throw new InterruptedIOException("Interrupted while waiting for bulkhead of " + host);
+      }
+      if (!acquired) {
+        synchronized (this) {
+          rejected++;
+        }
+        release(null);
+        throw new CallRejectedException(host, CallRejectedException.Reason.BULKHEAD_FULL);
+      }
+    }
+
+    void release(boolean success, boolean slow) {
+      if (bulkhead != null) {
+        bulkhead.release();
+      }
+      release(success ? (slow ? SLOW : SUCCESS) : FAILURE);
+    }
+
+    /**
+     * 记录请求结果.
+     *
+     * @param outcome 结果，为null时表示请求没有发出，只归还半开状态的试探名额
+     */
+    private synchronized void release(Byte outcome) {
+      if (outcome == null) {
+        if (state == State.HALF_OPEN) {
+          trialsStarted--;
+        }
+        return;
+      }
+      if (state == State.OPEN) {
+        // 打开前已发出的请求不再计入
+        return;
+      }
+
+      record(outcome);
+      if (state == State.HALF_OPEN) {
+        if (buffered >= policy.getHalfOpenCalls()) {
+          transition(exceeded() ? State.OPEN : State.CLOSED);
+        }
+      } else if (buffered >= policy.getMinimumCalls() && exceeded()) {
+        transition(State.OPEN);
+      }
+    }
+
+    private boolean permit() {
+      if (state == State.OPEN) {
+        if (System.nanoTime() - openedAt < TimeUnit.MILLISECONDS.toNanos(
+            policy.getOpenDuration())) {
+          return false;
+        }
+        transition(State.HALF_OPEN);
+      }
+      if (state == State.HALF_OPEN) {
+        if (trialsStarted >= policy.getHalfOpenCalls()) {
+          return false;
+        }
+        trialsStarted++;
+      }
+      return true;
+    }
+
+    private void record(byte outcome) {
+      if (buffered == outcomes.length) {
+        byte evicted = outcomes[next];
+        if (evicted == FAILURE) {
+          failures--;
+        } else if (evicted == SLOW) {
+          slows--;
+        }
+      } else {
+        buffered++;
+      }
+
+      outcomes[next] = outcome;
+      next = (next + 1) % outcomes.length;
+      if (outcome == FAILURE) {
+        failures++;
+      } else if (outcome == SLOW) {
+        slows++;
+      }
+    }
+
+    private boolean exceeded() {
+      return failures >= policy.getFailureRateThreshold() * buffered
+          || slows >= policy.getSlowCallRateThreshold() * buffered;
+    }
+
+    private void transition(State target) {
+      if (state != target) {
+        LOGGER.warn("[HttpHelper] - host {} 熔断器状态 {} -> {}，失败 {}，慢请求 {}，共 {}", host, state,
+            target, failures, slows, buffered);
+      }
+      state = target;
+      next = 0;
+      buffered = 0;
+      failures = 0;
+      slows = 0;
+      trialsStarted = 0;
+      if (target == State.OPEN) {
+        openedAt = System.nanoTime();
+      }
+    }
+
+    synchronized CircuitStats stats() {
+      boolean enough = buffered >= (state == State.HALF_OPEN ? 1 : policy.getMinimumCalls());
+      return new CircuitStats(host, state, enough ? failures / (double) buffered : -1,
+          enough ? slows / (double) buffered : -1, buffered, rejected,
+          bulkhead == null ? 0 : policy.getMaxConcurrentCallsPerHost()
+              - bulkhead.availablePermits());
+    }
+
+  }
+
+}
@@ -0,0 +1,96 @@
+package io.github.rcarlosdasilva.kits.net;
+
+import io.github.rcarlosdasilva.kits.net.http.Compression;
+import io.github.rcarlosdasilva.kits.net.http.CompressionPolicy;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+import java.io.IOException;
+
+/**
+ * 按{@link CompressionPolicy}与请求的{@link Compression}标记压缩请求体、协商响应编码的拦截器
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+final class CompressionInterceptor implements Interceptor {
+
+  private final CompressionPolicy policy;
+
+  CompressionInterceptor(CompressionPolicy policy) {
+    this.policy = policy;
+  }
+
+  @Override
+  public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    Compression compression = request.tag() instanceof Compression
+        ? (Compression) request.tag() : Compression.AUTO;
+    boolean applies = compression == Compression.AUTO && policy != null
+        && policy.appliesTo(request.url().host());
+
+    Request.Builder builder = null;
+    if (request.header("Accept-Encoding") == null && (compression == Compression.NONE
+        || (applies && !policy.isResponseCompression()))) {
+      // 设置后OkHttp不再添加gzip
+      builder = request.newBuilder().header("Accept-Encoding", "identity");
+    }
+
+    RequestBody body = request.body();
+    if (body != null && request.header("Content-Encoding") == null
+        && (compression == Compression.GZIP || (applies && policy.getRequestThreshold() >= 0
+        && isCompressible(body.contentType())
+        && body.contentLength() >= policy.getRequestThreshold()))) {
+      if (builder == null) {
+        builder = request.newBuilder();
+      }
+      builder.header("Content-Encoding", "gzip").method(request.method(), gzip(body));
+    }
+
+    return chain.proceed(builder == null ? request : builder.build());
+  }
+
+  /**
+   * 只自动压缩文本类的请求体，文件等二进制内容通常已经压缩过.
+   *
+   * @param type Content-Type
+   * @return true/false
+   */
+  private static boolean isCompressible(MediaType type) {
+    if (type == null) {
+      return false;
+    }
+    String subtype = type.subtype().toLowerCase();
+    return "text".equals(type.type()) || subtype.endsWith("json") || subtype.endsWith("xml")
+        || "x-www-form-urlencoded".equals(subtype);
+  }
+
+  private static RequestBody gzip(final RequestBody body) {
+    return new RequestBody() {
+
+      @Override
+      public MediaType contentType() {
+        return body.contentType();
+      }
+
+      @Override
+      public long contentLength() {
+        return -1;
+      }
+
+      @Override
+      public void writeTo(BufferedSink sink) throws IOException {
+        BufferedSink gzipSink = Okio.buffer(new GzipSink(sink));
+        body.writeTo(gzipSink);
+        gzipSink.close();
+      }
+
+    };
+  }
+
+}
@@ -1,12 +1,30 @@
 package io.github.rcarlosdasilva.kits.net;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.github.rcarlosdasilva.kits.json.JsonHelper;
 import io.github.rcarlosdasilva.kits.net.http.*;
 import okhttp3.*;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * Http请求工具
@@ -21,10 +39,18 @@ public class HttpHelper {
   private static final MediaType JSON_TYPE = MediaType.parse("application/json; charset=utf-8");
   private static final MediaType XML_TYPE = MediaType.parse("application/xml; charset=utf-8");
   private static final MediaType MULTI_FORM_TYPE = MultipartBody.FORM;
-  private static OkHttpClient client = null;
-  private static int connectTimeout = TIMEOUT_OF_CONNECT_DEFAULT;
-  private static int readTimeout = TIMEOUT_OF_READ_DEFAULT;
-  private static int writeTimeout = TIMEOUT_OF_WRITE_DEFAULT;
+  private static final int UPLOAD_CHUNK_SIZE = 8192;
+  private static final CacheStatsInterceptor CACHE_STATS = new CacheStatsInterceptor();
+  private static final ScheduledExecutorService DEADLINE_SCHEDULER = Executors
+      .newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+          .setNameFormat("kits-http-deadline-%d").setDaemon(true).build());
+  private static volatile OkHttpClient client = null;
+  private static HttpConfig config = new HttpConfig();
+  private static ConnectionPool connectionPool = null;
+  private static Dispatcher dispatcher = null;
+  private static Dispatcher attemptDispatcher = null;
+  private static volatile CircuitBreakerInterceptor circuitBreaker = null;
+  private static Cache diskCache = null;
 
   private static Request generatePlainRequest(String url, HttpMethod method, String content,
                                               ContentType type) {
@@ -109,25 +135,332 @@ public class HttpHelper {
     return request;
   }
 
+  /**
+   * 生成multipart/form-data的POST请求.
+   *
+   * @param url            请求地址
+   * @param multiFiles     文件
+   * @param additionalData 附加的表单数据，可以为null
+   * @return Request
+   */
+  private static Request generateMultipartRequest(String url, List<MultiFile> multiFiles,
+                                                  List<FormData> additionalData) {
+    okhttp3.MultipartBody.Builder builder = new MultipartBody.Builder();
+    builder.setType(MULTI_FORM_TYPE);
+    if (additionalData != null) {
+      for (FormData formData : additionalData) {
+        builder.addFormDataPart(formData.getKey(), formData.getValue());
+      }
+    }
+
+    for (MultiFile multiFile : multiFiles) {
+      MediaType mediaType = MediaType.parse(multiFile.getContentType().getText());
+      builder.addFormDataPart(multiFile.getFileKey(), multiFile.getFileName(),
+          fileBody(mediaType, multiFile));
+    }
+
+    RequestBody body = builder.build();
+    return new Request.Builder().url(url).post(body).build();
+  }
+
+  /**
+   * 文件内容的请求体，InputStream、ByteBuffer与StreamWriter直接写入连接，长度未知时整个multipart请求使用chunked传输.
+   *
+   * @param mediaType Content-Type
+   * @param multiFile 文件信息
+   * @return RequestBody
+   */
+  private static RequestBody fileBody(final MediaType mediaType, final MultiFile multiFile) {
+    if (multiFile.getFile() != null) {
+      return RequestBody.create(mediaType, multiFile.getFile());
+    }
+
+    final ByteBuffer buffer = multiFile.getBuffer();
+    if (buffer != null && buffer.hasArray()) {
+      return RequestBody.create(mediaType, buffer.array(),
+          buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    }
+
+    return new RequestBody() {
+
+      @Override
+      public MediaType contentType() {
+        return mediaType;
+      }
+
+      @Override
+      public long contentLength() {
+        return multiFile.getContentLength();
+      }
+
+      @Override
+      public void writeTo(BufferedSink sink) throws IOException {
+        if (buffer != null) {
+          ByteBuffer source = buffer.duplicate();
+          byte[] chunk = new byte[Math.min(source.remaining(), UPLOAD_CHUNK_SIZE)];
+          while (source.hasRemaining()) {
+            int length = Math.min(chunk.length, source.remaining());
+            source.get(chunk, 0, length);
+            sink.write(chunk, 0, length);
+          }
+        } else if (multiFile.getStream() != null) {
+          try (Source source = Okio.source(multiFile.getStream())) {
+            sink.writeAll(source);
+          }
+        } else if (multiFile.getWriter() != null) {
+          OutputStream out = sink.outputStream();
+          multiFile.getWriter().writeTo(out);
+          out.flush();
+        }
+      }
+
+    };
+  }
+
+  /**
+   * 异步执行请求，响应体读取为字符串后完成.
+   * <p>
+   * 取消返回的future会同时取消OkHttp的Call
+   *
+   * @param request 请求
+   * @return response
+   */
+  private static CompletableFuture<ResponseDigest> executeAsync(Request request) {
+    final CompletableFuture<ResponseDigest> future = new CompletableFuture<ResponseDigest>();
+    final Call call = newCall(request);
+    future.whenComplete(new BiConsumer<ResponseDigest, Throwable>() {
+
+      @Override
+      public void accept(ResponseDigest digest, Throwable ex) {
+        if (ex instanceof CancellationException) {
+          call.cancel();
+        }
+      }
+
+    });
+
+    call.enqueue(new Callback() {
+
+      @Override
+      public void onFailure(Call call, IOException ex) {
+        future.completeExceptionally(ex);
+      }
+
+      @Override
+      public void onResponse(Call call, Response response) {
+        try {
+          future.complete(ResponseDigest.digest(response.code(), response.message(),
+              response.headers(), response.body().contentLength(), response.body().string()));
+        } catch (IOException ex) {
+          future.completeExceptionally(ex);
+        } finally {
+          response.close();
+        }
+      }
+
+    });
+    return future;
+  }
+
+  /**
+   * 修改超时时间，其他配置保持不变.
+   *
+   * @param connectTimeout 连接超时（秒）
+   * @param readTimeout    读超时（秒）
+   * @param writeTimeout   写超时（秒）
+   */
   public static void rebuild(int connectTimeout, int readTimeout, int writeTimeout) {
-    HttpHelper.connectTimeout = connectTimeout;
-    HttpHelper.readTimeout = readTimeout;
-    HttpHelper.writeTimeout = writeTimeout;
+    synchronized (HttpHelper.class) {
+      HttpConfig newConfig = new HttpConfig(config);
+      newConfig.setConnectTimeout(connectTimeout);
+      newConfig.setReadTimeout(readTimeout);
+      newConfig.setWriteTimeout(writeTimeout);
+      rebuild(newConfig);
+    }
+  }
 
-    client = null;
+  /**
+   * 按配置重建客户端.
+   * <p>
+   * 连接池参数（maxIdleConnections、keepAliveDuration）不变时沿用原连接池，已建立的连接不会断开；调度器始终沿用，
+   * 新的并发上限立即生效，排队中的请求不受影响
+   *
+   * @param newConfig 配置
+   */
+  public static void rebuild(HttpConfig newConfig) {
+    Preconditions.checkNotNull(newConfig);
+
+    synchronized (HttpHelper.class) {
+      HttpConfig previous = config;
+      config = new HttpConfig(newConfig);
+      if (client == null) {
+        return;
+      }
+
+      ConnectionPool stale = null;
+      if (previous.getMaxIdleConnections() != config.getMaxIdleConnections()
+          || previous.getKeepAliveDuration() != config.getKeepAliveDuration()) {
+        stale = connectionPool;
+        connectionPool = null;
+      }
+      client = build();
+      if (stale != null) {
+        // 只关闭旧连接池中的空闲连接，使用中的连接在请求结束后归还旧池并按原保活时间回收
+        stale.evictAll();
+      }
+    }
+  }
+
+  /**
+   * 当前连接池与调度器的状态.
+   *
+   * @return {@link HttpPoolStats}
+   */
+  public static HttpPoolStats poolStats() {
+    OkHttpClient current = client();
+    return new HttpPoolStats(current.connectionPool().idleConnectionCount(),
+        current.connectionPool().connectionCount(), current.dispatcher().queuedCallsCount(),
+        current.dispatcher().runningCallsCount());
+  }
+
+  /**
+   * 各host的熔断器状态，未设置熔断策略时为空.
+   *
+   * @return host到{@link CircuitStats}的映射
+   */
+  public static Map<String, CircuitStats> circuitStats() {
+    client();
+    CircuitBreakerInterceptor current = circuitBreaker;
+    return current == null ? Collections.<String, CircuitStats>emptyMap() : current.stats();
+  }
+
+  /**
+   * 响应缓存的命中统计，从第一次启用缓存开始累计.
+   *
+   * @return {@link HttpCacheStats}
+   */
+  public static HttpCacheStats cacheStats() {
+    return CACHE_STATS.stats();
   }
 
   private static OkHttpClient client() {
-    if (client == null) {
+    OkHttpClient current = client;
+    if (current == null) {
       synchronized (HttpHelper.class) {
-        if (client == null) {
-          client = new OkHttpClient.Builder().connectTimeout(connectTimeout, TimeUnit.SECONDS)
-              .readTimeout(readTimeout, TimeUnit.SECONDS)
-              .writeTimeout(writeTimeout, TimeUnit.SECONDS).build();
+        current = client;
+        if (current == null) {
+          current = build();
+          client = current;
         }
       }
     }
-    return client;
+    return current;
+  }
+
+  /**
+   * 创建Call并登记到重试拦截器，取消后不再重试，进行中的对冲请求也会被放弃.
+   *
+   * @param request 请求
+   * @return Call
+   */
+  private static Call newCall(Request request) {
+    return RetryInterceptor.watch(client().newCall(request));
+  }
+
+  /**
+   * 按当前配置创建客户端，需持有HttpHelper.class锁.
+   *
+   * @return OkHttpClient
+   */
+  private static OkHttpClient build() {
+    if (connectionPool == null) {
+      connectionPool = new ConnectionPool(config.getMaxIdleConnections(),
+          config.getKeepAliveDuration(), TimeUnit.SECONDS);
+    }
+    if (dispatcher == null) {
+      dispatcher = new Dispatcher();
+    }
+    dispatcher.setMaxRequests(config.getMaxRequests());
+    dispatcher.setMaxRequestsPerHost(config.getMaxRequestsPerHost());
+
+    OkHttpClient.Builder builder = new OkHttpClient.Builder()
+        .connectTimeout(config.getConnectTimeout(), TimeUnit.SECONDS)
+        .readTimeout(config.getReadTimeout(), TimeUnit.SECONDS)
+        .writeTimeout(config.getWriteTimeout(), TimeUnit.SECONDS)
+        .connectionPool(connectionPool).dispatcher(dispatcher);
+    if (config.getProtocols() != null) {
+      builder.protocols(config.getProtocols());
+    }
+    // 最先执行，重试与对冲的每次请求都会压缩
+    builder.addInterceptor(new CompressionInterceptor(config.getCompressionPolicy()));
+    buildCache(builder);
+    if (config.getCircuitBreakerPolicy() == null) {
+      circuitBreaker = null;
+    } else {
+      CircuitBreakerPolicy policy = config.getCircuitBreakerPolicy();
+      if (circuitBreaker == null || circuitBreaker.getPolicy() != policy) {
+        circuitBreaker = new CircuitBreakerInterceptor(policy);
+      }
+      // 熔断器在每次（重试与对冲的）请求上生效
+      builder.addInterceptor(circuitBreaker);
+    }
+    if (config.getMetricsSink() != null || config.getSlowCallThreshold() >= 0) {
+      // 放在最内层，耗时不包括熔断器的并发等待
+      MetricsInterceptor metrics = new MetricsInterceptor(config.getMetricsSink(),
+          config.getSlowCallThreshold());
+      builder.addInterceptor(metrics).addNetworkInterceptor(metrics.network()).dns(metrics.dns())
+          .socketFactory(metrics.socketFactory());
+    }
+
+    OkHttpClient attemptClient = builder.build();
+    OkHttpClient.Builder outerBuilder = attemptClient.newBuilder();
+    if (config.getRetryPolicy() != null) {
+      // 对冲的每次请求使用独立的调度器，限制与主调度器相同；异步请求等待对冲结果时占用着主调度器的名额，共用会互相等待
+      if (attemptDispatcher == null) {
+        attemptDispatcher = new Dispatcher();
+      }
+      attemptDispatcher.setMaxRequests(config.getMaxRequests());
+      attemptDispatcher.setMaxRequestsPerHost(config.getMaxRequestsPerHost());
+      outerBuilder.interceptors().add(0, new RetryInterceptor(config.getRetryPolicy(),
+          attemptClient.newBuilder().dispatcher(attemptDispatcher).build()));
+    }
+    if (diskCache != null || config.getMemoryCache() != null) {
+      // 在最外层统计，重试与对冲只计一次
+      outerBuilder.interceptors().add(0, CACHE_STATS);
+    }
+    return outerBuilder.build();
+  }
+
+  /**
+   * 按配置设置磁盘缓存或内存缓存，目录与容量不变时保留已打开的磁盘缓存.
+   *
+   * @param builder 客户端
+   */
+  private static void buildCache(OkHttpClient.Builder builder) {
+    Preconditions.checkArgument(config.getCacheDirectory() == null
+        || config.getMemoryCache() == null, "cacheDirectory与memoryCache不能同时设置");
+
+    Cache stale = diskCache;
+    if (config.getCacheDirectory() == null) {
+      diskCache = null;
+    } else if (diskCache == null || !diskCache.directory().equals(config.getCacheDirectory())
+        || diskCache.maxSize() != config.getCacheMaxSize()) {
+      diskCache = new Cache(config.getCacheDirectory(), config.getCacheMaxSize());
+    }
+    if (stale != null && stale != diskCache) {
+      try {
+        stale.close();
+      } catch (IOException ex) {
+        ex.printStackTrace();
+      }
+    }
+
+    if (diskCache != null) {
+      builder.cache(diskCache);
+    } else if (config.getMemoryCache() != null) {
+      // 命中缓存时不经过熔断器
+      builder.addInterceptor(new MemoryCacheInterceptor(config.getMemoryCache()));
+    }
   }
 
   /**
@@ -141,10 +474,26 @@ public class HttpHelper {
    */
   public static ResponseDigest requestWithBodyContent(String url, HttpMethod method, String content,
                                                       ContentType type) {
-    Request request = generatePlainRequest(url, method, content, type);
+    return requestWithBodyContent(url, method, content, type, Compression.AUTO);
+  }
+
+  /**
+   * 发送请求，并指定本次请求的压缩方式，Content-Type = application/json或application/xml.
+   *
+   * @param url         请求地址
+   * @param method      请求方法
+   * @param content     请求参数体
+   * @param type        指定请求内容格式，JSON或XML
+   * @param compression 压缩方式
+   * @return response字符串
+   */
+  public static ResponseDigest requestWithBodyContent(String url, HttpMethod method, String content,
+                                                      ContentType type, Compression compression) {
+    Request request = generatePlainRequest(url, method, content, type).newBuilder()
+        .tag(compression).build();
     Response response = null;
     try {
-      response = client().newCall(request).execute();
+      response = newCall(request).execute();
       return ResponseDigest.digest(response.code(), response.message(), response.headers(),
           response.body().contentLength(), response.body().string());
     } catch (IOException ex) {
@@ -159,6 +508,9 @@ public class HttpHelper {
 
   /**
    * 发送请求，并返回二进制流，Content-Type = application/json或application/xml.
+   * <p>
+   * 返回的response持有连接，读取后必须关闭，推荐使用{@link #requestStream(String, HttpMethod, String, ContentType,
+   * StreamConsumer)}
    *
    * @param url     请求地址
    * @param method  请求方法
@@ -171,15 +523,69 @@ public class HttpHelper {
     Request request = generatePlainRequest(url, method, content, type);
     Response response = null;
     try {
-      response = client().newCall(request).execute();
+      response = newCall(request).execute();
       return ResponseDigest.digest(response.code(), response.message(), response.headers(),
-          response.body().contentLength(), response.body().byteStream());
+          response.body());
     } catch (IOException ex) {
       ex.printStackTrace();
       return null;
     }
   }
 
+  /**
+   * 发送请求，响应体以流的方式读取，Content-Type = application/json或application/xml.
+   * <p>
+   * 通过{@link ResponseDigest#getSource()}或{@link ResponseDigest#getReader()}读取响应体，不会先读取为完整的字符串，
+   * 使用后必须调用{@link ResponseDigest#close()}释放连接
+   *
+   * @param url     请求地址
+   * @param method  请求方法
+   * @param content 请求参数体
+   * @param type    指定请求内容格式，JSON或XML
+   * @return response
+   */
+  public static ResponseDigest requestSourceWithBodyContent(String url, HttpMethod method,
+                                                            String content, ContentType type) {
+    Request request = generatePlainRequest(url, method, content, type);
+    try {
+      Response response = newCall(request).execute();
+      return ResponseDigest.digest(response.code(), response.message(), response.headers(),
+          response.body());
+    } catch (IOException ex) {
+      ex.printStackTrace();
+      return null;
+    }
+  }
+
+  /**
+   * 发送请求，并将JSON响应体直接解析为指定类型的对象，Content-Type = application/json或application/xml.
+   * <p>
+   * 响应体边读取边解析，不会生成中间字符串，适合较大的响应
+   *
+   * @param <T>        目标类型
+   * @param url        请求地址
+   * @param method     请求方法
+   * @param content    请求参数体
+   * @param type       指定请求内容格式，JSON或XML
+   * @param clazz      目标类型
+   * @param jsonHelper 使用的JSON实现，如{@link JsonHelper#jackson}
+   * @return 对象，请求失败、状态码不是2xx或解析失败时为null
+   */
+  public static <T> T requestWithBodyContent(String url, HttpMethod method, String content,
+                                             ContentType type, Class<T> clazz,
+                                             JsonHelper jsonHelper) {
+    ResponseDigest digest = requestSourceWithBodyContent(url, method, content, type);
+    if (digest == null) {
+      return null;
+    }
+
+    try {
+      return digest.isSuccessful() ? jsonHelper.fromJson(digest.getReader(), clazz) : null;
+    } finally {
+      digest.close();
+    }
+  }
+
   /**
    * 发送请求，带Form表单数据，Content-Type = application/x-www-form-urlencoded.
    * <p>
@@ -195,7 +601,7 @@ public class HttpHelper {
     Request request = generateFormRequest(url, method, form);
     Response response = null;
     try {
-      response = client().newCall(request).execute();
+      response = newCall(request).execute();
       return ResponseDigest.digest(response.code(), response.message(), response.headers(),
           response.body().contentLength(), response.body().string());
     } catch (IOException ex) {
@@ -211,8 +617,8 @@ public class HttpHelper {
   /**
    * 发送请求，带Form表单数据，并返回二进制流，Content-Type = application/x-www-form-urlencoded.
    * <p>
-   * <p>
-   * 只支持POST，PUT，PATCH，DELETE方法
+   * 只支持POST，PUT，PATCH，DELETE方法，返回的response持有连接，读取后必须关闭，推荐使用
+   * {@link #requestStream(String, HttpMethod, List, StreamConsumer)}
    *
    * @param url    地址
    * @param method 请求方法
@@ -224,9 +630,57 @@ public class HttpHelper {
     Request request = generateFormRequest(url, method, form);
     Response response = null;
     try {
-      response = client().newCall(request).execute();
+      response = newCall(request).execute();
       return ResponseDigest.digest(response.code(), response.message(), response.headers(),
-          response.body().contentLength(), response.body().byteStream());
+          response.body());
+    } catch (IOException ex) {
+      ex.printStackTrace();
+      return null;
+    }
+  }
+
+  /**
+   * 发送请求，在回调中读取response的二进制流，Content-Type = application/json或application/xml.
+   * <p>
+   * 回调返回或抛出异常后response都会被关闭，连接归还连接池
+   *
+   * @param <T>      处理结果类型
+   * @param url      请求地址
+   * @param method   请求方法
+   * @param content  请求参数体
+   * @param type     指定请求内容格式，JSON或XML
+   * @param consumer 处理回调
+   * @return 回调的处理结果，请求失败或回调抛出IOException时为null
+   */
+  public static <T> T requestStream(String url, HttpMethod method, String content,
+                                    ContentType type, StreamConsumer<T> consumer) {
+    return consume(requestStreamWithBodyContent(url, method, content, type), consumer);
+  }
+
+  /**
+   * 发送请求，带Form表单数据，在回调中读取response的二进制流，Content-Type = application/x-www-form-urlencoded.
+   * <p>
+   * 只支持POST，PUT，PATCH，DELETE方法，回调返回或抛出异常后response都会被关闭
+   *
+   * @param <T>      处理结果类型
+   * @param url      地址
+   * @param method   请求方法
+   * @param form     表单数据
+   * @param consumer 处理回调
+   * @return 回调的处理结果，请求失败或回调抛出IOException时为null
+   */
+  public static <T> T requestStream(String url, HttpMethod method, List<FormData> form,
+                                    StreamConsumer<T> consumer) {
+    return consume(requestStreamWithForm(url, method, form), consumer);
+  }
+
+  private static <T> T consume(ResponseDigest digest, StreamConsumer<T> consumer) {
+    if (digest == null) {
+      return null;
+    }
+
+    try (ResponseDigest response = digest) {
+      return consumer.consume(response);
     } catch (IOException ex) {
       ex.printStackTrace();
       return null;
@@ -256,25 +710,10 @@ public class HttpHelper {
    */
   public static ResponseDigest requestWithFile(String url, List<MultiFile> multiFiles,
                                                List<FormData> additionalData) {
-    okhttp3.MultipartBody.Builder builder = new MultipartBody.Builder();
-    builder.setType(MULTI_FORM_TYPE);
-    if (additionalData != null) {
-      for (FormData formData : additionalData) {
-        builder.addFormDataPart(formData.getKey(), formData.getValue());
-      }
-    }
-
-    for (MultiFile multiFile : multiFiles) {
-      MediaType mediaType = MediaType.parse(multiFile.getContentType().getText());
-      builder.addFormDataPart(multiFile.getFileKey(), multiFile.getFileName(),
-          RequestBody.create(mediaType, multiFile.getFile()));
-    }
-
-    RequestBody body = builder.build();
-    Request request = new Request.Builder().url(url).post(body).build();
+    Request request = generateMultipartRequest(url, multiFiles, additionalData);
     Response response = null;
     try {
-      response = client().newCall(request).execute();
+      response = newCall(request).execute();
       return ResponseDigest.digest(response.code(), response.message(), response.headers(),
           response.body().contentLength(), response.body().string());
     } catch (IOException ex) {
@@ -287,4 +726,132 @@ public class HttpHelper {
     }
   }
 
+  /**
+   * 异步发送请求，Content-Type = application/json或application/xml，不阻塞调用线程.
+   * <p>
+   * 请求失败时future以IOException完成，取消future会取消请求
+   *
+   * @param url     请求地址
+   * @param method  请求方法
+   * @param content 请求参数体
+   * @param type    指定请求内容格式，JSON或XML
+   * @return response的future
+   */
+  public static CompletableFuture<ResponseDigest> requestWithBodyContentAsync(
+      String url, HttpMethod method, String content, ContentType type) {
+    return requestWithBodyContentAsync(url, method, content, type, Compression.AUTO);
+  }
+
+  /**
+   * 异步发送请求，并指定本次请求的压缩方式，Content-Type = application/json或application/xml.
+   *
+   * @param url         请求地址
+   * @param method      请求方法
+   * @param content     请求参数体
+   * @param type        指定请求内容格式，JSON或XML
+   * @param compression 压缩方式
+   * @return response的future
+   */
+  public static CompletableFuture<ResponseDigest> requestWithBodyContentAsync(
+      String url, HttpMethod method, String content, ContentType type, Compression compression) {
+    return executeAsync(generatePlainRequest(url, method, content, type).newBuilder()
+        .tag(compression).build());
+  }
+
+  /**
+   * 异步发送请求，带Form表单数据，Content-Type = application/x-www-form-urlencoded.
+   * <p>
+   * 只支持POST，PUT，PATCH，DELETE方法
+   *
+   * @param url    地址
+   * @param method 请求方法
+   * @param form   表单数据
+   * @return response的future
+   */
+  public static CompletableFuture<ResponseDigest> requestWithFormAsync(
+      String url, HttpMethod method, List<FormData> form) {
+    return executeAsync(generateFormRequest(url, method, form));
+  }
+
+  /**
+   * 异步以POST方法上传一个Multipart数据，内含多个文件，Content-Type = multipart/form-data.
+   *
+   * @param url            请求地址
+   * @param multiFiles     多个文件信息
+   * @param additionalData 附加表单数据
+   * @return response的future
+   */
+  public static CompletableFuture<ResponseDigest> requestWithFileAsync(
+      String url, List<MultiFile> multiFiles, List<FormData> additionalData) {
+    return executeAsync(generateMultipartRequest(url, multiFiles, additionalData));
+  }
+
+  /**
+   * 合并多个异步请求的结果，所有请求共用一个截止时间，不阻塞调用线程.
+   * <p>
+   * 请求由各个*Async方法发出后即并行执行，这里只汇总结果。到截止时间仍未完成的请求会被取消，其结果为null；失败的请求结果也为null。
+   * 取消返回的future时同时取消所有未完成的请求
+   *
+   * @param futures 异步请求
+   * @param timeout 总超时
+   * @param unit    超时单位
+   * @return 与futures顺序一致的结果的future
+   */
+  public static CompletableFuture<List<ResponseDigest>> requestAll(
+      final List<CompletableFuture<ResponseDigest>> futures, long timeout, TimeUnit unit) {
+    final List<CompletableFuture<ResponseDigest>> settled = Lists
+        .newArrayListWithCapacity(futures.size());
+    for (CompletableFuture<ResponseDigest> future : futures) {
+      settled.add(future.handle(new BiFunction<ResponseDigest, Throwable, ResponseDigest>() {
+
+        @Override
+        public ResponseDigest apply(ResponseDigest digest, Throwable ex) {
+          if (ex != null && !(ex instanceof CancellationException)) {
+            ex.printStackTrace();
+          }
+          return ex == null ? digest : null;
+        }
+
+      }));
+    }
+
+    final Runnable cancelPending = new Runnable() {
+
+      @Override
+      public void run() {
+        for (CompletableFuture<ResponseDigest> future : futures) {
+          future.cancel(true);
+        }
+      }
+
+    };
+    final ScheduledFuture<?> timer = DEADLINE_SCHEDULER.schedule(cancelPending, timeout, unit);
+    CompletableFuture<List<ResponseDigest>> result = CompletableFuture
+        .allOf(settled.toArray(new CompletableFuture<?>[settled.size()]))
+        .thenApply(new Function<Void, List<ResponseDigest>>() {
+
+          @Override
+          public List<ResponseDigest> apply(Void ignored) {
+            List<ResponseDigest> results = Lists.newArrayListWithCapacity(settled.size());
+            for (CompletableFuture<ResponseDigest> digest : settled) {
+              results.add(digest.join());
+            }
+            return results;
+          }
+
+        });
+    result.whenComplete(new BiConsumer<List<ResponseDigest>, Throwable>() {
+
+      @Override
+      public void accept(List<ResponseDigest> results, Throwable ex) {
+        timer.cancel(false);
+        if (ex instanceof CancellationException) {
+          cancelPending.run();
+        }
+      }
+
+    });
+    return result;
+  }
+
 }
@@ -0,0 +1,384 @@
+package io.github.rcarlosdasilva.kits.net;
+
+import com.google.common.collect.Sets;
+import io.github.rcarlosdasilva.kits.cache.MemoryCacheHelper;
+import io.github.rcarlosdasilva.kits.net.http.HttpStatusCode;
+import okhttp3.CacheControl;
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 将GET请求的响应保存在{@link MemoryCacheHelper}的cache容器中，按Cache-Control、Expires判断是否新鲜，
+ * 过期后使用ETag、Last-Modified发出条件请求，收到304时使用缓存的响应体
+ * <p>
+ * 新鲜度的计算与OkHttp的磁盘缓存一致。响应体在调用方读取时同时复制，读完后才写入缓存，不会预先读取；
+ * Content-Length或实际读取的长度超过{@link #MAX_ENTRY_SIZE}时不缓存
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+final class MemoryCacheInterceptor implements Interceptor {
+
+  static final long MAX_ENTRY_SIZE = 1024 * 1024;
+
+  // 有序，用于二分查找
+  private static final int[] CACHEABLE_CODES = {HttpStatusCode.OK,
+      HttpStatusCode.NON_AUTHORITATIVE_INFORMATION, HttpStatusCode.NO_CONTENT,
+      HttpStatusCode.MULTIPLE_CHOICES, HttpStatusCode.MOVED_PERMANENTLY,
+      HttpStatusCode.PERMANENT_REDIRECT, HttpStatusCode.NOT_FOUND,
+      HttpStatusCode.METHOD_NOT_ALLOWED, HttpStatusCode.GONE, HttpStatusCode.URI_TOO_LONG,
+      HttpStatusCode.NOT_IMPLEMENTED};
+
+  private final String target;
+
+  MemoryCacheInterceptor(String target) {
+    this.target = target;
+  }
+
+  String getTarget() {
+    return target;
+  }
+
+  @Override
+  public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    String key = request.url().toString();
+    if (!"GET".equals(request.method())) {
+      if (!"HEAD".equals(request.method())) {
+        // POST、PUT、DELETE等会修改资源，使缓存失效
+        MemoryCacheHelper.remove(target, key);
+      }
+      return chain.proceed(request);
+    }
+
+    CacheControl requestControl = request.cacheControl();
+    CachedResponse cached = MemoryCacheHelper.get(target, key, CachedResponse.class);
+    if (cached != null && !cached.matches(request)) {
+      cached = null;
+    }
+    if (cached != null && !requestControl.noCache()
+        && cached.isFresh(requestControl, System.currentTimeMillis())) {
+      return cached.toResponse(request, true).newBuilder()
+          .cacheResponse(cached.toResponse(request, false)).build();
+    }
+    if (requestControl.onlyIfCached()) {
+      return new Response.Builder().request(request).protocol(Protocol.HTTP_1_1)
+          .code(HttpStatusCode.GATEWAY_TIMEOUT).message("Unsatisfiable Request (only-if-cached)")
+          .body(ResponseBody.create(null, new byte[0])).build();
+    }
+
+    Request networkRequest = cached == null ? request : cached.conditional(request);
+    Response networkResponse = chain.proceed(networkRequest);
+    if (cached != null && networkResponse.code() == HttpStatusCode.NOT_MODIFIED) {
+      networkResponse.close();
+      CachedResponse updated = cached.revalidate(networkResponse);
+      MemoryCacheHelper.put(target, key, updated);
+      return updated.toResponse(request, true).newBuilder()
+          .cacheResponse(cached.toResponse(request, false))
+          .networkResponse(strip(networkResponse)).build();
+    }
+
+    Response response = cached == null ? networkResponse : networkResponse.newBuilder()
+        .cacheResponse(cached.toResponse(request, false)).build();
+    if (!isCacheable(request, response)) {
+      if (cached != null) {
+        MemoryCacheHelper.remove(target, key);
+      }
+      return response;
+    }
+    if (response.body().contentLength() > MAX_ENTRY_SIZE) {
+      return response;
+    }
+    final ResponseBody body = response.body();
+    final BufferedSource source = Okio.buffer(new CachingSource(body.source(), target, key,
+        request, response));
+    return response.newBuilder().body(new ResponseBody() {
+
+      @Override
+      public MediaType contentType() {
+        return body.contentType();
+      }
+
+      @Override
+      public long contentLength() {
+        return body.contentLength();
+      }
+
+      @Override
+      public BufferedSource source() {
+        return source;
+      }
+
+    }).build();
+  }
+
+  private static Response strip(Response response) {
+    return response.newBuilder().body(null).networkResponse(null).cacheResponse(null)
+        .priorResponse(null).build();
+  }
+
+  private static boolean isCacheable(Request request, Response response) {
+    if (request.cacheControl().noStore() || response.cacheControl().noStore()
+        || Arrays.binarySearch(CACHEABLE_CODES, response.code()) < 0
+        || "*".equals(response.header("Vary"))) {
+      return false;
+    }
+    // 既没有新鲜度信息也没有验证器的响应缓存后无法使用
+    return response.cacheControl().maxAgeSeconds() != -1 || response.header("Expires") != null
+        || response.header("ETag") != null || response.header("Last-Modified") != null;
+  }
+
+  /**
+   * 调用方读取响应体的同时保留一份副本，读完时写入缓存；超过{@link #MAX_ENTRY_SIZE}、读取失败或未读完就关闭时不缓存
+   */
+  private static final class CachingSource extends ForwardingSource {
+
+    private final String target;
+    private final String key;
+    private final Request request;
+    private final Response response;
+    private Buffer copy = new Buffer();
+
+    CachingSource(Source delegate, String target, String key, Request request,
+                  Response response) {
+      super(delegate);
+      this.target = target;
+      this.key = key;
+      this.request = request;
+      this.response = response;
+    }
+
+    @Override
+    public long read(Buffer sink, long byteCount) throws IOException {
+      long read;
+      try {
+        read = super.read(sink, byteCount);
+      } catch (IOException ex) {
+        copy = null;
+        throw ex;
+      }
+
+      if (copy == null) {
+        return read;
+      }
+      if (read == -1) {
+        MemoryCacheHelper.put(target, key,
+            new CachedResponse(request, response, copy.readByteArray()));
+        copy = null;
+      } else if (copy.size() + read > MAX_ENTRY_SIZE) {
+        copy = null;
+      } else {
+        sink.copyTo(copy, sink.size() - read, read);
+      }
+      return read;
+    }
+
+  }
+
+  /**
+   * 缓存的响应，可序列化以便按字节估算权重与写入快照
+   */
+  static final class CachedResponse implements Serializable {
+
+    private static final long serialVersionUID = -3166019744287281540L;
+
+    private final String protocol;
+    private final int code;
+    private final String message;
+    private final String[] headers;
+    private final String[] varyHeaders;
+    private final byte[] body;
+    private final long sentAt;
+    private final long receivedAt;
+
+    CachedResponse(Request request, Response response, byte[] body) {
+      this(response.protocol().toString(), response.code(), response.message(),
+          flatten(response.headers()), flatten(varyHeaders(request, response.headers())), body,
+          response.sentRequestAtMillis(), response.receivedResponseAtMillis());
+    }
+
+    private CachedResponse(String protocol, int code, String message, String[] headers,
+                           String[] varyHeaders, byte[] body, long sentAt, long receivedAt) {
+      this.protocol = protocol;
+      this.code = code;
+      this.message = message;
+      this.headers = headers;
+      this.varyHeaders = varyHeaders;
+      this.body = body;
+      this.sentAt = sentAt;
+      this.receivedAt = receivedAt;
+    }
+
+    /**
+     * 请求中Vary指定的请求头是否与缓存时相同.
+     *
+     * @param request 请求
+     * @return true/false
+     */
+    boolean matches(Request request) {
+      Headers vary = Headers.of(varyHeaders);
+      for (String name : varyNames(Headers.of(headers))) {
+        if (!vary.values(name).equals(request.headers(name))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    boolean isFresh(CacheControl requestControl, long now) {
+      Headers cachedHeaders = Headers.of(headers);
+      CacheControl responseControl = CacheControl.parse(cachedHeaders);
+      if (responseControl.noCache()) {
+        return false;
+      }
+
+      long freshness = freshness(cachedHeaders, responseControl);
+      if (requestControl.maxAgeSeconds() != -1) {
+        freshness = Math.min(freshness, TimeUnit.SECONDS.toMillis(requestControl.maxAgeSeconds()));
+      }
+      long minFresh = requestControl.minFreshSeconds() == -1 ? 0
+          : TimeUnit.SECONDS.toMillis(requestControl.minFreshSeconds());
+      long maxStale = responseControl.mustRevalidate() || requestControl.maxStaleSeconds() == -1
+          ? 0 : TimeUnit.SECONDS.toMillis(requestControl.maxStaleSeconds());
+      return age(cachedHeaders, now) + minFresh < freshness + maxStale;
+    }
+
+    /**
+     * 带上If-None-Match或If-Modified-Since的条件请求.
+     *
+     * @param request 原请求
+     * @return 请求
+     */
+    Request conditional(Request request) {
+      Headers cachedHeaders = Headers.of(headers);
+      String etag = cachedHeaders.get("ETag");
+      if (etag != null) {
+        return request.newBuilder().header("If-None-Match", etag).build();
+      }
+      String lastModified = cachedHeaders.get("Last-Modified");
+      if (lastModified != null) {
+        return request.newBuilder().header("If-Modified-Since", lastModified).build();
+      }
+      return request;
+    }
+
+    /**
+     * 用304响应的头更新缓存的响应，并重新计算新鲜度.
+     *
+     * @param notModified 304响应
+     * @return 更新后的缓存
+     */
+    CachedResponse revalidate(Response notModified) {
+      Headers.Builder merged = Headers.of(headers).newBuilder();
+      Headers updates = notModified.headers();
+      for (String name : updates.names()) {
+        if ("Content-Length".equalsIgnoreCase(name) || "Content-Encoding".equalsIgnoreCase(name)
+            || "Content-Type".equalsIgnoreCase(name)) {
+          continue;
+        }
+        merged.removeAll(name);
+        for (String value : updates.values(name)) {
+          merged.add(name, value);
+        }
+      }
+      return new CachedResponse(protocol, code, message, flatten(merged.build()), varyHeaders,
+          body, notModified.sentRequestAtMillis(), notModified.receivedResponseAtMillis());
+    }
+
+    Response toResponse(Request request, boolean withBody) throws IOException {
+      Headers cachedHeaders = Headers.of(headers);
+      Response.Builder builder = new Response.Builder().request(request)
+          .protocol(Protocol.get(protocol)).code(code).message(message).headers(cachedHeaders)
+          .sentRequestAtMillis(sentAt).receivedResponseAtMillis(receivedAt);
+      if (withBody) {
+        String contentType = cachedHeaders.get("Content-Type");
+        builder.body(ResponseBody.create(contentType == null ? null : MediaType.parse(contentType),
+            body));
+      }
+      return builder.build();
+    }
+
+    private long freshness(Headers cachedHeaders, CacheControl responseControl) {
+      if (responseControl.maxAgeSeconds() != -1) {
+        return TimeUnit.SECONDS.toMillis(responseControl.maxAgeSeconds());
+      }
+
+      Date served = cachedHeaders.getDate("Date");
+      long servedMillis = served == null ? receivedAt : served.getTime();
+      Date expires = cachedHeaders.getDate("Expires");
+      if (expires != null) {
+        return Math.max(0, expires.getTime() - servedMillis);
+      }
+      // 只有Last-Modified时，按距上次修改时间的10%估算，与OkHttp及浏览器的启发式规则一致
+      Date lastModified = cachedHeaders.getDate("Last-Modified");
+      if (lastModified != null && servedMillis > lastModified.getTime()) {
+        return (servedMillis - lastModified.getTime()) / 10;
+      }
+      return 0;
+    }
+
+    private long age(Headers cachedHeaders, long now) {
+      Date served = cachedHeaders.getDate("Date");
+      long apparentAge = served == null ? 0 : Math.max(0, receivedAt - served.getTime());
+      String ageHeader = cachedHeaders.get("Age");
+      if (ageHeader != null) {
+        try {
+          apparentAge = Math.max(apparentAge,
+              TimeUnit.SECONDS.toMillis(Long.parseLong(ageHeader.trim())));
+        } catch (NumberFormatException ex) {
+          // 忽略无效的Age
+        }
+      }
+      return apparentAge + (receivedAt - sentAt) + (now - receivedAt);
+    }
+
+    private static Headers varyHeaders(Request request, Headers responseHeaders) {
+      Headers.Builder builder = new Headers.Builder();
+      for (String name : varyNames(responseHeaders)) {
+        for (String value : request.headers(name)) {
+          builder.add(name, value);
+        }
+      }
+      return builder.build();
+    }
+
+    private static Set<String> varyNames(Headers responseHeaders) {
+      Set<String> names = Sets.newTreeSet(String.CASE_INSENSITIVE_ORDER);
+      for (String vary : responseHeaders.values("Vary")) {
+        for (String name : vary.split(",")) {
+          if (!name.trim().isEmpty()) {
+            names.add(name.trim());
+          }
+        }
+      }
+      return names;
+    }
+
+    private static String[] flatten(Headers headers) {
+      String[] namesAndValues = new String[headers.size() * 2];
+      for (int i = 0; i < headers.size(); i++) {
+        namesAndValues[i * 2] = headers.name(i);
+        namesAndValues[i * 2 + 1] = headers.value(i);
+      }
+      return namesAndValues;
+    }
+
+  }
+
+}
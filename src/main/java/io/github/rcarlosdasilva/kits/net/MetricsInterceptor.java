@@ -0,0 +1,345 @@
+package io.github.rcarlosdasilva.kits.net;
+
+import io.github.rcarlosdasilva.kits.net.http.HttpCallMetrics;
+import io.github.rcarlosdasilva.kits.net.http.HttpMetricsSink;
+import io.github.rcarlosdasilva.kits.net.http.HttpPhase;
+import okhttp3.Dns;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.SocketFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录请求各阶段耗时与传输字节数的拦截器
+ * <p>
+ * OkHttp 3.5没有EventListener，OkHttp在同一个线程中完成域名解析、建立连接与执行拦截器链，因此用ThreadLocal保存当前请求，
+ * 由{@link #dns()}与{@link #socketFactory()}记录解析与TCP连接的耗时，{@link #network()}记录首字节时间与字节数；
+ * 新建的HTTPS连接中扣除解析与TCP连接后剩余的建连时间计为TLS握手
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+final class MetricsInterceptor implements Interceptor {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MetricsInterceptor.class);
+
+  private static final ThreadLocal<CallTrace> CURRENT = new ThreadLocal<CallTrace>();
+
+  private final HttpMetricsSink sink;
+  private final long slowCallThreshold;
+
+  /**
+   * 创建拦截器.
+   *
+   * @param sink              度量数据的接收者，可以为null
+   * @param slowCallThreshold 慢请求日志的阈值（毫秒），小于0时不记录
+   */
+  MetricsInterceptor(HttpMetricsSink sink, long slowCallThreshold) {
+    this.sink = sink;
+    this.slowCallThreshold = slowCallThreshold;
+  }
+
+  @Override
+  public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    final CallTrace trace = new CallTrace(request);
+    CallTrace previous = CURRENT.get();
+    CURRENT.set(trace);
+    Response response;
+    try {
+      response = chain.proceed(request);
+    } catch (IOException ex) {
+      finish(trace, -1, ex);
+      throw ex;
+    } finally {
+      CURRENT.set(previous);
+    }
+
+    final int code = response.code();
+    final ResponseBody body = response.body();
+    if (body == null) {
+      finish(trace, code, null);
+      return response;
+    }
+    Source source = new ForwardingSource(body.source()) {
+
+      private boolean finished = false;
+
+      @Override
+      public long read(Buffer sink, long byteCount) throws IOException {
+        long read = super.read(sink, byteCount);
+        if (read == -1) {
+          done();
+        }
+        return read;
+      }
+
+      @Override
+      public void close() throws IOException {
+        done();
+        super.close();
+      }
+
+      private void done() {
+        if (!finished) {
+          finished = true;
+          finish(trace, code, null);
+        }
+      }
+
+    };
+    return response.newBuilder()
+        .body(ResponseBody.create(body.contentType(), body.contentLength(), Okio.buffer(source)))
+        .build();
+  }
+
+  /**
+   * 记录首字节时间与传输字节数的网络拦截器.
+   *
+   * @return Interceptor
+   */
+  Interceptor network() {
+    return new Interceptor() {
+
+      @Override
+      public Response intercept(Chain chain) throws IOException {
+        final CallTrace trace = CURRENT.get();
+        if (trace == null) {
+          return chain.proceed(chain.request());
+        }
+
+        long sending = System.nanoTime();
+        if (trace.phases[HttpPhase.CONNECT.ordinal()] >= 0 && chain.connection() != null
+            && chain.connection().handshake() != null
+            && trace.phases[HttpPhase.TLS.ordinal()] < 0) {
+          long setup = TimeUnit.NANOSECONDS.toMicros(sending - trace.start);
+          trace.phases[HttpPhase.TLS.ordinal()] = Math.max(0,
+              setup - trace.phases[HttpPhase.CONNECT.ordinal()]
+                  - Math.max(0, trace.phases[HttpPhase.DNS.ordinal()]));
+        }
+
+        Request request = chain.request();
+        if (request.body() != null) {
+          request = request.newBuilder()
+              .method(request.method(), countingBody(request.body(), trace)).build();
+        }
+        Response response = chain.proceed(request);
+        trace.headersAt = System.nanoTime();
+        trace.phases[HttpPhase.TIME_TO_FIRST_BYTE.ordinal()] =
+            TimeUnit.NANOSECONDS.toMicros(trace.headersAt - sending);
+
+        ResponseBody body = response.body();
+        if (body == null) {
+          return response;
+        }
+        Source source = new ForwardingSource(body.source()) {
+
+          @Override
+          public long read(Buffer sink, long byteCount) throws IOException {
+            long read = super.read(sink, byteCount);
+            if (read > 0) {
+              trace.bytesReceived += read;
+            }
+            return read;
+          }
+
+        };
+        return response.newBuilder()
+            .body(ResponseBody.create(body.contentType(), body.contentLength(),
+                Okio.buffer(source)))
+            .build();
+      }
+
+    };
+  }
+
+  /**
+   * 记录域名解析耗时的Dns.
+   *
+   * @return Dns
+   */
+  Dns dns() {
+    return new Dns() {
+
+      @Override
+      public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        long start = System.nanoTime();
+        try {
+          return Dns.SYSTEM.lookup(hostname);
+        } finally {
+          CallTrace trace = CURRENT.get();
+          if (trace != null) {
+            trace.add(HttpPhase.DNS, System.nanoTime() - start);
+          }
+        }
+      }
+
+    };
+  }
+
+  /**
+   * 记录TCP连接耗时的SocketFactory.
+   *
+   * @return SocketFactory
+   */
+  SocketFactory socketFactory() {
+    return new SocketFactory() {
+
+      @Override
+      public Socket createSocket() {
+        return new Socket() {
+
+          @Override
+          public void connect(SocketAddress endpoint, int timeout) throws IOException {
+            long start = System.nanoTime();
+            try {
+              super.connect(endpoint, timeout);
+            } finally {
+              CallTrace trace = CURRENT.get();
+              if (trace != null) {
+                trace.add(HttpPhase.CONNECT, System.nanoTime() - start);
+              }
+            }
+          }
+
+        };
+      }
+
+      @Override
+      public Socket createSocket(String host, int port) throws IOException {
+        Socket socket = createSocket();
+        socket.connect(new InetSocketAddress(host, port));
+        return socket;
+      }
+
+      @Override
+      public Socket createSocket(String host, int port, InetAddress localHost, int localPort)
+          throws IOException {
+        Socket socket = createSocket();
+        socket.bind(new InetSocketAddress(localHost, localPort));
+        socket.connect(new InetSocketAddress(host, port));
+        return socket;
+      }
+
+      @Override
+      public Socket createSocket(InetAddress host, int port) throws IOException {
+        Socket socket = createSocket();
+        socket.connect(new InetSocketAddress(host, port));
+        return socket;
+      }
+
+      @Override
+      public Socket createSocket(InetAddress address, int port, InetAddress localAddress,
+                                 int localPort) throws IOException {
+        Socket socket = createSocket();
+        socket.bind(new InetSocketAddress(localAddress, localPort));
+        socket.connect(new InetSocketAddress(address, port));
+        return socket;
+      }
+
+    };
+  }
+
+  private void finish(CallTrace trace, int code, IOException failure) {
+    long end = System.nanoTime();
+    trace.phases[HttpPhase.TOTAL.ordinal()] = TimeUnit.NANOSECONDS.toMicros(end - trace.start);
+    if (trace.headersAt > 0 && failure == null) {
+      trace.phases[HttpPhase.BODY.ordinal()] = TimeUnit.NANOSECONDS.toMicros(end - trace.headersAt);
+    }
+    HttpCallMetrics metrics = new HttpCallMetrics(trace.host, trace.method, trace.url, code,
+        trace.phases, trace.bytesSent, trace.bytesReceived, failure);
+
+    if (slowCallThreshold >= 0 && TimeUnit.NANOSECONDS.toMillis(end - trace.start)
+        >= slowCallThreshold) {
+      LOGGER.warn("[HttpHelper] - 慢请求：{}", metrics);
+    }
+    if (sink != null) {
+      try {
+        sink.record(metrics);
+      } catch (RuntimeException ex) {
+        LOGGER.error("[HttpHelper] - 记录请求度量数据失败", ex);
+      }
+    }
+  }
+
+  private static RequestBody countingBody(final RequestBody body, final CallTrace trace) {
+    return new RequestBody() {
+
+      @Override
+      public MediaType contentType() {
+        return body.contentType();
+      }
+
+      @Override
+      public long contentLength() throws IOException {
+        return body.contentLength();
+      }
+
+      @Override
+      public void writeTo(BufferedSink sink) throws IOException {
+        BufferedSink counting = Okio.buffer(new ForwardingSink(sink) {
+
+          @Override
+          public void write(Buffer source, long byteCount) throws IOException {
+            super.write(source, byteCount);
+            trace.bytesSent += byteCount;
+          }
+
+        });
+        body.writeTo(counting);
+        counting.emit();
+      }
+
+    };
+  }
+
+  /**
+   * 一次请求的度量数据，只在执行请求与读取响应体的线程中修改
+   */
+  private static final class CallTrace {
+
+    private final String host;
+    private final String method;
+    private final String url;
+    private final long start = System.nanoTime();
+    private final long[] phases = new long[HttpPhase.values().length];
+    private volatile long headersAt = 0;
+    private volatile long bytesSent = 0;
+    private volatile long bytesReceived = 0;
+
+    CallTrace(Request request) {
+      this.host = request.url().host();
+      this.method = request.method();
+      this.url = request.url().toString();
+      Arrays.fill(phases, -1);
+    }
+
+    void add(HttpPhase phase, long nanos) {
+      phases[phase.ordinal()] = Math.max(0, phases[phase.ordinal()])
+          + TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+  }
+
+}
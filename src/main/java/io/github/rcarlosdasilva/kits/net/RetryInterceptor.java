@@ -0,0 +1,439 @@
+package io.github.rcarlosdasilva.kits.net;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
+import io.github.rcarlosdasilva.kits.net.http.CallRejectedException;
+import io.github.rcarlosdasilva.kits.net.http.RetryPolicy;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按{@link RetryPolicy}重试与对冲请求的拦截器
+ * <p>
+ * 重试在当前线程中等待，异步请求会占用调度器的线程。对冲的每次请求使用不带本拦截器的客户端异步发出，
+ * 由其独立的调度器限制并发，与主客户端共用连接池；
+ * 拦截器无法取得外层的Call，由{@link #watch(Call)}包装并登记后，外层Call被取消时不再重试，对冲发出的所有请求也会被一同取消
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+final class RetryInterceptor implements Interceptor {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RetryInterceptor.class);
+
+  private static final ConcurrentMap<Request, WatchedCall> CALLS = new MapMaker().weakKeys()
+      .weakValues().makeMap();
+
+  private final RetryPolicy policy;
+  private final OkHttpClient attemptClient;
+  private final ConcurrentMap<String, LatencyWindow> latencies = Maps.newConcurrentMap();
+  private final ConcurrentMap<String, Semaphore> hedges = Maps.newConcurrentMap();
+
+  RetryInterceptor(RetryPolicy policy, OkHttpClient attemptClient) {
+    this.policy = policy;
+    this.attemptClient = attemptClient;
+  }
+
+  /**
+   * 包装并登记外层的Call，按其原始请求对应到拦截器中的请求.
+   *
+   * @param call Call
+   * @return 取消时同时取消对冲请求的Call
+   */
+  static Call watch(Call call) {
+    WatchedCall watched = new WatchedCall(call);
+    CALLS.put(call.request(), watched);
+    return watched;
+  }
+
+  private static boolean isCanceled(Request request) {
+    Call call = CALLS.get(request);
+    return call != null && call.isCanceled();
+  }
+
+  @Override
+  public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    boolean retryable = policy.isRetryable(request.method());
+    boolean hedged = retryable && policy.isHedging();
+
+    int retry = 0;
+    while (true) {
+      Response response;
+      try {
+        response = hedged ? hedge(chain) : chain.proceed(request);
+      } catch (IOException ex) {
+        if (!retryable || retry >= policy.getMaxRetries() || isCanceled(request)
+            || ex instanceof CallRejectedException) {
+          throw ex;
+        }
+        LOGGER.debug("[HttpHelper] - 请求失败，准备第{}次重试：{}", retry + 1, request.url(), ex);
+        sleep(policy.backoff(retry, ThreadLocalRandom.current().nextDouble()));
+        retry++;
+        continue;
+      }
+
+      if (!retryable || retry >= policy.getMaxRetries()
+          || !policy.getRetryStatusCodes().contains(response.code())) {
+        return response;
+      }
+      long retryAfter = retryAfter(response);
+      if (retryAfter > policy.getMaxRetryAfter()) {
+        return response;
+      }
+
+      LOGGER.debug("[HttpHelper] - 响应状态码{}，准备第{}次重试：{}", response.code(), retry + 1,
+          request.url());
+      response.close();
+      sleep(Math.max(retryAfter,
+          policy.backoff(retry, ThreadLocalRandom.current().nextDouble())));
+      retry++;
+    }
+  }
+
+  /**
+   * 发出请求，超过对冲等待时间仍未响应时再发出一个相同的请求，返回先成功的响应.
+   * <p>
+   * 不对冲时直接在拦截器链中执行；对冲的请求登记到外层Call，外层Call被取消时全部取消，包括已返回的响应。
+   * 返回或抛出异常前放弃其余的请求
+   *
+   * @param chain 拦截器链
+   * @return 响应
+   * @throws IOException 所有请求都失败，或外层Call被取消
+   */
+  private Response hedge(Chain chain) throws IOException {
+    Request request = chain.request();
+    String host = request.url().host();
+    LatencyWindow window = latencies.get(host);
+    if (window == null) {
+      LatencyWindow created = new LatencyWindow();
+      window = latencies.putIfAbsent(host, created);
+      if (window == null) {
+        window = created;
+      }
+    }
+
+    long delay = policy.getHedgeDelay() > 0 ? policy.getHedgeDelay() : window.p95();
+    if (delay <= 0) {
+      // 样本不足时不对冲
+      long start = System.nanoTime();
+      Response response = chain.proceed(request);
+      window.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      return response;
+    }
+
+    WatchedCall outer = CALLS.get(request);
+    BlockingQueue<Attempt> completed = Queues.newLinkedBlockingQueue();
+    List<Attempt> attempts = Lists.newArrayListWithCapacity(2);
+    attempts.add(start(request, window, completed, outer, null));
+
+    Attempt winner = null;
+    IOException failure = null;
+    try {
+      Attempt done = completed.poll(delay, TimeUnit.MILLISECONDS);
+      if (done == null && !isCanceled(request)) {
+        Semaphore permits = hedgePermits(host);
+        if (permits.tryAcquire()) {
+          LOGGER.debug("[HttpHelper] - {}ms内未响应，发出对冲请求：{}", delay, request.url());
+          attempts.add(start(request, window, completed, outer, permits));
+        } else {
+          LOGGER.debug("[HttpHelper] - 对冲请求数已达上限，继续等待：{}", request.url());
+        }
+      }
+
+      for (int pending = attempts.size(); pending > 0; pending--) {
+        if (done == null) {
+          done = completed.take();
+        }
+        Response response = done.getResponse();
+        if (response != null) {
+          winner = done;
+          return response;
+        }
+        failure = done.getFailure();
+        done = null;
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for hedged request");
+    } finally {
+      for (Attempt attempt : attempts) {
+        if (attempt == winner) {
+          attempt.deliver();
+        } else {
+          attempt.abandon();
+        }
+      }
+    }
+    throw failure;
+  }
+
+  /**
+   * 在对冲调度器中发出一次请求，完成后放入completed.
+   *
+   * @param request   请求
+   * @param window    耗时窗口
+   * @param completed 已完成的请求
+   * @param outer     外层Call，可为null
+   * @param permits   对冲请求占用的名额，第一次请求为null
+   * @return 请求
+   */
+  private Attempt start(Request request, LatencyWindow window, BlockingQueue<Attempt> completed,
+                        WatchedCall outer, Semaphore permits) {
+    Attempt attempt = new Attempt(attemptClient.newCall(request), window, completed, permits);
+    if (outer != null) {
+      outer.attach(attempt);
+    }
+    attempt.enqueue();
+    return attempt;
+  }
+
+  private Semaphore hedgePermits(String host) {
+    Semaphore permits = hedges.get(host);
+    if (permits == null) {
+      Semaphore created = new Semaphore(policy.getMaxHedgesPerHost());
+      permits = hedges.putIfAbsent(host, created);
+      if (permits == null) {
+        permits = created;
+      }
+    }
+    return permits;
+  }
+
+  /**
+   * 解析Retry-After，支持秒数与HTTP日期两种格式.
+   *
+   * @param response 响应
+   * @return 毫秒，没有该响应头时为0
+   */
+  private static long retryAfter(Response response) {
+    String value = response.header("Retry-After");
+    if (value == null) {
+      return 0;
+    }
+
+    try {
+      return TimeUnit.SECONDS.toMillis(Long.parseLong(value.trim()));
+    } catch (NumberFormatException ex) {
+      Date date = response.headers().getDate("Retry-After");
+      return date == null ? 0 : Math.max(0, date.getTime() - System.currentTimeMillis());
+    }
+  }
+
+  private static void sleep(long millis) throws InterruptedIOException {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to retry");
+    }
+  }
+
+  /**
+   * 一次请求，被放弃后返回的响应会立即关闭；已交给调用方的响应只取消其Call，连接断开后由读取方关闭
+   */
+  private static final class Attempt implements Callback {
+
+    private final Call call;
+    private final LatencyWindow window;
+    private final BlockingQueue<Attempt> completed;
+    private final Semaphore permits;
+    private long start;
+    private boolean abandoned = false;
+    private Response response;
+    private IOException failure;
+
+    Attempt(Call call, LatencyWindow window, BlockingQueue<Attempt> completed, Semaphore permits) {
+      this.call = call;
+      this.window = window;
+      this.completed = completed;
+      this.permits = permits;
+    }
+
+    void enqueue() {
+      start = System.nanoTime();
+      call.enqueue(this);
+    }
+
+    @Override
+    public void onResponse(Call call, Response result) {
+      window.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      synchronized (this) {
+        if (abandoned) {
+          result.close();
+          failure = new IOException("Canceled");
+        } else {
+          response = result;
+        }
+      }
+      complete();
+    }
+
+    @Override
+    public void onFailure(Call call, IOException ex) {
+      synchronized (this) {
+        failure = ex;
+      }
+      complete();
+    }
+
+    private void complete() {
+      if (permits != null) {
+        permits.release();
+      }
+      completed.add(this);
+    }
+
+    synchronized Response getResponse() {
+      return response;
+    }
+
+    synchronized IOException getFailure() {
+      return failure;
+    }
+
+    /**
+     * 响应已交给调用方，之后放弃时不再关闭，避免与读取响应体的线程同时操作.
+     */
+    synchronized void deliver() {
+      response = null;
+    }
+
+    void abandon() {
+      call.cancel();
+      synchronized (this) {
+        abandoned = true;
+        if (response != null) {
+          response.close();
+          response = null;
+        }
+      }
+    }
+
+  }
+
+  /**
+   * 外层的Call，取消时同时放弃所有登记的对冲请求
+   */
+  private static final class WatchedCall implements Call {
+
+    private final Call delegate;
+    private final List<Attempt> attempts = Lists.newArrayList();
+
+    WatchedCall(Call delegate) {
+      this.delegate = delegate;
+    }
+
+    /**
+     * 登记对冲请求，已被取消时立即放弃.
+     *
+     * @param attempt 请求
+     */
+    void attach(Attempt attempt) {
+      synchronized (attempts) {
+        if (!delegate.isCanceled()) {
+          attempts.add(attempt);
+          return;
+        }
+      }
+      attempt.abandon();
+    }
+
+    @Override
+    public Request request() {
+      return delegate.request();
+    }
+
+    @Override
+    public Response execute() throws IOException {
+      return delegate.execute();
+    }
+
+    @Override
+    public void enqueue(Callback responseCallback) {
+      delegate.enqueue(responseCallback);
+    }
+
+    @Override
+    public void cancel() {
+      List<Attempt> abandoned;
+      synchronized (attempts) {
+        delegate.cancel();
+        abandoned = Lists.newArrayList(attempts);
+        attempts.clear();
+      }
+      for (Attempt attempt : abandoned) {
+        attempt.abandon();
+      }
+    }
+
+    @Override
+    public boolean isExecuted() {
+      return delegate.isExecuted();
+    }
+
+    @Override
+    public boolean isCanceled() {
+      return delegate.isCanceled();
+    }
+
+    @Override
+    public Call clone() {
+      return watch(delegate.clone());
+    }
+
+  }
+
+  /**
+   * 最近请求耗时的滑动窗口
+   */
+  private static final class LatencyWindow {
+
+    private static final int SAMPLES = 128;
+    private static final int MIN_SAMPLES = 20;
+
+    private final long[] samples = new long[SAMPLES];
+    private int count = 0;
+    private int next = 0;
+
+    synchronized void record(long millis) {
+      samples[next] = millis;
+      next = (next + 1) % SAMPLES;
+      count = Math.min(count + 1, SAMPLES);
+    }
+
+    /**
+     * 耗时的p95.
+     *
+     * @return 毫秒，样本不足时为0
+     */
+    synchronized long p95() {
+      if (count < MIN_SAMPLES) {
+        return 0;
+      }
+      long[] sorted = Arrays.copyOf(samples, count);
+      Arrays.sort(sorted);
+      return Math.max(1, sorted[(int) Math.ceil(count * 0.95) - 1]);
+    }
+
+  }
+
+}
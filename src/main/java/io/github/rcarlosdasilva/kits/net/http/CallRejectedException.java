@@ -0,0 +1,46 @@
+package io.github.rcarlosdasilva.kits.net.http;
+
+import java.io.IOException;
+
+/**
+ * 请求被熔断器或并发隔离拒绝，请求没有发出
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public class CallRejectedException extends IOException {
+
+  private static final long serialVersionUID = 6720190563617441290L;
+
+  private final String host;
+  private final Reason reason;
+
+  public CallRejectedException(String host, Reason reason) {
+    super((reason == Reason.CIRCUIT_OPEN ? "Circuit breaker is open for host "
+        : "Too many concurrent calls to host ") + host);
+    this.host = host;
+    this.reason = reason;
+  }
+
+  public String getHost() {
+    return host;
+  }
+
+  public Reason getReason() {
+    return reason;
+  }
+
+  /**
+   * 拒绝原因
+   */
+  public enum Reason {
+    /**
+     * 熔断器打开，或半开状态下试探请求已满
+     */
+    CIRCUIT_OPEN,
+    /**
+     * 对该host的并发请求数已达上限
+     */
+    BULKHEAD_FULL
+  }
+
+}
@@ -0,0 +1,143 @@
+package io.github.rcarlosdasilva.kits.net.http;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * 按host的熔断与并发隔离策略，时间单位均为毫秒
+ * <p>
+ * 每个host记录最近windowSize次请求的结果，请求数达到minimumCalls后，失败率或慢请求率达到阈值时熔断器打开，
+ * 之后openDuration内对该host的请求直接以{@link CallRejectedException}失败，不占用连接与线程。到期后进入半开状态，
+ * 放行halfOpenCalls个试探请求，试探结果低于阈值则关闭熔断器，否则再次打开。
+ * <p>
+ * IO异常与5xx响应计为失败，耗时达到slowCallDuration的请求计为慢请求，耗时从发出请求到收到响应头为止。
+ * maxConcurrentCallsPerHost限制对同一个host同时进行的请求数，超出时等待bulkheadWait，仍无空位则拒绝
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public class CircuitBreakerPolicy {
+
+  private int windowSize = 100;
+  private int minimumCalls = 20;
+  private double failureRateThreshold = 0.5;
+  private double slowCallRateThreshold = 1;
+  private long slowCallDuration = 5000;
+  private long openDuration = 30000;
+  private int halfOpenCalls = 5;
+  private int maxConcurrentCallsPerHost = -1;
+  private long bulkheadWait = 0;
+
+  public int getWindowSize() {
+    return windowSize;
+  }
+
+  /**
+   * 统计最近多少次请求，默认100.
+   *
+   * @param windowSize 请求数
+   */
+  public void setWindowSize(int windowSize) {
+    Preconditions.checkArgument(windowSize > 0);
+    this.windowSize = windowSize;
+  }
+
+  public int getMinimumCalls() {
+    return minimumCalls;
+  }
+
+  /**
+   * 统计的请求数达到该值后才计算失败率，默认20.
+   *
+   * @param minimumCalls 请求数
+   */
+  public void setMinimumCalls(int minimumCalls) {
+    this.minimumCalls = minimumCalls;
+  }
+
+  public double getFailureRateThreshold() {
+    return failureRateThreshold;
+  }
+
+  /**
+   * 失败率阈值，0到1之间，默认0.5.
+   *
+   * @param failureRateThreshold 失败率
+   */
+  public void setFailureRateThreshold(double failureRateThreshold) {
+    this.failureRateThreshold = failureRateThreshold;
+  }
+
+  public double getSlowCallRateThreshold() {
+    return slowCallRateThreshold;
+  }
+
+  /**
+   * 慢请求率阈值，0到1之间，默认1（只有全部请求都慢时才打开）.
+   *
+   * @param slowCallRateThreshold 慢请求率
+   */
+  public void setSlowCallRateThreshold(double slowCallRateThreshold) {
+    this.slowCallRateThreshold = slowCallRateThreshold;
+  }
+
+  public long getSlowCallDuration() {
+    return slowCallDuration;
+  }
+
+  public void setSlowCallDuration(long slowCallDuration) {
+    this.slowCallDuration = slowCallDuration;
+  }
+
+  public long getOpenDuration() {
+    return openDuration;
+  }
+
+  /**
+   * 熔断器打开后多久进入半开状态，默认30秒.
+   *
+   * @param openDuration 毫秒
+   */
+  public void setOpenDuration(long openDuration) {
+    this.openDuration = openDuration;
+  }
+
+  public int getHalfOpenCalls() {
+    return halfOpenCalls;
+  }
+
+  /**
+   * 半开状态下放行的试探请求数，默认5.
+   *
+   * @param halfOpenCalls 请求数
+   */
+  public void setHalfOpenCalls(int halfOpenCalls) {
+    Preconditions.checkArgument(halfOpenCalls > 0);
+    this.halfOpenCalls = halfOpenCalls;
+  }
+
+  public int getMaxConcurrentCallsPerHost() {
+    return maxConcurrentCallsPerHost;
+  }
+
+  /**
+   * 对同一个host同时进行的请求数上限，包括同步请求，小于等于0不限制.
+   *
+   * @param maxConcurrentCallsPerHost 请求数
+   */
+  public void setMaxConcurrentCallsPerHost(int maxConcurrentCallsPerHost) {
+    this.maxConcurrentCallsPerHost = maxConcurrentCallsPerHost;
+  }
+
+  public long getBulkheadWait() {
+    return bulkheadWait;
+  }
+
+  /**
+   * 并发数已满时等待空位的时间，默认0，即立即拒绝.
+   *
+   * @param bulkheadWait 毫秒
+   */
+  public void setBulkheadWait(long bulkheadWait) {
+    this.bulkheadWait = bulkheadWait;
+  }
+
+}
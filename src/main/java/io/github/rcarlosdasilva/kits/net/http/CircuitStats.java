@@ -0,0 +1,86 @@
+package io.github.rcarlosdasilva.kits.net.http;
+
+/**
+ * 单个host的熔断器与并发隔离状态快照
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public class CircuitStats {
+
+  private String host;
+  private State state;
+  private double failureRate;
+  private double slowCallRate;
+  private int bufferedCalls;
+  private long rejectedCalls;
+  private int activeCalls;
+
+  public CircuitStats(String host, State state, double failureRate, double slowCallRate,
+                      int bufferedCalls, long rejectedCalls, int activeCalls) {
+    this.host = host;
+    this.state = state;
+    this.failureRate = failureRate;
+    this.slowCallRate = slowCallRate;
+    this.bufferedCalls = bufferedCalls;
+    this.rejectedCalls = rejectedCalls;
+    this.activeCalls = activeCalls;
+  }
+
+  public String getHost() {
+    return host;
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  /**
+   * 统计窗口内的失败率.
+   *
+   * @return 0到1之间，请求数不足minimumCalls时为-1
+   */
+  public double getFailureRate() {
+    return failureRate;
+  }
+
+  /**
+   * 统计窗口内的慢请求率.
+   *
+   * @return 0到1之间，请求数不足minimumCalls时为-1
+   */
+  public double getSlowCallRate() {
+    return slowCallRate;
+  }
+
+  public int getBufferedCalls() {
+    return bufferedCalls;
+  }
+
+  /**
+   * 累计被拒绝的请求数，包括熔断与并发隔离.
+   *
+   * @return 请求数
+   */
+  public long getRejectedCalls() {
+    return rejectedCalls;
+  }
+
+  public int getActiveCalls() {
+    return activeCalls;
+  }
+
+  @Override
+  public String toString() {
+    return "CircuitStats{host=" + host + ", state=" + state + ", failureRate=" + failureRate
+        + ", slowCallRate=" + slowCallRate + ", bufferedCalls=" + bufferedCalls
+        + ", rejectedCalls=" + rejectedCalls + ", activeCalls=" + activeCalls + "}";
+  }
+
+  /**
+   * 熔断器状态
+   */
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+}
@@ -0,0 +1,23 @@
+package io.github.rcarlosdasilva.kits.net.http;
+
+/**
+ * 单次请求的压缩方式，优先于{@link CompressionPolicy}
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public enum Compression {
+
+  /**
+   * 按HttpConfig中的{@link CompressionPolicy}决定，未配置时不压缩请求体，响应使用gzip.
+   */
+  AUTO,
+  /**
+   * 无论大小都以gzip压缩请求体，响应使用gzip.
+   */
+  GZIP,
+  /**
+   * 不压缩请求体，并要求服务器返回未压缩的响应（Accept-Encoding: identity）.
+   */
+  NONE
+
+}
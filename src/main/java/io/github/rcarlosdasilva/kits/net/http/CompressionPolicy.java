@@ -0,0 +1,74 @@
+package io.github.rcarlosdasilva.kits.net.http;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Set;
+
+/**
+ * 请求与响应的压缩策略
+ * <p>
+ * 对JSON、XML、文本与表单请求，请求体不小于requestThreshold时以gzip压缩并加上Content-Encoding: gzip，压缩在写出请求时流式进行，
+ * 请求以chunked方式发送；服务器需要支持解压请求体，可以用hosts限定只对这些host生效。
+ * <p>
+ * 响应默认协商gzip，由OkHttp在读取时流式解压；responseCompression为false时要求服务器返回未压缩的响应，适用于内网等带宽充足的场景
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public class CompressionPolicy {
+
+  public static final long DEFAULT_REQUEST_THRESHOLD = 8192;
+
+  private long requestThreshold = DEFAULT_REQUEST_THRESHOLD;
+  private Set<String> hosts = ImmutableSet.of();
+  private boolean responseCompression = true;
+
+  /**
+   * 策略是否对该host生效.
+   *
+   * @param host host
+   * @return true/false
+   */
+  public boolean appliesTo(String host) {
+    return hosts.isEmpty() || hosts.contains(host);
+  }
+
+  public long getRequestThreshold() {
+    return requestThreshold;
+  }
+
+  /**
+   * 压缩请求体的最小字节数，默认8KB，小于0时不压缩请求体.
+   *
+   * @param requestThreshold 字节数
+   */
+  public void setRequestThreshold(long requestThreshold) {
+    this.requestThreshold = requestThreshold;
+  }
+
+  public Set<String> getHosts() {
+    return hosts;
+  }
+
+  /**
+   * 策略生效的host，为空时对所有host生效；其他host使用OkHttp的默认行为.
+   *
+   * @param hosts host
+   */
+  public void setHosts(Set<String> hosts) {
+    this.hosts = ImmutableSet.copyOf(hosts);
+  }
+
+  public boolean isResponseCompression() {
+    return responseCompression;
+  }
+
+  /**
+   * 是否协商压缩的响应，默认true.
+   *
+   * @param responseCompression 是否压缩
+   */
+  public void setResponseCompression(boolean responseCompression) {
+    this.responseCompression = responseCompression;
+  }
+
+}
@@ -0,0 +1,81 @@
+package io.github.rcarlosdasilva.kits.net.http;
+
+/**
+ * HttpHelper响应缓存的统计快照，只统计GET请求
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public class HttpCacheStats {
+
+  private long requestCount;
+  private long hitCount;
+  private long conditionalHitCount;
+  private long networkCount;
+  private long savedBytes;
+
+  public HttpCacheStats(long requestCount, long hitCount, long conditionalHitCount,
+                        long networkCount, long savedBytes) {
+    this.requestCount = requestCount;
+    this.hitCount = hitCount;
+    this.conditionalHitCount = conditionalHitCount;
+    this.networkCount = networkCount;
+    this.savedBytes = savedBytes;
+  }
+
+  public long getRequestCount() {
+    return requestCount;
+  }
+
+  /**
+   * 直接使用缓存、没有发出请求的次数.
+   *
+   * @return 次数
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * 发出条件请求并收到304、使用缓存响应体的次数.
+   *
+   * @return 次数
+   */
+  public long getConditionalHitCount() {
+    return conditionalHitCount;
+  }
+
+  /**
+   * 从服务器获取了完整响应的次数.
+   *
+   * @return 次数
+   */
+  public long getNetworkCount() {
+    return networkCount;
+  }
+
+  /**
+   * 命中与条件命中时由缓存提供、不需要下载的响应体字节数，响应体长度未知时不计入.
+   *
+   * @return 字节数
+   */
+  public long getSavedBytes() {
+    return savedBytes;
+  }
+
+  /**
+   * 命中率，包括条件命中.
+   *
+   * @return 0到1之间，没有请求时为0
+   */
+  public double getHitRate() {
+    return requestCount == 0 ? 0 : (hitCount + conditionalHitCount) / (double) requestCount;
+  }
+
+  @Override
+  public String toString() {
+    return "HttpCacheStats{requestCount=" + requestCount + ", hitCount=" + hitCount
+        + ", conditionalHitCount=" + conditionalHitCount + ", networkCount=" + networkCount
+        + ", savedBytes=" + savedBytes + "}";
+  }
+
+}
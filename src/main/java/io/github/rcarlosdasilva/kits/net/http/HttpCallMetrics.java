@@ -0,0 +1,97 @@
+package io.github.rcarlosdasilva.kits.net.http;
+
+import java.io.IOException;
+
+/**
+ * 一次HTTP请求的度量数据，耗时单位为微秒
+ * <p>
+ * 重试与对冲的每次请求分别记录；字节数只包括请求体与响应体，响应体按压缩后实际传输的字节计算
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public class HttpCallMetrics {
+
+  private final String host;
+  private final String method;
+  private final String url;
+  private final int code;
+  private final long[] phases;
+  private final long bytesSent;
+  private final long bytesReceived;
+  private final IOException failure;
+
+  public HttpCallMetrics(String host, String method, String url, int code, long[] phases,
+                         long bytesSent, long bytesReceived, IOException failure) {
+    this.host = host;
+    this.method = method;
+    this.url = url;
+    this.code = code;
+    this.phases = phases.clone();
+    this.bytesSent = bytesSent;
+    this.bytesReceived = bytesReceived;
+    this.failure = failure;
+  }
+
+  public String getHost() {
+    return host;
+  }
+
+  public String getMethod() {
+    return method;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  /**
+   * 响应状态码.
+   *
+   * @return 状态码，请求失败时为-1
+   */
+  public int getCode() {
+    return code;
+  }
+
+  /**
+   * 某个阶段的耗时.
+   *
+   * @param phase 阶段
+   * @return 微秒，没有经过该阶段时为-1
+   */
+  public long getPhase(HttpPhase phase) {
+    return phases[phase.ordinal()];
+  }
+
+  public long getBytesSent() {
+    return bytesSent;
+  }
+
+  public long getBytesReceived() {
+    return bytesReceived;
+  }
+
+  /**
+   * 请求失败的原因.
+   *
+   * @return 异常，成功收到响应时为null
+   */
+  public IOException getFailure() {
+    return failure;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("HttpCallMetrics{").append(method).append(' ').append(url)
+        .append(", code=").append(code);
+    for (HttpPhase phase : HttpPhase.values()) {
+      if (phases[phase.ordinal()] >= 0) {
+        sb.append(", ").append(phase.name().toLowerCase()).append('=')
+            .append(phases[phase.ordinal()] / 1000.0).append("ms");
+      }
+    }
+    return sb.append(", bytesSent=").append(bytesSent).append(", bytesReceived=")
+        .append(bytesReceived).append('}').toString();
+  }
+
+}
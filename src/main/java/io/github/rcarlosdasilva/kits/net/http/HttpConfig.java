@@ -0,0 +1,272 @@
+package io.github.rcarlosdasilva.kits.net.http;
+
+import com.google.common.collect.ImmutableList;
+import okhttp3.Protocol;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * HttpHelper的客户端配置，超时与保活时间单位均为秒
+ * <p>
+ * 通过HttpHelper.rebuild(HttpConfig)生效，连接池参数不变时会保留已建立的连接
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public class HttpConfig {
+
+  public static final int DEFAULT_CONNECT_TIMEOUT = 5;
+  public static final int DEFAULT_READ_TIMEOUT = 60;
+  public static final int DEFAULT_WRITE_TIMEOUT = 60;
+  public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+  public static final long DEFAULT_KEEP_ALIVE_DURATION = 300;
+  public static final int DEFAULT_MAX_REQUESTS = 64;
+  public static final int DEFAULT_MAX_REQUESTS_PER_HOST = 5;
+  public static final long DEFAULT_CACHE_MAX_SIZE = 10 * 1024 * 1024;
+
+  private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+  private int readTimeout = DEFAULT_READ_TIMEOUT;
+  private int writeTimeout = DEFAULT_WRITE_TIMEOUT;
+  private int maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+  private long keepAliveDuration = DEFAULT_KEEP_ALIVE_DURATION;
+  private int maxRequests = DEFAULT_MAX_REQUESTS;
+  private int maxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST;
+  private List<Protocol> protocols;
+  private RetryPolicy retryPolicy;
+  private CircuitBreakerPolicy circuitBreakerPolicy;
+  private File cacheDirectory;
+  private long cacheMaxSize = DEFAULT_CACHE_MAX_SIZE;
+  private String memoryCache;
+  private CompressionPolicy compressionPolicy;
+  private HttpMetricsSink metricsSink;
+  private long slowCallThreshold = -1;
+
+  public HttpConfig() {
+  }
+
+  /**
+   * 复制一份配置.
+   *
+   * @param other 源配置
+   */
+  public HttpConfig(HttpConfig other) {
+    this.connectTimeout = other.connectTimeout;
+    this.readTimeout = other.readTimeout;
+    this.writeTimeout = other.writeTimeout;
+    this.maxIdleConnections = other.maxIdleConnections;
+    this.keepAliveDuration = other.keepAliveDuration;
+    this.maxRequests = other.maxRequests;
+    this.maxRequestsPerHost = other.maxRequestsPerHost;
+    this.protocols = other.protocols;
+    this.retryPolicy = other.retryPolicy;
+    this.circuitBreakerPolicy = other.circuitBreakerPolicy;
+    this.cacheDirectory = other.cacheDirectory;
+    this.cacheMaxSize = other.cacheMaxSize;
+    this.memoryCache = other.memoryCache;
+    this.compressionPolicy = other.compressionPolicy;
+    this.metricsSink = other.metricsSink;
+    this.slowCallThreshold = other.slowCallThreshold;
+  }
+
+  public int getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public void setConnectTimeout(int connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
+
+  public int getReadTimeout() {
+    return readTimeout;
+  }
+
+  public void setReadTimeout(int readTimeout) {
+    this.readTimeout = readTimeout;
+  }
+
+  public int getWriteTimeout() {
+    return writeTimeout;
+  }
+
+  public void setWriteTimeout(int writeTimeout) {
+    this.writeTimeout = writeTimeout;
+  }
+
+  public int getMaxIdleConnections() {
+    return maxIdleConnections;
+  }
+
+  /**
+   * 连接池中最多保持的空闲连接数，默认5.
+   *
+   * @param maxIdleConnections 空闲连接数
+   */
+  public void setMaxIdleConnections(int maxIdleConnections) {
+    this.maxIdleConnections = maxIdleConnections;
+  }
+
+  public long getKeepAliveDuration() {
+    return keepAliveDuration;
+  }
+
+  /**
+   * 空闲连接的保活时间（秒），默认5分钟.
+   *
+   * @param keepAliveDuration 保活时间
+   */
+  public void setKeepAliveDuration(long keepAliveDuration) {
+    this.keepAliveDuration = keepAliveDuration;
+  }
+
+  public int getMaxRequests() {
+    return maxRequests;
+  }
+
+  /**
+   * 同时执行的异步请求总数上限，默认64.
+   *
+   * @param maxRequests 请求数
+   */
+  public void setMaxRequests(int maxRequests) {
+    this.maxRequests = maxRequests;
+  }
+
+  public int getMaxRequestsPerHost() {
+    return maxRequestsPerHost;
+  }
+
+  /**
+   * 对同一个host同时执行的异步请求数上限，默认5，超出的请求排队等待.
+   *
+   * @param maxRequestsPerHost 请求数
+   */
+  public void setMaxRequestsPerHost(int maxRequestsPerHost) {
+    this.maxRequestsPerHost = maxRequestsPerHost;
+  }
+
+  public List<Protocol> getProtocols() {
+    return protocols;
+  }
+
+  /**
+   * 支持的协议，按优先顺序，必须包含HTTP_1_1；不设置时使用OkHttp默认的HTTP/2与HTTP/1.1.
+   * <p>
+   * 只使用HTTP/1.1时设置为[HTTP_1_1]
+   *
+   * @param protocols 协议
+   */
+  public void setProtocols(List<Protocol> protocols) {
+    this.protocols = protocols == null ? null : ImmutableList.copyOf(protocols);
+  }
+
+  public RetryPolicy getRetryPolicy() {
+    return retryPolicy;
+  }
+
+  /**
+   * 重试与对冲策略，不设置时不重试.
+   *
+   * @param retryPolicy 重试策略
+   */
+  public void setRetryPolicy(RetryPolicy retryPolicy) {
+    this.retryPolicy = retryPolicy;
+  }
+
+  public CircuitBreakerPolicy getCircuitBreakerPolicy() {
+    return circuitBreakerPolicy;
+  }
+
+  /**
+   * 按host熔断与限制并发的策略，不设置时不熔断.
+   *
+   * @param circuitBreakerPolicy 熔断策略
+   */
+  public void setCircuitBreakerPolicy(CircuitBreakerPolicy circuitBreakerPolicy) {
+    this.circuitBreakerPolicy = circuitBreakerPolicy;
+  }
+
+  public File getCacheDirectory() {
+    return cacheDirectory;
+  }
+
+  /**
+   * 使用OkHttp的磁盘缓存保存GET请求的响应，按Cache-Control、ETag、Last-Modified使用与验证缓存.
+   * <p>
+   * 同一目录只能被一个客户端使用，与memoryCache不能同时设置
+   *
+   * @param cacheDirectory 缓存目录，为null时不使用磁盘缓存
+   */
+  public void setCacheDirectory(File cacheDirectory) {
+    this.cacheDirectory = cacheDirectory;
+  }
+
+  public long getCacheMaxSize() {
+    return cacheMaxSize;
+  }
+
+  /**
+   * 磁盘缓存的最大字节数，默认10MB.
+   *
+   * @param cacheMaxSize 字节数
+   */
+  public void setCacheMaxSize(long cacheMaxSize) {
+    this.cacheMaxSize = cacheMaxSize;
+  }
+
+  public String getMemoryCache() {
+    return memoryCache;
+  }
+
+  /**
+   * 使用MemoryCacheHelper中的cache容器保存GET请求的响应，验证规则与磁盘缓存相同.
+   * <p>
+   * 容器不存在时按默认配置创建；需要按字节限制容量时，预先使用maximumWeight创建该容器
+   *
+   * @param memoryCache cache名，为null时不使用内存缓存
+   */
+  public void setMemoryCache(String memoryCache) {
+    this.memoryCache = memoryCache;
+  }
+
+  public CompressionPolicy getCompressionPolicy() {
+    return compressionPolicy;
+  }
+
+  /**
+   * 请求体压缩与响应编码协商的策略，不设置时不压缩请求体，响应使用OkHttp默认的gzip.
+   *
+   * @param compressionPolicy 压缩策略
+   */
+  public void setCompressionPolicy(CompressionPolicy compressionPolicy) {
+    this.compressionPolicy = compressionPolicy;
+  }
+
+  public HttpMetricsSink getMetricsSink() {
+    return metricsSink;
+  }
+
+  /**
+   * 接收每次请求的分阶段耗时、字节数与状态码，不设置时不采集.
+   * <p>
+   * 按host统计直方图时使用{@link InMemoryHttpMetrics}，并保留其引用用于查询
+   *
+   * @param metricsSink 度量数据的接收者
+   */
+  public void setMetricsSink(HttpMetricsSink metricsSink) {
+    this.metricsSink = metricsSink;
+  }
+
+  public long getSlowCallThreshold() {
+    return slowCallThreshold;
+  }
+
+  /**
+   * 请求总耗时（毫秒，含读取响应体）不小于该值时输出WARN日志及各阶段耗时，默认-1不记录.
+   *
+   * @param slowCallThreshold 毫秒
+   */
+  public void setSlowCallThreshold(long slowCallThreshold) {
+    this.slowCallThreshold = slowCallThreshold;
+  }
+
+}
@@ -0,0 +1,100 @@
+package io.github.rcarlosdasilva.kits.net.http;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个host累计的请求度量，由{@link InMemoryHttpMetrics}维护
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public class HttpHostMetrics {
+
+  private final String host;
+  private final EnumMap<HttpPhase, LatencyHistogram> histograms =
+      new EnumMap<HttpPhase, LatencyHistogram>(HttpPhase.class);
+  private final AtomicLong bytesSent = new AtomicLong();
+  private final AtomicLong bytesReceived = new AtomicLong();
+  private final ConcurrentMap<Integer, AtomicLong> statusCounts = Maps.newConcurrentMap();
+
+  HttpHostMetrics(String host) {
+    this.host = host;
+    for (HttpPhase phase : HttpPhase.values()) {
+      histograms.put(phase, new LatencyHistogram());
+    }
+  }
+
+  void record(HttpCallMetrics metrics) {
+    for (HttpPhase phase : HttpPhase.values()) {
+      histograms.get(phase).record(metrics.getPhase(phase));
+    }
+    bytesSent.addAndGet(metrics.getBytesSent());
+    bytesReceived.addAndGet(metrics.getBytesReceived());
+
+    AtomicLong counter = statusCounts.get(metrics.getCode());
+    if (counter == null) {
+      AtomicLong created = new AtomicLong();
+      counter = statusCounts.putIfAbsent(metrics.getCode(), created);
+      if (counter == null) {
+        counter = created;
+      }
+    }
+    counter.incrementAndGet();
+  }
+
+  public String getHost() {
+    return host;
+  }
+
+  /**
+   * 某个阶段的耗时直方图.
+   *
+   * @param phase 阶段
+   * @return {@link LatencyHistogram}
+   */
+  public LatencyHistogram histogram(HttpPhase phase) {
+    return histograms.get(phase);
+  }
+
+  public long getBytesSent() {
+    return bytesSent.get();
+  }
+
+  public long getBytesReceived() {
+    return bytesReceived.get();
+  }
+
+  /**
+   * 各响应状态码的请求数，请求失败计入-1.
+   *
+   * @return 状态码到请求数的映射
+   */
+  public SortedMap<Integer, Long> getStatusCounts() {
+    ImmutableSortedMap.Builder<Integer, Long> counts = ImmutableSortedMap.naturalOrder();
+    for (Map.Entry<Integer, AtomicLong> entry : statusCounts.entrySet()) {
+      counts.put(entry.getKey(), entry.getValue().get());
+    }
+    return counts.build();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("HttpHostMetrics{host=").append(host)
+        .append(", status=").append(getStatusCounts()).append(", bytesSent=")
+        .append(getBytesSent()).append(", bytesReceived=").append(getBytesReceived());
+    for (HttpPhase phase : HttpPhase.values()) {
+      LatencyHistogram histogram = histograms.get(phase);
+      if (histogram.getCount() > 0) {
+        sb.append(", ").append(phase.name().toLowerCase()).append('=').append(histogram);
+      }
+    }
+    return sb.append('}').toString();
+  }
+
+}
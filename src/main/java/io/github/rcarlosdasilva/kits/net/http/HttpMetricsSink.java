@@ -0,0 +1,19 @@
+package io.github.rcarlosdasilva.kits.net.http;
+
+/**
+ * 接收每次HTTP请求的度量数据，可以对接监控系统，默认实现为{@link InMemoryHttpMetrics}
+ * <p>
+ * 在执行请求或读取响应体的线程中调用，实现需要线程安全且不能阻塞
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public interface HttpMetricsSink {
+
+  /**
+   * 记录一次请求.
+   *
+   * @param metrics {@link HttpCallMetrics}
+   */
+  void record(HttpCallMetrics metrics);
+
+}
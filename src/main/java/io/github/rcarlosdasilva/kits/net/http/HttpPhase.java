@@ -0,0 +1,35 @@
+package io.github.rcarlosdasilva.kits.net.http;
+
+/**
+ * 一次HTTP请求的各个阶段
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public enum HttpPhase {
+
+  /**
+   * 域名解析，使用已有连接时没有该阶段.
+   */
+  DNS,
+  /**
+   * 建立TCP连接.
+   */
+  CONNECT,
+  /**
+   * TLS握手，为新建HTTPS连接时除域名解析与TCP连接外的建连耗时.
+   */
+  TLS,
+  /**
+   * 从开始发送请求到收到响应头，包括上传请求体与服务器处理的时间.
+   */
+  TIME_TO_FIRST_BYTE,
+  /**
+   * 从收到响应头到响应体读完或关闭，包括调用者处理响应体的时间.
+   */
+  BODY,
+  /**
+   * 整个请求.
+   */
+  TOTAL
+
+}
@@ -0,0 +1,59 @@
+package io.github.rcarlosdasilva.kits.net.http;
+
+/**
+ * HttpHelper的连接池与调度器状态快照
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public class HttpPoolStats {
+
+  private int idleConnections;
+  private int connections;
+  private int queuedCalls;
+  private int runningCalls;
+
+  public HttpPoolStats(int idleConnections, int connections, int queuedCalls, int runningCalls) {
+    this.idleConnections = idleConnections;
+    this.connections = connections;
+    this.queuedCalls = queuedCalls;
+    this.runningCalls = runningCalls;
+  }
+
+  public int getIdleConnections() {
+    return idleConnections;
+  }
+
+  /**
+   * 连接池中的连接总数，包括空闲与使用中的连接.
+   *
+   * @return 连接数
+   */
+  public int getConnections() {
+    return connections;
+  }
+
+  /**
+   * 因达到maxRequests或maxRequestsPerHost而排队的异步请求数.
+   *
+   * @return 请求数
+   */
+  public int getQueuedCalls() {
+    return queuedCalls;
+  }
+
+  /**
+   * 正在执行的请求数，包括同步与异步请求.
+   *
+   * @return 请求数
+   */
+  public int getRunningCalls() {
+    return runningCalls;
+  }
+
+  @Override
+  public String toString() {
+    return "HttpPoolStats{idleConnections=" + idleConnections + ", connections=" + connections
+        + ", queuedCalls=" + queuedCalls + ", runningCalls=" + runningCalls + "}";
+  }
+
+}
@@ -0,0 +1,57 @@
+package io.github.rcarlosdasilva.kits.net.http;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 在内存中按host累计度量数据的{@link HttpMetricsSink}
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public class InMemoryHttpMetrics implements HttpMetricsSink {
+
+  private final ConcurrentMap<String, HttpHostMetrics> hosts = Maps.newConcurrentMap();
+
+  @Override
+  public void record(HttpCallMetrics metrics) {
+    HttpHostMetrics host = hosts.get(metrics.getHost());
+    if (host == null) {
+      HttpHostMetrics created = new HttpHostMetrics(metrics.getHost());
+      host = hosts.putIfAbsent(metrics.getHost(), created);
+      if (host == null) {
+        host = created;
+      }
+    }
+    host.record(metrics);
+  }
+
+  /**
+   * 某个host的度量数据.
+   *
+   * @param host host
+   * @return {@link HttpHostMetrics}，没有请求过时为null
+   */
+  public HttpHostMetrics host(String host) {
+    return hosts.get(host);
+  }
+
+  /**
+   * 所有host的度量数据.
+   *
+   * @return host到度量数据的映射
+   */
+  public Map<String, HttpHostMetrics> hosts() {
+    return ImmutableMap.copyOf(hosts);
+  }
+
+  /**
+   * 清空所有数据.
+   */
+  public void reset() {
+    hosts.clear();
+  }
+
+}
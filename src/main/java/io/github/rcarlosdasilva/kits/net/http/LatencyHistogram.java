@@ -0,0 +1,102 @@
+package io.github.rcarlosdasilva.kits.net.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 线程安全的耗时直方图，单位为微秒
+ * <p>
+ * 按2的幂分段，每段再等分为8个桶，分位数的相对误差不超过12.5%，占用固定的内存
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 40;
+  private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(long micros) {
+    if (micros < 0) {
+      return;
+    }
+    counts.incrementAndGet(bucket(micros));
+    count.incrementAndGet();
+    sum.addAndGet(micros);
+    long current = max.get();
+    while (micros > current && !max.compareAndSet(current, micros)) {
+      current = max.get();
+    }
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * 平均耗时.
+   *
+   * @return 微秒，没有记录时为0
+   */
+  public double getMean() {
+    long n = count.get();
+    return n == 0 ? 0 : sum.get() / (double) n;
+  }
+
+  /**
+   * 分位数，返回所在桶的上界.
+   *
+   * @param quantile 0到1之间，如0.99
+   * @return 微秒，没有记录时为0
+   */
+  public long percentile(double quantile) {
+    long n = count.get();
+    if (n == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(quantile * n);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= Math.max(1, rank)) {
+        return Math.min(upperBound(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  private static int bucket(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+    int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  private static long upperBound(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long sub = bucket % SUB_BUCKETS;
+    return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+
+  @Override
+  public String toString() {
+    return "LatencyHistogram{count=" + getCount() + ", mean=" + (long) getMean() + "us, p50="
+        + percentile(0.5) + "us, p99=" + percentile(0.99) + "us, max=" + getMax() + "us}";
+  }
+
+}
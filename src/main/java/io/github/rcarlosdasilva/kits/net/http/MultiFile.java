@@ -1,9 +1,14 @@
 package io.github.rcarlosdasilva.kits.net.http;
 
 import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * HTTP请求文件信息
+ * <p>
+ * 内容可以是文件、InputStream、ByteBuffer或{@link StreamWriter}，后三种在发送时直接写入请求，不经过临时文件，
+ * 长度未知时使用chunked传输。InputStream与StreamWriter只能被读取一次，发送后InputStream会被关闭
  *
  * @author Dean Zhao (rcarlosdasilva@qq.com)
  */
@@ -13,6 +18,10 @@ public class MultiFile {
   private String fileKey;
   private String fileName;
   private File file;
+  private InputStream stream;
+  private ByteBuffer buffer;
+  private StreamWriter writer;
+  private long contentLength = -1;
 
   /**
    * 构造函数,使用通用文件类型.
@@ -43,6 +52,58 @@ public class MultiFile {
     this.file = file;
   }
 
+  /**
+   * 构造函数,上传InputStream中的内容.
+   *
+   * @param contentType   Content-Type
+   * @param fileKey       文件key
+   * @param fileName      文件名
+   * @param stream        内容
+   * @param contentLength 内容长度，未知时为-1
+   */
+  public MultiFile(ContentType contentType, String fileKey, String fileName, InputStream stream,
+                   long contentLength) {
+    this.contentType = contentType;
+    this.fileKey = fileKey;
+    this.fileName = fileName;
+    this.stream = stream;
+    this.contentLength = contentLength;
+  }
+
+  /**
+   * 构造函数,上传ByteBuffer中position到limit之间的内容，byte[]的一部分可以使用ByteBuffer.wrap(bytes, offset, length).
+   *
+   * @param contentType Content-Type
+   * @param fileKey     文件key
+   * @param fileName    文件名
+   * @param buffer      内容
+   */
+  public MultiFile(ContentType contentType, String fileKey, String fileName, ByteBuffer buffer) {
+    this.contentType = contentType;
+    this.fileKey = fileKey;
+    this.fileName = fileName;
+    this.buffer = buffer;
+    this.contentLength = buffer.remaining();
+  }
+
+  /**
+   * 构造函数,发送时由writer生成内容.
+   *
+   * @param contentType   Content-Type
+   * @param fileKey       文件key
+   * @param fileName      文件名
+   * @param writer        内容生成回调
+   * @param contentLength 内容长度，未知时为-1
+   */
+  public MultiFile(ContentType contentType, String fileKey, String fileName, StreamWriter writer,
+                   long contentLength) {
+    this.contentType = contentType;
+    this.fileKey = fileKey;
+    this.fileName = fileName;
+    this.writer = writer;
+    this.contentLength = contentLength;
+  }
+
   public ContentType getContentType() {
     return contentType;
   }
@@ -75,4 +136,41 @@ public class MultiFile {
     this.file = file;
   }
 
+  public InputStream getStream() {
+    return stream;
+  }
+
+  public void setStream(InputStream stream) {
+    this.stream = stream;
+  }
+
+  public ByteBuffer getBuffer() {
+    return buffer;
+  }
+
+  public void setBuffer(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  public StreamWriter getWriter() {
+    return writer;
+  }
+
+  public void setWriter(StreamWriter writer) {
+    this.writer = writer;
+  }
+
+  /**
+   * 内容长度，文件以文件大小为准.
+   *
+   * @return 长度，未知时为-1
+   */
+  public long getContentLength() {
+    return file != null ? file.length() : contentLength;
+  }
+
+  public void setContentLength(long contentLength) {
+    this.contentLength = contentLength;
+  }
+
 }
@@ -1,10 +1,22 @@
 package io.github.rcarlosdasilva.kits.net.http;
 
 import okhttp3.Headers;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
 
+import java.io.Closeable;
 import java.io.InputStream;
-
-public class ResponseDigest {
+import java.io.Reader;
+
+/**
+ * HTTP请求的response
+ * <p>
+ * 流式读取的response持有连接，使用后需要关闭，推荐使用try-with-resources；未关闭且其本身与取得的流都被回收的
+ * response会由{@link ResponseLeakDetector}记录并释放
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public class ResponseDigest implements Closeable {
 
   private int code;
   private Headers headers;
@@ -12,6 +24,7 @@ public class ResponseDigest {
   private long contentLength;
   private String stringValue;
   private InputStream streamValue;
+  private ResponseBody body;
 
   private ResponseDigest() {
   }
@@ -38,6 +51,28 @@ public class ResponseDigest {
     return digest;
   }
 
+  /**
+   * 流式读取的response，响应体在读取时才从连接中获取，使用后需要调用{@link #close()}.
+   *
+   * @param code    状态码
+   * @param message 状态信息
+   * @param headers 响应头
+   * @param body    响应体
+   * @return ResponseDigest
+   */
+  public static ResponseDigest digest(int code, String message, Headers headers,
+                                      ResponseBody body) {
+    ResponseDigest digest = new ResponseDigest();
+    digest.code = code;
+    digest.message = message;
+    digest.headers = headers;
+    digest.contentLength = body.contentLength();
+    // 对外的流都从被跟踪的字节源读取，只持有流而不持有digest时连接也不会被当作泄漏回收
+    digest.body = ResponseBody.create(body.contentType(), body.contentLength(),
+        ResponseLeakDetector.track(body));
+    return digest;
+  }
+
   public int getCode() {
     return code;
   }
@@ -76,8 +111,44 @@ public class ResponseDigest {
     return stringValue;
   }
 
+  /**
+   * 响应体的二进制流.
+   *
+   * @return InputStream
+   */
   public InputStream getStreamValue() {
+    if (streamValue == null && body != null) {
+      return body.byteStream();
+    }
     return streamValue;
   }
 
+  /**
+   * 响应体的字节源，只在流式读取的response中可用.
+   *
+   * @return BufferedSource，非流式读取时为null
+   */
+  public BufferedSource getSource() {
+    return body == null ? null : body.source();
+  }
+
+  /**
+   * 响应体的字符流，按Content-Type中的编码解码，默认UTF-8，只在流式读取的response中可用.
+   *
+   * @return Reader，非流式读取时为null
+   */
+  public Reader getReader() {
+    return body == null ? null : body.charStream();
+  }
+
+  /**
+   * 关闭流式读取的response，释放连接，可重复调用.
+   */
+  @Override
+  public void close() {
+    if (body != null) {
+      body.close();
+    }
+  }
+
 }
@@ -0,0 +1,138 @@
+package io.github.rcarlosdasilva.kits.net.http;
+
+import com.google.common.collect.Sets;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 未关闭response的检测
+ * <p>
+ * 流式读取的{@link ResponseDigest}对外提供的流、字符流与字节源都读取同一个包装的字节源，关闭其中任何一个即为关闭；
+ * 该字节源连同{@link ResponseDigest}都被GC回收后如果仍未关闭，记录日志并释放其连接。开启分配位置跟踪后，
+ * 日志中会包含创建该response的调用栈，跟踪会在每次请求时生成一个异常对象，只建议在排查问题时开启
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public final class ResponseLeakDetector {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResponseLeakDetector.class);
+
+  private static final ReferenceQueue<BufferedSource> QUEUE = new ReferenceQueue<BufferedSource>();
+  private static final Set<Tracker> TRACKERS = Sets.newConcurrentHashSet();
+  private static final AtomicLong LEAKS = new AtomicLong();
+  private static volatile boolean trackAllocation = false;
+
+  private ResponseLeakDetector() {
+    throw new IllegalStateException("ResponseLeakDetector class");
+  }
+
+  /**
+   * 是否记录response的创建位置.
+   *
+   * @param track 是否开启
+   */
+  public static void setTrackAllocation(boolean track) {
+    trackAllocation = track;
+  }
+
+  /**
+   * 检查已被回收但未关闭的response.
+   *
+   * @return 累计检测到的未关闭response数
+   */
+  public static long check() {
+    Reference<? extends BufferedSource> reference;
+    while ((reference = QUEUE.poll()) != null) {
+      Tracker tracker = (Tracker) reference;
+      if (!TRACKERS.remove(tracker)) {
+        continue;
+      }
+
+      LEAKS.incrementAndGet();
+      if (tracker.allocation != null) {
+        LOGGER.warn("[HttpHelper] - response未关闭，连接已被回收，创建位置：", tracker.allocation);
+      } else {
+        LOGGER.warn("[HttpHelper] - response未关闭，连接已被回收，开启"
+            + "ResponseLeakDetector.setTrackAllocation(true)可查看创建位置");
+      }
+      tracker.body.close();
+    }
+    return LEAKS.get();
+  }
+
+  /**
+   * 当前未关闭的流式response数.
+   *
+   * @return 数量
+   */
+  public static int openCount() {
+    return TRACKERS.size();
+  }
+
+  /**
+   * 跟踪响应体.
+   *
+   * @param body 原始响应体，泄漏时被关闭
+   * @return 对外读取使用的字节源，关闭时同时关闭body
+   */
+  static BufferedSource track(ResponseBody body) {
+    check();
+    TrackedSource tracked = new TrackedSource(body.source());
+    BufferedSource source = Okio.buffer(tracked);
+    tracked.tracker = new Tracker(source, body,
+        trackAllocation ? new Throwable("Response allocated here") : null);
+    TRACKERS.add(tracked.tracker);
+    return source;
+  }
+
+  /**
+   * 弱引用对外的字节源，字节源只引用原始响应体，反之则不然，所以只要调用方还持有任何一个流就不会被回收
+   */
+  private static final class Tracker extends WeakReference<BufferedSource> {
+
+    private final ResponseBody body;
+    private final Throwable allocation;
+
+    Tracker(BufferedSource source, ResponseBody body, Throwable allocation) {
+      super(source, QUEUE);
+      this.body = body;
+      this.allocation = allocation;
+    }
+
+    void close() {
+      if (TRACKERS.remove(this)) {
+        body.close();
+      }
+    }
+
+  }
+
+  private static final class TrackedSource extends ForwardingSource {
+
+    private Tracker tracker;
+
+    TrackedSource(Source delegate) {
+      super(delegate);
+    }
+
+    @Override
+    public void close() throws IOException {
+      tracker.close();
+      super.close();
+    }
+
+  }
+
+}
@@ -0,0 +1,199 @@
+package io.github.rcarlosdasilva.kits.net.http;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 请求重试策略，时间单位均为毫秒
+ * <p>
+ * 只重试幂等的请求方法（默认GET、HEAD、PUT、DELETE）。连接失败、读写超时等IO异常，以及响应状态码在retryStatusCodes中时重试，
+ * 两次重试之间按指数退避等待，并加入随机抖动避免多个客户端同时重试；响应带有Retry-After时按其等待，超过maxRetryAfter则不再重试。
+ * <p>
+ * 开启对冲（hedging）后，第一次请求在hedgeDelay内没有响应时，会再发出一个相同的请求，使用先返回的结果并取消另一个；
+ * hedgeDelay小于等于0时使用该host最近请求耗时的p95。每个host同时进行的对冲请求不超过maxHedgesPerHost，超出时只等待第一次请求
+ * <p>
+ * 重试前的等待在发起请求的线程中进行：异步请求会在等待期间占用OkHttp调度器的一个线程与名额，
+ * 对异步请求较多的场景应控制maxRetries与maxBackoff，避免等待重试的请求占满调度器
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public class RetryPolicy {
+
+  public static final int DEFAULT_MAX_RETRIES = 2;
+  public static final long DEFAULT_INITIAL_BACKOFF = 100;
+  public static final long DEFAULT_MAX_BACKOFF = 5000;
+  public static final double DEFAULT_MULTIPLIER = 2;
+  public static final double DEFAULT_JITTER = 0.5;
+  public static final long DEFAULT_MAX_RETRY_AFTER = 30000;
+  public static final int DEFAULT_MAX_HEDGES_PER_HOST = 5;
+
+  private int maxRetries = DEFAULT_MAX_RETRIES;
+  private long initialBackoff = DEFAULT_INITIAL_BACKOFF;
+  private long maxBackoff = DEFAULT_MAX_BACKOFF;
+  private double multiplier = DEFAULT_MULTIPLIER;
+  private double jitter = DEFAULT_JITTER;
+  private long maxRetryAfter = DEFAULT_MAX_RETRY_AFTER;
+  private Set<Integer> retryStatusCodes = ImmutableSet.of(HttpStatusCode.BAD_GATEWAY,
+      HttpStatusCode.SERVICE_UNAVAILABLE, HttpStatusCode.GATEWAY_TIMEOUT);
+  private Set<HttpMethod> retryMethods = ImmutableSet.copyOf(EnumSet.of(HttpMethod.GET,
+      HttpMethod.HEAD, HttpMethod.PUT, HttpMethod.DELETE));
+  private boolean hedging = false;
+  private long hedgeDelay = -1;
+  private int maxHedgesPerHost = DEFAULT_MAX_HEDGES_PER_HOST;
+
+  /**
+   * 第n次重试前的等待时间，不含Retry-After.
+   *
+   * @param retry  第几次重试，从0开始
+   * @param random 0到1之间的随机数
+   * @return 毫秒
+   */
+  public long backoff(int retry, double random) {
+    double delay = Math.min(maxBackoff, initialBackoff * Math.pow(multiplier, retry));
+    return (long) (delay * (1 - jitter) + delay * jitter * random);
+  }
+
+  public boolean isRetryable(String method) {
+    for (HttpMethod retryMethod : retryMethods) {
+      if (retryMethod.name().equalsIgnoreCase(method)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public int getMaxRetries() {
+    return maxRetries;
+  }
+
+  /**
+   * 最大重试次数，不含第一次请求，默认2.
+   *
+   * @param maxRetries 次数
+   */
+  public void setMaxRetries(int maxRetries) {
+    Preconditions.checkArgument(maxRetries >= 0);
+    this.maxRetries = maxRetries;
+  }
+
+  public long getInitialBackoff() {
+    return initialBackoff;
+  }
+
+  public void setInitialBackoff(long initialBackoff) {
+    this.initialBackoff = initialBackoff;
+  }
+
+  public long getMaxBackoff() {
+    return maxBackoff;
+  }
+
+  public void setMaxBackoff(long maxBackoff) {
+    this.maxBackoff = maxBackoff;
+  }
+
+  public double getMultiplier() {
+    return multiplier;
+  }
+
+  public void setMultiplier(double multiplier) {
+    this.multiplier = multiplier;
+  }
+
+  public double getJitter() {
+    return jitter;
+  }
+
+  /**
+   * 抖动比例，0到1之间，等待时间在[(1 - jitter) * backoff, backoff]之间随机，默认0.5.
+   *
+   * @param jitter 比例
+   */
+  public void setJitter(double jitter) {
+    Preconditions.checkArgument(jitter >= 0 && jitter <= 1);
+    this.jitter = jitter;
+  }
+
+  public long getMaxRetryAfter() {
+    return maxRetryAfter;
+  }
+
+  /**
+   * Retry-After超过该时间时不再重试，直接返回响应，默认30秒.
+   *
+   * @param maxRetryAfter 毫秒
+   */
+  public void setMaxRetryAfter(long maxRetryAfter) {
+    this.maxRetryAfter = maxRetryAfter;
+  }
+
+  public Set<Integer> getRetryStatusCodes() {
+    return retryStatusCodes;
+  }
+
+  /**
+   * 需要重试的响应状态码，默认502、503、504.
+   *
+   * @param retryStatusCodes 状态码，参考{@link HttpStatusCode}
+   */
+  public void setRetryStatusCodes(Set<Integer> retryStatusCodes) {
+    this.retryStatusCodes = ImmutableSet.copyOf(retryStatusCodes);
+  }
+
+  public Set<HttpMethod> getRetryMethods() {
+    return retryMethods;
+  }
+
+  /**
+   * 允许重试的请求方法，只应包含幂等的方法.
+   *
+   * @param retryMethods 请求方法
+   */
+  public void setRetryMethods(Set<HttpMethod> retryMethods) {
+    this.retryMethods = ImmutableSet.copyOf(retryMethods);
+  }
+
+  public boolean isHedging() {
+    return hedging;
+  }
+
+  /**
+   * 是否对允许重试的请求方法开启对冲请求.
+   *
+   * @param hedging 是否开启
+   */
+  public void setHedging(boolean hedging) {
+    this.hedging = hedging;
+  }
+
+  public long getHedgeDelay() {
+    return hedgeDelay;
+  }
+
+  /**
+   * 发出对冲请求前的等待时间，小于等于0时使用该host最近请求耗时的p95.
+   *
+   * @param hedgeDelay 毫秒
+   */
+  public void setHedgeDelay(long hedgeDelay) {
+    this.hedgeDelay = hedgeDelay;
+  }
+
+  public int getMaxHedgesPerHost() {
+    return maxHedgesPerHost;
+  }
+
+  /**
+   * 每个host同时进行的对冲请求上限，不含第一次请求，默认5.
+   *
+   * @param maxHedgesPerHost 上限
+   */
+  public void setMaxHedgesPerHost(int maxHedgesPerHost) {
+    Preconditions.checkArgument(maxHedgesPerHost >= 0);
+    this.maxHedgesPerHost = maxHedgesPerHost;
+  }
+
+}
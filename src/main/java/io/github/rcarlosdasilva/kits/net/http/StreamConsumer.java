@@ -0,0 +1,22 @@
+package io.github.rcarlosdasilva.kits.net.http;
+
+import java.io.IOException;
+
+/**
+ * 流式response的处理回调，回调返回后response会被关闭
+ *
+ * @param <T> 处理结果类型
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public interface StreamConsumer<T> {
+
+  /**
+   * 处理response，不要在回调之外保留响应体的流.
+   *
+   * @param digest response
+   * @return 处理结果
+   * @throws IOException 读取异常
+   */
+  T consume(ResponseDigest digest) throws IOException;
+
+}
@@ -0,0 +1,21 @@
+package io.github.rcarlosdasilva.kits.net.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 上传内容的写入回调，内容边生成边写入请求，不需要先写入临时文件
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+public interface StreamWriter {
+
+  /**
+   * 写入上传内容，不要关闭out.
+   *
+   * @param out 请求体输出流
+   * @throws IOException 输入输出异常
+   */
+  void writeTo(OutputStream out) throws IOException;
+
+}
@@ -0,0 +1,346 @@
+package io.github.rcarlosdasilva.kits.cache;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.github.rcarlosdasilva.kits.Default;
+import io.github.rcarlosdasilva.kits.cache.MemoryCacheHelper.MemoryCacheConfig;
+import org.junit.FixMethodOrder;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MemoryCacheHelper吞吐量基准，手动运行
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class MemoryCacheBenchmark {
+
+  private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+  private static final int CACHE_NAMES = 16;
+  private static final int KEYS = 1024;
+  private static final long DURATION_MILLIS = 2000;
+
+  /**
+   * 多线程在多个命名cache上混合get/put（9:1）的吞吐量.
+   */
+  @Ignore
+  @Test
+  public void test1() throws InterruptedException {
+    final String[] names = new String[CACHE_NAMES];
+    for (int i = 0; i < CACHE_NAMES; i++) {
+      names[i] = "bench_registry_" + i;
+    }
+    final String[] keys = new String[KEYS];
+    for (int i = 0; i < KEYS; i++) {
+      keys[i] = "k" + i;
+    }
+
+    for (int threads : THREADS) {
+      long ops = run(threads, new Operation() {
+
+        @Override
+        public void execute(int seed) {
+          String name = names[seed & (CACHE_NAMES - 1)];
+          String key = keys[(seed >>> 4) & (KEYS - 1)];
+          if ((seed & 0xF) == 0) {
+            MemoryCacheHelper.put(name, key, key);
+          } else {
+            MemoryCacheHelper.get(name, key);
+          }
+        }
+
+      });
+      System.out.println(String.format("registry get/put  threads=%2d  %,12d ops/s", threads,
+          ops * 1000 / DURATION_MILLIS));
+    }
+
+    for (String name : names) {
+      MemoryCacheHelper.discardCache(name);
+    }
+  }
+
+  /**
+   * 单线程下循环get与getAll批量获取的对比.
+   */
+  @Ignore
+  @Test
+  public void test2() throws InterruptedException {
+    final String target = "bench_bulk";
+    for (final int batch : new int[]{50, 500}) {
+      final List<String> keys = Lists.newArrayListWithCapacity(batch);
+      Map<String, Object> values = Maps.newHashMapWithExpectedSize(batch);
+      for (int i = 0; i < batch; i++) {
+        keys.add("bulk" + i);
+        values.put("bulk" + i, i);
+      }
+      MemoryCacheHelper.putAll(target, values);
+
+      long looped = run(1, new Operation() {
+
+        @Override
+        public void execute(int seed) {
+          for (String key : keys) {
+            MemoryCacheHelper.get(target, key);
+          }
+        }
+
+      });
+      long bulk = run(1, new Operation() {
+
+        @Override
+        public void execute(int seed) {
+          MemoryCacheHelper.getAll(target, keys);
+        }
+
+      });
+      System.out.println(String.format("batch=%3d  looped %,10d batches/s  bulk %,10d batches/s",
+          batch, looped * 1000 / DURATION_MILLIS, bulk * 1000 / DURATION_MILLIS));
+    }
+
+    MemoryCacheHelper.discardCache(target);
+  }
+
+  /**
+   * 仅堆内与堆内+堆外两种模式下，大量1KB值的GC耗时与get的p99延迟.
+   */
+  @Ignore
+  @Test
+  public void test3() {
+    final int entries = 100000;
+    final int operations = 2000000;
+
+    MemoryCacheConfig heapOnly = new MemoryCacheConfig();
+    heapOnly.setMaximumSize(entries);
+    MemoryCacheConfig tiered = new MemoryCacheConfig();
+    tiered.setMaximumSize(entries / 10);
+    tiered.setOffHeapCapacity(entries * 1024L * 2);
+
+    for (MemoryCacheConfig config : new MemoryCacheConfig[]{heapOnly, tiered}) {
+      String target = "bench_tier";
+      MemoryCacheHelper.create(target, config);
+      for (int i = 0; i < entries; i++) {
+        MemoryCacheHelper.put(target, "payload" + i, new byte[1024]);
+      }
+
+      long[] latencies = new long[operations];
+      long gcBefore = gcMillis();
+      int seed = 17;
+      for (int i = 0; i < operations; i++) {
+        seed = seed * 1103515245 + 12345;
+        String key = "payload" + ((seed >>> 1) % entries);
+        long begin = System.nanoTime();
+        if ((seed & 0xF) == 0) {
+          MemoryCacheHelper.put(target, key, new byte[1024]);
+        } else {
+          MemoryCacheHelper.get(target, key);
+        }
+        latencies[i] = System.nanoTime() - begin;
+      }
+      long gc = gcMillis() - gcBefore;
+      Arrays.sort(latencies);
+
+      System.out.println(String.format("%s  gc %,6d ms  p50 %,8d ns  p99 %,8d ns",
+          config == heapOnly ? "heap-only" : "tiered   ", gc, latencies[operations / 2],
+          latencies[operations / 100 * 99]));
+      MemoryCacheHelper.discardCache(target);
+    }
+  }
+
+  /**
+   * 回放访问序列，比较Guava（LRU）与TinyLFU的命中率.
+   * <p>
+   * 通过-Dkits.cache.trace指定访问序列文件（每行一个key），未指定时使用合成序列：Zipf分布的热点访问中穿插一次性扫描
+   */
+  @Ignore
+  @Test
+  public void test4() throws IOException {
+    List<String> trace = trace();
+    int[] sizes = {500, 1000, 2000, 5000};
+
+    for (int size : sizes) {
+      StringBuilder line = new StringBuilder(String.format("size %,6d", size));
+      for (CacheEngine engine : CacheEngine.values()) {
+        MemoryCacheConfig config = new MemoryCacheConfig();
+        config.setEngine(engine);
+        config.setMaximumSize(size);
+        // 单段时Guava为严格的LRU
+        config.setConcurrencyLevel(1);
+        String target = "bench_trace";
+        MemoryCacheHelper.create(target, config);
+
+        long hits = 0;
+        for (String key : trace) {
+          if (MemoryCacheHelper.get(target, key) != null) {
+            hits++;
+          } else {
+            MemoryCacheHelper.put(target, key, key);
+          }
+        }
+        line.append(String.format("  %s %6.2f%%", engine, 100.0 * hits / trace.size()));
+        MemoryCacheHelper.discardCache(target);
+      }
+      System.out.println(line);
+    }
+  }
+
+  /**
+   * 以数字id为key时，String key与long key两种方式读取的吞吐量与单线程每次读取分配的字节数.
+   */
+  @Ignore
+  @Test
+  public void test5() throws InterruptedException {
+    final int ids = 100000;
+    MemoryCacheConfig config = new MemoryCacheConfig();
+    config.setMaximumSize(ids);
+    final String target = "bench_id";
+    MemoryCacheHelper.create(target, config);
+    final LongKeyedCache<Object> longKeyed = MemoryCacheHelper.createLongKeyed(target, config);
+    for (int i = 0; i < ids; i++) {
+      MemoryCacheHelper.put(target, String.valueOf(i), i);
+      longKeyed.put(i, i);
+    }
+
+    Operation stringKeyed = new Operation() {
+
+      @Override
+      public void execute(int seed) {
+        MemoryCacheHelper.get(target, String.valueOf(seed % ids));
+      }
+
+    };
+    Operation longKey = new Operation() {
+
+      @Override
+      public void execute(int seed) {
+        longKeyed.get(seed % ids);
+      }
+
+    };
+
+    System.out.println(String.format("allocation  string %6.1f B/op  long %6.1f B/op",
+        allocatedPerOperation(stringKeyed), allocatedPerOperation(longKey)));
+    for (int threads : THREADS) {
+      long strings = run(threads, stringKeyed);
+      long longs = run(threads, longKey);
+      System.out.println(String.format("threads %2d  string %,12d ops/s  long %,12d ops/s",
+          threads, strings * 1000 / DURATION_MILLIS, longs * 1000 / DURATION_MILLIS));
+    }
+    MemoryCacheHelper.discardCache(target);
+  }
+
+  private static double allocatedPerOperation(Operation operation) {
+    final int operations = 1000000;
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+        .getThreadMXBean();
+    long thread = Thread.currentThread().getId();
+    // 预热
+    for (int i = 0; i < operations; i++) {
+      operation.execute(i);
+    }
+    long before = threads.getThreadAllocatedBytes(thread);
+    for (int i = 0; i < operations; i++) {
+      operation.execute(i);
+    }
+    return (threads.getThreadAllocatedBytes(thread) - before) / (double) operations;
+  }
+
+  private static List<String> trace() throws IOException {
+    String file = System.getProperty("kits.cache.trace");
+    if (file != null) {
+      return Files.readAllLines(Paths.get(file), Default.DEFAULT_CHARSET);
+    }
+
+    final int keys = 50000;
+    final int length = 1000000;
+    double[] cumulative = new double[keys];
+    double sum = 0;
+    for (int i = 0; i < keys; i++) {
+      sum += 1.0 / Math.pow(i + 1, 0.9);
+      cumulative[i] = sum;
+    }
+
+    List<String> trace = Lists.newArrayListWithCapacity(length);
+    Random random = new Random(17);
+    int scan = 0;
+    while (trace.size() < length) {
+      if (trace.size() % 100000 == 50000) {
+        // 每10万次访问插入一次2万个冷key的扫描
+        for (int i = 0; i < 20000; i++) {
+          trace.add("scan" + scan++);
+        }
+      }
+      int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+      trace.add("zipf" + (index < 0 ? -index - 1 : index));
+    }
+    return trace;
+  }
+
+  private static long gcMillis() {
+    long total = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      total += Math.max(0, gc.getCollectionTime());
+    }
+    return total;
+  }
+
+  static long run(final int threads, final Operation operation) throws InterruptedException {
+    final AtomicLong total = new AtomicLong();
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(threads);
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+
+    for (int t = 0; t < threads; t++) {
+      final int offset = t * 7919;
+      new Thread(new Runnable() {
+
+        @Override
+        public void run() {
+          try {
+            start.await();
+            long count = 0;
+            int seed = offset;
+            while (System.nanoTime() < deadline) {
+              for (int i = 0; i < 256; i++) {
+                seed = seed * 1103515245 + 12345;
+                operation.execute(seed >>> 1);
+              }
+              count += 256;
+            }
+            total.addAndGet(count);
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          } finally {
+            done.countDown();
+          }
+        }
+
+      }).start();
+    }
+
+    start.countDown();
+    done.await();
+    return total.get();
+  }
+
+  interface Operation {
+
+    void execute(int seed);
+
+  }
+
+}
@@ -0,0 +1,511 @@
+package io.github.rcarlosdasilva.kits.cache;
+
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import io.github.rcarlosdasilva.kits.cache.MemoryCacheHelper.MemoryCacheConfig;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class MemoryCacheTest {
+
+  @Test
+  public void test1() throws InterruptedException {
+    final String target = "concurrent_first_access";
+    final int threads = 32;
+    final CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    for (int i = 0; i < threads; i++) {
+      final String key = "key" + i;
+      executor.execute(new Runnable() {
+
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+          MemoryCacheHelper.put(target, key, key);
+        }
+
+      });
+    }
+    start.countDown();
+    executor.shutdown();
+    Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+    for (int i = 0; i < threads; i++) {
+      Assert.assertEquals("key" + i, MemoryCacheHelper.get(target, "key" + i));
+    }
+    MemoryCacheHelper.discardCache(target);
+  }
+
+  @Test
+  public void test2() throws InterruptedException {
+    final String target = "coalescing_loader";
+    final int threads = 16;
+    final AtomicInteger loads = new AtomicInteger();
+    final CountDownLatch start = new CountDownLatch(1);
+    final Callable<String> loader = new Callable<String>() {
+
+      @Override
+      public String call() throws Exception {
+        loads.incrementAndGet();
+        Thread.sleep(100);
+        return "value";
+      }
+
+    };
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    for (int i = 0; i < threads; i++) {
+      executor.execute(new Runnable() {
+
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+          Assert.assertEquals("value", MemoryCacheHelper.get(target, "key", loader));
+        }
+
+      });
+    }
+    start.countDown();
+    executor.shutdown();
+    Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+    Assert.assertEquals(1, loads.get());
+    Assert.assertEquals("value", MemoryCacheHelper.get(target, "key"));
+    MemoryCacheHelper.discardCache(target);
+  }
+
+  @Test
+  public void test3() throws InterruptedException {
+    final String target = "refreshing_loader";
+    final AtomicInteger version = new AtomicInteger();
+    MemoryCacheConfig config = new MemoryCacheConfig();
+    config.setTimeUnit(TimeUnit.MILLISECONDS);
+    config.setRefreshAfterWrite(50);
+    config.setLoader(new CacheLoader<String, Object>() {
+
+      @Override
+      public Object load(String key) throws Exception {
+        if (version.get() > 0) {
+          Thread.sleep(50);
+        }
+        return key + version.incrementAndGet();
+      }
+
+    });
+    MemoryCacheHelper.create(target, config);
+
+    Assert.assertEquals("key1", MemoryCacheHelper.get(target, "key"));
+    Thread.sleep(100);
+    // 触发后台刷新，本次仍返回旧值
+    Assert.assertEquals("key1", MemoryCacheHelper.get(target, "key"));
+    Thread.sleep(100);
+    Assert.assertEquals("key2", MemoryCacheHelper.get(target, "key"));
+    MemoryCacheHelper.discardCache(target);
+  }
+
+  @Test
+  public void test4() {
+    final String target = "bulk_operations";
+    MemoryCacheHelper.putAll(target, ImmutableMap.of("a", 1, "b", 2, "c", 3));
+
+    Map<String, Object> values = MemoryCacheHelper.getAll(target, Lists.newArrayList("a", "c", "d"));
+    Assert.assertEquals(2, values.size());
+    Assert.assertEquals(1, values.get("a"));
+    Assert.assertEquals(3, values.get("c"));
+
+    MemoryCacheHelper.removeAll(target, Lists.newArrayList("a", "b"));
+    Assert.assertFalse(MemoryCacheHelper.exists(target, "a"));
+    Assert.assertFalse(MemoryCacheHelper.exists(target, "b"));
+    Assert.assertTrue(MemoryCacheHelper.exists(target, "c"));
+    MemoryCacheHelper.discardCache(target);
+  }
+
+  @Test
+  public void test5() {
+    final String target = "weighted";
+    MemoryCacheConfig config = new MemoryCacheConfig();
+    config.setConcurrencyLevel(1);
+    config.setMaximumWeight(1024 * 1024);
+    MemoryCacheHelper.create(target, config);
+
+    for (int i = 0; i < 20; i++) {
+      MemoryCacheHelper.put(target, "bytes" + i, new byte[100 * 1024]);
+    }
+    int present = 0;
+    for (int i = 0; i < 20; i++) {
+      if (MemoryCacheHelper.exists(target, "bytes" + i)) {
+        present++;
+      }
+    }
+    Assert.assertTrue(present > 0 && present <= 10);
+    Assert.assertTrue(MemoryCacheHelper.exists(target, "bytes19"));
+
+    ObjectSizeWeigher weigher = ObjectSizeWeigher.getInstance();
+    long weight = 0;
+    List<String> keys = Lists.newArrayList();
+    for (int i = 0; i < 20; i++) {
+      keys.add("bytes" + i);
+      if (MemoryCacheHelper.exists(target, "bytes" + i)) {
+        weight += weigher.weigh("bytes" + i, new byte[100 * 1024]);
+      }
+    }
+    Assert.assertEquals(weight, MemoryCacheHelper.stats(target).getEstimatedWeight());
+    // 写入后被修改的值按写入时的权重扣除
+    List<String> mutable = Lists.newArrayList("a");
+    MemoryCacheHelper.put(target, "mutable", mutable);
+    for (int i = 0; i < 100; i++) {
+      mutable.add("value" + i);
+    }
+    MemoryCacheHelper.remove(target, "mutable");
+    Assert.assertEquals(weight, MemoryCacheHelper.stats(target).getEstimatedWeight());
+    MemoryCacheHelper.put(target, "bytes19", new byte[10]);
+    MemoryCacheHelper.removeAll(target, keys);
+    Assert.assertEquals(0, MemoryCacheHelper.stats(target).getEstimatedWeight());
+
+    Assert.assertTrue(weigher.estimate("abcd") > weigher.estimate("ab"));
+    Assert.assertTrue(weigher.estimate(Lists.newArrayList(new byte[1000])) > 1000);
+    Payload payload = new Payload(new String(new char[1000]));
+    payload.self = payload;
+    Assert.assertTrue(weigher.estimate(payload) > 2000);
+    MemoryCacheHelper.discardCache(target);
+  }
+
+  @Test
+  public void test6() throws Exception {
+    final String target = "stats";
+    MemoryCacheConfig config = new MemoryCacheConfig();
+    config.setRecordStats(true);
+    MemoryCacheHelper.create(target, config);
+
+    MemoryCacheHelper.put(target, "a", "1");
+    MemoryCacheHelper.get(target, "a");
+    MemoryCacheHelper.get(target, "b");
+    MemoryCacheStats stats = MemoryCacheHelper.stats(target);
+    Assert.assertEquals(1, stats.getHitCount());
+    Assert.assertEquals(1, stats.getMissCount());
+    Assert.assertEquals(1, stats.getEstimatedSize());
+    Assert.assertEquals(-1, stats.getEstimatedWeight());
+
+    ObjectName name = new ObjectName(
+        "io.github.rcarlosdasilva.kits:type=MemoryCache,name=" + ObjectName.quote(target));
+    Assert.assertEquals(0.5d,
+        (Double) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "HitRate"), 0.001d);
+    MemoryCacheHelper.discardCache(target);
+    Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+  }
+
+  @Test
+  public void test7() {
+    final String target = "off_heap";
+    MemoryCacheConfig config = new MemoryCacheConfig();
+    config.setConcurrencyLevel(1);
+    config.setMaximumSize(10);
+    config.setOffHeapCapacity(1024 * 1024);
+    MemoryCacheHelper.create(target, config);
+
+    for (int i = 0; i < 100; i++) {
+      MemoryCacheHelper.put(target, "s" + i, "value" + i);
+      MemoryCacheHelper.put(target, "b" + i, new byte[]{(byte) i});
+    }
+    MemoryCacheHelper.put(target, "object", new Object());
+    for (int i = 0; i < 10; i++) {
+      MemoryCacheHelper.put(target, "filler" + i, i);
+    }
+    Assert.assertTrue(MemoryCacheHelper.stats(target).getOffHeapSize() >= 190);
+    Assert.assertTrue(MemoryCacheHelper.exists(target, "s0"));
+    Assert.assertFalse(MemoryCacheHelper.exists(target, "object"));
+
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals("value" + i, MemoryCacheHelper.get(target, "s" + i));
+      Assert.assertEquals(i, ((byte[]) MemoryCacheHelper.get(target, "b" + i))[0]);
+    }
+
+    MemoryCacheHelper.remove(target, "s0");
+    Assert.assertNull(MemoryCacheHelper.get(target, "s0"));
+    MemoryCacheHelper.discardCache(target);
+  }
+
+  @Test
+  public void test8() {
+    OffHeapTier tier = new OffHeapTier(64, 0);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertTrue(tier.put("k" + i, new byte[10], true, 0, 0));
+    }
+    Assert.assertTrue(tier.usedBytes() <= 64);
+    Assert.assertTrue(tier.evictionCount() > 0);
+    Assert.assertFalse(tier.contains("k0"));
+    Assert.assertTrue(tier.contains("k9"));
+    Assert.assertNotNull(tier.take("k9"));
+    Assert.assertFalse(tier.contains("k9"));
+    Assert.assertFalse(tier.put("big", new byte[33], true, 0, 0));
+
+    // 降级保留原写入过期时间点，已过期的不再降级
+    long deadline = System.currentTimeMillis() + 60000;
+    tier.demote(RemovalNotification.<String, Object>create("kept", new byte[1],
+        RemovalCause.SIZE), deadline);
+    Assert.assertEquals(deadline, tier.take("kept").getWriteDeadline());
+    tier.demote(RemovalNotification.<String, Object>create("expired", new byte[1],
+        RemovalCause.SIZE), System.currentTimeMillis() - 1);
+    Assert.assertFalse(tier.contains("expired"));
+  }
+
+  @Test
+  public void test9() throws IOException, InterruptedException {
+    final String target = "snapshot";
+    final File file = File.createTempFile("kits-cache", ".snapshot");
+    file.delete();
+    MemoryCacheConfig config = new MemoryCacheConfig();
+    config.setTimeUnit(TimeUnit.MILLISECONDS);
+    config.setExpireAfterWrite(500);
+    config.setSnapshotFile(file);
+    MemoryCacheHelper.create(target, config);
+
+    MemoryCacheHelper.put(target, "text", "value");
+    MemoryCacheHelper.put(target, "bytes", new byte[]{1, 2, 3});
+    MemoryCacheHelper.put(target, "object", new Object());
+    Thread.sleep(250);
+    Assert.assertEquals(2, MemoryCacheHelper.snapshot(target));
+    // 同时进行的快照使用各自的临时文件
+    final AtomicInteger written = new AtomicInteger();
+    Thread[] writers = new Thread[4];
+    for (int i = 0; i < writers.length; i++) {
+      writers[i] = new Thread() {
+
+        @Override
+        public void run() {
+          written.addAndGet(MemoryCacheHelper.snapshot(target));
+        }
+
+      };
+      writers[i].start();
+    }
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    Assert.assertEquals(2 * writers.length, written.get());
+    Assert.assertEquals(0, file.getAbsoluteFile().getParentFile().listFiles(new FilenameFilter() {
+
+      @Override
+      public boolean accept(File dir, String name) {
+        return name.startsWith(file.getName()) && name.endsWith(".tmp");
+      }
+
+    }).length);
+    MemoryCacheHelper.discardCache(target);
+
+    MemoryCacheHelper.create(target, config);
+    Assert.assertEquals("value", MemoryCacheHelper.get(target, "text"));
+    Assert.assertEquals(3, ((byte[]) MemoryCacheHelper.get(target, "bytes")).length);
+    Assert.assertNull(MemoryCacheHelper.get(target, "object"));
+    // 恢复后按原过期时间失效，而不是从恢复时重新计算
+    Thread.sleep(350);
+    Assert.assertNull(MemoryCacheHelper.get(target, "text"));
+    MemoryCacheHelper.discardCache(target);
+    file.delete();
+  }
+
+  @Test
+  public void test10() {
+    final String target = "tinylfu";
+    MemoryCacheConfig config = new MemoryCacheConfig();
+    config.setEngine(CacheEngine.TINY_LFU);
+    config.setMaximumSize(100);
+    config.setRecordStats(true);
+    MemoryCacheHelper.create(target, config);
+
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < 50; i++) {
+        if (MemoryCacheHelper.get(target, "hot" + i) == null) {
+          MemoryCacheHelper.put(target, "hot" + i, i);
+        }
+      }
+    }
+    // 一次性扫描大量冷数据，热点数据不应被冲掉
+    for (int i = 0; i < 1000; i++) {
+      MemoryCacheHelper.put(target, "cold" + i, i);
+    }
+
+    int survived = 0;
+    for (int i = 0; i < 50; i++) {
+      if (MemoryCacheHelper.exists(target, "hot" + i)) {
+        survived++;
+      }
+    }
+    Assert.assertEquals(50, survived);
+    Assert.assertTrue(MemoryCacheHelper.stats(target).getEstimatedSize() <= 100);
+    Assert.assertTrue(MemoryCacheHelper.stats(target).getEvictionCount() >= 950);
+
+    MemoryCacheHelper.remove(target, "hot0");
+    Assert.assertNull(MemoryCacheHelper.get(target, "hot0"));
+    Assert.assertEquals(1, MemoryCacheHelper.get(target, "hot1"));
+    MemoryCacheHelper.discardCache(target);
+  }
+
+  @Test
+  public void test11() throws InterruptedException {
+    final String target = "longkeyed";
+    MemoryCacheConfig config = new MemoryCacheConfig();
+    config.setMaximumSize(1000);
+    config.setRecordStats(true);
+    LongKeyedCache<String> cache = MemoryCacheHelper.createLongKeyed(target, config);
+    Assert.assertSame(cache, MemoryCacheHelper.<String>longKeyed(target));
+
+    for (long id = 0; id < 5000; id++) {
+      cache.put(id, "v" + id);
+    }
+    Assert.assertEquals(1000, cache.size());
+    Assert.assertEquals("v4999", cache.get(4999));
+    Assert.assertEquals(4000, cache.stats().getEvictionCount());
+
+    cache.put(-1L, "negative");
+    cache.put(Long.MAX_VALUE, "max");
+    Assert.assertEquals("negative", cache.get(-1L));
+    Assert.assertEquals("max", cache.get(Long.MAX_VALUE));
+    cache.remove(-1L);
+    Assert.assertNull(cache.get(-1L));
+    Assert.assertEquals("default", cache.get(-1L, "default"));
+
+    // 删除后同一探测链上的条目仍然可以读取
+    int present = 0;
+    for (long id = 0; id < 5000; id++) {
+      if (cache.exists(id)) {
+        Assert.assertEquals("v" + id, cache.get(id));
+        cache.remove(id);
+        present++;
+      }
+    }
+    Assert.assertTrue(present > 0);
+    Assert.assertEquals(1, cache.size());
+
+    config = new MemoryCacheConfig();
+    config.setTimeUnit(TimeUnit.MILLISECONDS);
+    config.setExpireAfterWrite(100);
+    cache = MemoryCacheHelper.createLongKeyed(target, config);
+    for (long id = 0; id < 100; id++) {
+      cache.put(id, "v" + id);
+    }
+    Assert.assertEquals("v1", cache.get(1));
+    Thread.sleep(150);
+    Assert.assertNull(cache.get(1));
+    cache.cleanUp();
+    Assert.assertEquals(0, cache.size());
+
+    MemoryCacheHelper.discardCache(target);
+    Assert.assertNull(MemoryCacheHelper.longKeyed(target));
+  }
+
+  @Test
+  public void test12() throws Exception {
+    final String target = "async";
+    MemoryCacheHelper.create(target, new MemoryCacheConfig());
+    final AtomicInteger loads = new AtomicInteger();
+    final CompletableFuture<String> backend = new CompletableFuture<String>();
+    AsyncCacheLoader<String> loader = new AsyncCacheLoader<String>() {
+
+      @Override
+      public CompletableFuture<String> load(String key) {
+        loads.incrementAndGet();
+        return backend;
+      }
+
+    };
+
+    CompletableFuture<String> first = MemoryCacheHelper.getAsync(target, "key", loader);
+    CompletableFuture<String> second = MemoryCacheHelper.getAsync(target, "key", loader);
+    Assert.assertFalse(first.isDone());
+    // 取消一个调用方不影响其他调用方
+    first.cancel(true);
+    backend.complete("value");
+    Assert.assertEquals("value", second.get(1, TimeUnit.SECONDS));
+    Assert.assertEquals(1, loads.get());
+    Assert.assertEquals("value", MemoryCacheHelper.get(target, "key"));
+
+    // 失败的加载不会被缓存，下次重新加载
+    final AtomicInteger attempts = new AtomicInteger();
+    AsyncCacheLoader<String> flaky = new AsyncCacheLoader<String>() {
+
+      @Override
+      public CompletableFuture<String> load(String key) {
+        CompletableFuture<String> future = new CompletableFuture<String>();
+        if (attempts.incrementAndGet() == 1) {
+          future.completeExceptionally(new IllegalStateException("backend down"));
+        } else {
+          future.complete("recovered");
+        }
+        return future;
+      }
+
+    };
+    try {
+      MemoryCacheHelper.getAsync(target, "flaky", flaky).get(1, TimeUnit.SECONDS);
+      Assert.fail();
+    } catch (ExecutionException ex) {
+      Assert.assertTrue(ex.getCause() instanceof IllegalStateException);
+    }
+    Assert.assertEquals("recovered",
+        MemoryCacheHelper.getAsync(target, "flaky", flaky).get(1, TimeUnit.SECONDS));
+
+    // 超时后取消后端调用，结果不缓存
+    final CompletableFuture<String> slow = new CompletableFuture<String>();
+    CompletableFuture<String> timed = MemoryCacheHelper.getAsync(target, "slow",
+        new AsyncCacheLoader<String>() {
+
+          @Override
+          public CompletableFuture<String> load(String key) {
+            return slow;
+          }
+
+        }, 50, TimeUnit.MILLISECONDS);
+    try {
+      timed.get(1, TimeUnit.SECONDS);
+      Assert.fail();
+    } catch (ExecutionException ex) {
+      Assert.assertTrue(ex.getCause() instanceof TimeoutException);
+    }
+    Assert.assertTrue(slow.isCancelled());
+    Assert.assertNull(MemoryCacheHelper.get(target, "slow"));
+    MemoryCacheHelper.discardCache(target);
+  }
+
+  private static final class Payload {
+
+    private final String text;
+    private Payload self;
+
+    Payload(String text) {
+      this.text = text;
+    }
+
+  }
+
+}
@@ -1,11 +1,21 @@
 package io.github.rcarlosdasilva.kits.io;
 
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import org.junit.Assert;
 import org.junit.FixMethodOrder;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runners.MethodSorters;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
 public class FileTest {
@@ -36,4 +46,233 @@ public class FileTest {
     System.out.println(Arrays.toString(fs9.getExtensions()));
   }
 
+  @Test
+  public void test2() {
+    Assert.assertEquals(FileSignatures.FILE_NUM_438, FileHelper.type(new ByteArrayInputStream(
+        bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0x0D, 'I', 'H', 'D', 'R'))));
+    Assert.assertEquals(FileSignatures.FILE_NUM_535,
+        FileHelper.type(new ByteArrayInputStream(bytes(0xFF, 0xD8, 0xFF, 0xE0, 0, 0x10))));
+    // 最长匹配
+    Assert.assertEquals(FileSignatures.FILE_NUM_301, FileHelper.type(new ByteArrayInputStream(
+        bytes('P', 'K', 3, 4, 0x14, 0, 6, 0, 8, 0, 0, 0))));
+    Assert.assertEquals(FileSignatures.FILE_NUM_288,
+        FileHelper.type(new ByteArrayInputStream(bytes('P', 'K', 3, 4, 0x0A, 0, 0, 0))));
+    // 偏移量按字节计算
+    Assert.assertEquals(FileSignatures.FILE_NUM_393, FileHelper.type(new ByteArrayInputStream(
+        bytes(0, 0, 0x01, 0, 'f', 't', 'y', 'p', 'M', '4', 'A', ' ', 0, 0, 0, 0))));
+    // 小写的pattern
+    Assert.assertEquals(FileSignatures.FILE_NUM_399,
+        FileHelper.type(new ByteArrayInputStream("gimp xcf v011".getBytes())));
+
+    Assert.assertEquals(FileSignatures.NON,
+        FileHelper.type(new ByteArrayInputStream(bytes(0x01, 0x02, 0x03))));
+    Assert.assertEquals(FileSignatures.NON, FileHelper.type(new ByteArrayInputStream(new byte[0])));
+  }
+
+  @Test
+  public void test3() throws IOException {
+    byte[] content = new byte[4096];
+    System.arraycopy(bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A), 0, content, 0, 8);
+    for (int i = 8; i < content.length; i++) {
+      content[i] = (byte) i;
+    }
+
+    // 不支持mark，且每次只返回少量数据，与Socket流相同
+    TypedInputStream typed = FileHelper.detect(new TrickleInputStream(content));
+    Assert.assertEquals(FileSignatures.FILE_NUM_438, typed.getType());
+    Assert.assertArrayEquals(content, ByteStreams.toByteArray(typed));
+
+    // 内容比文件头短
+    typed = FileHelper.detect(new TrickleInputStream(bytes(0xFF, 0xD8, 0xFF)));
+    Assert.assertEquals(FileSignatures.FILE_NUM_535, typed.getType());
+    Assert.assertArrayEquals(bytes(0xFF, 0xD8, 0xFF), ByteStreams.toByteArray(typed));
+
+    // 支持mark的流在判断后回到开头
+    ByteArrayInputStream markable = new ByteArrayInputStream(content);
+    Assert.assertEquals(FileSignatures.FILE_NUM_438, FileHelper.type(markable));
+    Assert.assertEquals(0x89, markable.read());
+  }
+
+  @Test
+  public void test4() throws IOException {
+    Path dir = Files.createTempDirectory("kits-file-test");
+    byte[] png = bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A);
+    byte[] jpg = bytes(0xFF, 0xD8, 0xFF, 0xE0);
+    Map<Path, FileSignatures> expected = Maps.newHashMap();
+    try {
+      Path sub = Files.createDirectories(dir.resolve("a").resolve("b"));
+      // 超过一批的文件数，会拆分为多个任务
+      for (int i = 0; i < 150; i++) {
+        Path file = (i % 2 == 0 ? dir : sub).resolve(i + ".bin");
+        Files.write(file, i % 3 == 0 ? png : i % 3 == 1 ? jpg : new byte[0]);
+        expected.put(file, i % 3 == 0 ? FileSignatures.FILE_NUM_438
+            : i % 3 == 1 ? FileSignatures.FILE_NUM_535 : FileSignatures.NON);
+      }
+
+      for (Map.Entry<Path, FileSignatures> entry : expected.entrySet()) {
+        Assert.assertEquals(entry.getValue(), FileHelper.type(entry.getKey()));
+      }
+      Assert.assertEquals(FileSignatures.NON, FileHelper.type(sub));
+
+      Map<Path, FileSignatures> actual = Maps.newHashMap();
+      try (FileTypeScan scan = FileHelper.typeAll(dir, 4)) {
+        while (scan.hasNext()) {
+          Map.Entry<Path, FileSignatures> entry = scan.next();
+          Assert.assertNull(actual.put(entry.getKey(), entry.getValue()));
+        }
+      }
+      Assert.assertEquals(expected, actual);
+
+      // 提前关闭
+      FileTypeScan scan = FileHelper.typeAll(dir, 2);
+      Assert.assertTrue(scan.hasNext());
+      scan.close();
+      Assert.assertFalse(scan.hasNext());
+    } finally {
+      for (Path file : expected.keySet()) {
+        Files.deleteIfExists(file);
+      }
+      Files.deleteIfExists(dir.resolve("a").resolve("b"));
+      Files.deleteIfExists(dir.resolve("a"));
+      Files.deleteIfExists(dir);
+    }
+  }
+
+  @Test
+  public void test5() {
+    Assert.assertEquals(Arrays.asList(FileSignatures.FILE_NUM_438),
+        FileSignatures.ofExtension("png"));
+    Assert.assertEquals(FileSignatures.ofExtension("PNG"), FileSignatures.ofExtension(".Png"));
+    Assert.assertTrue(FileSignatures.ofExtension("zip").contains(FileSignatures.FILE_NUM_288));
+    Assert.assertTrue(FileSignatures.ofExtension("unknown").isEmpty());
+
+    Assert.assertEquals("image/png", FileSignatures.FILE_NUM_438.getMimeType());
+    Assert.assertEquals("image/jpeg", FileSignatures.FILE_NUM_535.getMimeType());
+    Assert.assertEquals(FileCategory.IMAGE, FileSignatures.FILE_NUM_535.getCategory());
+    Assert.assertEquals("application/pdf", FileSignatures.FILE_NUM_98.getMimeType());
+    Assert.assertEquals(FileCategory.DOCUMENT, FileSignatures.FILE_NUM_98.getCategory());
+    // ZIP容器
+    Assert.assertEquals("application/zip", FileSignatures.FILE_NUM_288.getMimeType());
+    Assert.assertEquals(FileCategory.ARCHIVE, FileSignatures.FILE_NUM_288.getCategory());
+    // RIFF容器的扩展名分属不同分类
+    Assert.assertEquals("application/octet-stream", FileSignatures.FILE_NUM_324.getMimeType());
+    Assert.assertEquals(FileCategory.OTHER, FileSignatures.FILE_NUM_324.getCategory());
+    Assert.assertEquals(FileCategory.OTHER, FileSignatures.NON.getCategory());
+
+    Assert.assertTrue(FileSignatures.ofCategory(FileCategory.IMAGE)
+        .contains(FileSignatures.FILE_NUM_438));
+    Assert.assertFalse(FileSignatures.ofCategory(FileCategory.IMAGE)
+        .contains(FileSignatures.FILE_NUM_98));
+
+    byte[] png = bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0x0D);
+    Assert.assertTrue(FileHelper.verify(new ByteArrayInputStream(png), "png"));
+    Assert.assertTrue(FileHelper.verify(new ByteArrayInputStream(png), ".PNG"));
+    Assert.assertFalse(FileHelper.verify(new ByteArrayInputStream(png), "jpg"));
+    Assert.assertFalse(FileHelper.verify(new ByteArrayInputStream(png), "unknown"));
+    Assert.assertFalse(FileHelper.verify(new TrickleInputStream(bytes(0x89, 'P', 'N')), "png"));
+    Assert.assertTrue(FileHelper.verify(new TrickleInputStream(
+        bytes('P', 'K', 3, 4, 0x14, 0, 6, 0)), "zip"));
+
+    ByteArrayInputStream markable = new ByteArrayInputStream(png);
+    Assert.assertTrue(FileHelper.verify(markable, "png"));
+    Assert.assertEquals(0x89, markable.read());
+  }
+
+  @Test
+  public void test6() throws IOException {
+    // 内置签名与classpath中的定义
+    SignatureRegistry registry = FileHelper.registry();
+    FileFormat png = registry.detect(new ByteArrayInputStream(
+        bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)));
+    Assert.assertEquals(FileSignatures.FILE_NUM_438.name(), png.getName());
+    Assert.assertEquals("image/png", png.getMimeType());
+    FileFormat kits = registry.detect(new ByteArrayInputStream(
+        bytes('K', 'I', 'T', 'S', 0x7F, 0x01, 0, 0, 'T', 'E')));
+    Assert.assertEquals("KITS_TEST", kits.getName());
+    Assert.assertEquals(FileCategory.ARCHIVE, kits.getCategory());
+    Assert.assertTrue(kits.is(".KITS"));
+    // 缺少第二个片段
+    Assert.assertEquals(FileFormat.UNKNOWN, registry.detect(new ByteArrayInputStream(
+        bytes('K', 'I', 'T', 'S', 0x7F, 0x01, 0, 0, 'X', 'X'))));
+
+    registry = SignatureRegistry.defaults();
+    registry.register(new FileFormat("ACME", Arrays.asList("acme"), null, null,
+        Arrays.asList("0:504B0304??00 30:6D696D65")));
+    // 确定字节数与内置的DOCX签名相同时，加载的格式优先
+    byte[] acme = new byte[64];
+    System.arraycopy(bytes('P', 'K', 3, 4, 0x14, 0, 6, 0), 0, acme, 0, 8);
+    System.arraycopy("mime".getBytes(), 0, acme, 30, 4);
+    Assert.assertEquals("ACME", registry.detect(acme, acme.length).getName());
+    acme[30] = 'x';
+    Assert.assertEquals(FileSignatures.FILE_NUM_301.name(),
+        registry.detect(acme, acme.length).getName());
+
+    // 超过38个字符的签名与较大的偏移量
+    registry = SignatureRegistry.empty();
+    Assert.assertEquals(0, registry.headerLength());
+    registry.reload(new ByteArrayInputStream(("{\"formats\": [{\"name\": \"DEEP\", "
+        + "\"extensions\": [\"deep\"], \"signatures\": "
+        + "[\"1000:000102030405060708090A0B0C0D0E0F101112131415161718191A1B\"]}]}")
+        .getBytes()));
+    Assert.assertEquals(1028, registry.headerLength());
+    byte[] deep = new byte[2048];
+    for (int i = 0; i < 28; i++) {
+      deep[1000 + i] = (byte) i;
+    }
+    Path file = Files.createTempFile("kits-file-test", ".deep");
+    try {
+      Files.write(file, deep);
+      Assert.assertEquals("DEEP", registry.detect(file).getName());
+      Assert.assertEquals("DEEP", registry.detect(new TrickleInputStream(deep)).getName());
+    } finally {
+      Files.delete(file);
+    }
+
+    // 解析失败时保持原来的格式
+    try {
+      registry.reload(new ByteArrayInputStream(("{\"formats\": [{\"name\": \"BAD\", "
+          + "\"signatures\": [\"0:????\"]}]}").getBytes()));
+      Assert.fail();
+    } catch (IllegalArgumentException ex) {
+      Assert.assertEquals("DEEP", registry.getFormats().get(0).getName());
+    }
+    registry.reload(Collections.<FileFormat>emptyList());
+    Assert.assertEquals(FileFormat.UNKNOWN, registry.detect(deep, deep.length));
+  }
+
+  private static byte[] bytes(int... values) {
+    byte[] bytes = new byte[values.length];
+    for (int i = 0; i < values.length; i++) {
+      bytes[i] = (byte) values[i];
+    }
+    return bytes;
+  }
+
+  private static class TrickleInputStream extends InputStream {
+
+    private final byte[] content;
+    private int pos = 0;
+
+    TrickleInputStream(byte[] content) {
+      this.content = content;
+    }
+
+    @Override
+    public int read() {
+      return pos < content.length ? content[pos++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (pos >= content.length) {
+        return -1;
+      }
+      int n = Math.min(Math.min(len, 7), content.length - pos);
+      System.arraycopy(content, pos, b, off, n);
+      pos += n;
+      return n;
+    }
+
+  }
+
 }
@@ -0,0 +1,146 @@
+package io.github.rcarlosdasilva.kits.io;
+
+import com.google.common.collect.Lists;
+import io.github.rcarlosdasilva.kits.string.TextHelper;
+import org.junit.FixMethodOrder;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * FileHelper.type(InputStream)的耗时与内存分配基准，手动运行
+ *
+ * @author Dean Zhao (rcarlosdasilva@qq.com)
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class FileTypeBenchmark {
+
+  private static final long DURATION_MILLIS = 2000;
+
+  private static List<FileSignatures> legacyOrder = null;
+
+  /**
+   * 逐个签名比较十六进制字符串的旧实现与字节前缀树的对比.
+   */
+  @Ignore
+  @Test
+  public void test1() throws IOException {
+    final byte[][] headers = {
+        header(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A),
+        header(0xFF, 0xD8, 0xFF, 0xE0, 0, 0x10, 'J', 'F', 'I', 'F'),
+        header('P', 'K', 3, 4, 0x14, 0, 6, 0),
+        header('%', 'P', 'D', 'F', '-', '1', '.', '4'),
+        header(0, 0, 0, 0x20, 'f', 't', 'y', 'p', 'i', 's', 'o', 'm'),
+        header('u', 'n', 'k', 'n', 'o', 'w', 'n')};
+
+    for (int round = 0; round < 3; round++) {
+      report("legacy hex scan", new Detector() {
+
+        @Override
+        public Object detect(InputStream stream) throws IOException {
+          return legacyType(stream);
+        }
+
+      }, headers);
+      report("byte trie", new Detector() {
+
+        @Override
+        public Object detect(InputStream stream) {
+          return FileHelper.type(stream);
+        }
+
+      }, headers);
+    }
+  }
+
+  private static void report(String name, Detector detector, byte[][] headers)
+      throws IOException {
+    ByteArrayInputStream[] streams = new ByteArrayInputStream[headers.length];
+    for (int i = 0; i < headers.length; i++) {
+      streams[i] = new ByteArrayInputStream(headers[i]);
+    }
+
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long thread = Thread.currentThread().getId();
+    long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+    long ops = 0;
+    long deadline = System.nanoTime() + DURATION_MILLIS * 1000000;
+    Object sink = null;
+    while (System.nanoTime() < deadline) {
+      for (int i = 0; i < 100; i++) {
+        ByteArrayInputStream stream = streams[(int) (ops++ % streams.length)];
+        stream.reset();
+        sink = detector.detect(stream);
+      }
+    }
+    long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+    System.out.println(String.format("%-16s %,10d ns/op  %,8d B/op  (%s)", name,
+        DURATION_MILLIS * 1000000 / ops, allocated / ops, sink));
+  }
+
+  private static byte[] header(int... values) {
+    byte[] header = new byte[600];
+    for (int i = 0; i < values.length; i++) {
+      header[i] = (byte) values[i];
+    }
+    return header;
+  }
+
+  /**
+   * 改为前缀树之前的实现，保留用于对比.
+   */
+  private static FileSignatures legacyType(InputStream stream) throws IOException {
+    if (legacyOrder == null) {
+      List<FileSignatures> order = Lists.newArrayList(FileSignatures.values());
+      Collections.sort(order, new Comparator<FileSignatures>() {
+
+        @Override
+        public int compare(FileSignatures left, FileSignatures right) {
+          if (left.getPosition() == right.getPosition()) {
+            return right.getPattern().length() - left.getPattern().length();
+          }
+          return left.getPosition() - right.getPosition();
+        }
+
+      });
+      legacyOrder = order;
+    }
+
+    int matchedLength = 0;
+    FileSignatures result = FileSignatures.NON;
+    int pos = -1;
+    String hex = "";
+    for (FileSignatures sig : legacyOrder) {
+      if (sig.getPosition() > pos) {
+        pos = sig.getPosition();
+        byte[] bytes = StreamHelper.readBytes(stream,
+            pos + FileSignatures.MAX_PATTERN_CHARACTER_LENGTH / 2);
+        if (bytes.length <= 0) {
+          break;
+        }
+        hex = TextHelper.toHexString(bytes).substring(pos).toUpperCase();
+      }
+      if (hex.startsWith(sig.getPattern()) && sig.getPattern().length() > matchedLength) {
+        matchedLength = sig.getPattern().length();
+        result = sig;
+      }
+    }
+    return result;
+  }
+
+  private interface Detector {
+
+    Object detect(InputStream stream) throws IOException;
+
+  }
+
+}
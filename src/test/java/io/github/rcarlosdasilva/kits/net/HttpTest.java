@@ -0,0 +1,322 @@
+package io.github.rcarlosdasilva.kits.net;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.github.rcarlosdasilva.kits.net.http.CallRejectedException;
+import io.github.rcarlosdasilva.kits.net.http.CircuitBreakerPolicy;
+import io.github.rcarlosdasilva.kits.net.http.CircuitStats;
+import io.github.rcarlosdasilva.kits.net.http.ContentType;
+import io.github.rcarlosdasilva.kits.net.http.HttpCacheStats;
+import io.github.rcarlosdasilva.kits.net.http.HttpConfig;
+import io.github.rcarlosdasilva.kits.net.http.HttpMethod;
+import io.github.rcarlosdasilva.kits.net.http.ResponseDigest;
+import io.github.rcarlosdasilva.kits.net.http.ResponseLeakDetector;
+import io.github.rcarlosdasilva.kits.net.http.RetryPolicy;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class HttpTest {
+
+  private HttpServer server;
+
+  @After
+  public void tearDown() {
+    if (server != null) {
+      server.stop(0);
+    }
+    HttpHelper.rebuild(new HttpConfig());
+  }
+
+  @Test
+  public void test1() throws Exception {
+    // 只修改超时时间时沿用原连接池
+    final Set<Integer> ports = Sets.newConcurrentHashSet();
+    String url = serve(new HttpHandler() {
+
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        ports.add(exchange.getRemoteAddress().getPort());
+        respond(exchange, 200, "ok");
+      }
+
+    });
+    HttpHelper.rebuild(new HttpConfig());
+
+    Assert.assertEquals("ok",
+        HttpHelper.requestWithBodyContent(url, HttpMethod.GET, null, ContentType.JSON)
+            .getStringValue());
+    HttpHelper.rebuild(10, 20, 30);
+    Assert.assertEquals("ok",
+        HttpHelper.requestWithBodyContent(url, HttpMethod.GET, null, ContentType.JSON)
+            .getStringValue());
+    Assert.assertEquals(1, ports.size());
+  }
+
+  @Test
+  public void test2() throws Exception {
+    // 取消异步请求的future会断开连接
+    final CountDownLatch requested = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(1);
+    final AtomicBoolean finished = new AtomicBoolean(false);
+    String url = serve(new HttpHandler() {
+
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        requested.countDown();
+        try {
+          exchange.sendResponseHeaders(200, 0);
+          OutputStream out = exchange.getResponseBody();
+          for (int i = 0; i < 100; i++) {
+            out.write('x');
+            out.flush();
+            Thread.sleep(50);
+          }
+          out.close();
+          finished.set(true);
+        } catch (IOException | InterruptedException ex) {
+          // 客户端已断开
+        } finally {
+          done.countDown();
+        }
+      }
+
+    });
+    HttpHelper.rebuild(new HttpConfig());
+
+    CompletableFuture<ResponseDigest> future = HttpHelper.requestWithBodyContentAsync(url,
+        HttpMethod.GET, null, ContentType.JSON);
+    Assert.assertTrue(requested.await(5, TimeUnit.SECONDS));
+    Assert.assertTrue(future.cancel(true));
+    Assert.assertTrue(done.await(4, TimeUnit.SECONDS));
+    Assert.assertFalse(finished.get());
+
+    // 合并等待不阻塞调用线程，到截止时间取消未完成的请求
+    CompletableFuture<ResponseDigest> pending = HttpHelper.requestWithBodyContentAsync(url,
+        HttpMethod.GET, null, ContentType.JSON);
+    CompletableFuture<List<ResponseDigest>> all = HttpHelper
+        .requestAll(Lists.newArrayList(pending), 200, TimeUnit.MILLISECONDS);
+    Assert.assertFalse(all.isDone());
+    Assert.assertNull(all.get(2, TimeUnit.SECONDS).get(0));
+    Assert.assertTrue(pending.isCancelled());
+  }
+
+  @Test
+  public void test3() throws Exception {
+    // 503时按Retry-After等待后重试
+    final AtomicInteger count = new AtomicInteger();
+    String url = serve(new HttpHandler() {
+
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        if (count.incrementAndGet() == 1) {
+          exchange.getResponseHeaders().add("Retry-After", "1");
+          respond(exchange, 503, "busy");
+        } else {
+          respond(exchange, 200, "ok");
+        }
+      }
+
+    });
+    HttpConfig config = new HttpConfig();
+    config.setRetryPolicy(new RetryPolicy());
+    HttpHelper.rebuild(config);
+
+    long start = System.currentTimeMillis();
+    ResponseDigest digest = HttpHelper.requestWithBodyContent(url, HttpMethod.GET, null,
+        ContentType.JSON);
+    Assert.assertEquals(200, digest.getCode());
+    Assert.assertEquals("ok", digest.getStringValue());
+    Assert.assertEquals(2, count.get());
+    Assert.assertTrue(System.currentTimeMillis() - start >= 900);
+  }
+
+  @Test
+  public void test4() throws Exception {
+    // 失败率达到阈值后熔断，请求不再发出
+    final AtomicInteger count = new AtomicInteger();
+    String url = serve(new HttpHandler() {
+
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        count.incrementAndGet();
+        respond(exchange, 500, "error");
+      }
+
+    });
+    CircuitBreakerPolicy policy = new CircuitBreakerPolicy();
+    policy.setWindowSize(4);
+    policy.setMinimumCalls(4);
+    policy.setOpenDuration(60000);
+    HttpConfig config = new HttpConfig();
+    config.setCircuitBreakerPolicy(policy);
+    HttpHelper.rebuild(config);
+
+    for (int i = 0; i < 4; i++) {
+      Assert.assertEquals(500,
+          HttpHelper.requestWithBodyContent(url, HttpMethod.GET, null, ContentType.JSON)
+              .getCode());
+    }
+    Assert.assertEquals(CircuitStats.State.OPEN,
+        HttpHelper.circuitStats().get("127.0.0.1").getState());
+    try {
+      HttpHelper.requestWithBodyContentAsync(url, HttpMethod.GET, null, ContentType.JSON).get();
+      Assert.fail();
+    } catch (ExecutionException ex) {
+      Assert.assertTrue(ex.getCause() instanceof CallRejectedException);
+    }
+    Assert.assertEquals(4, count.get());
+  }
+
+  @Test
+  public void test5() throws Exception {
+    // 内存缓存过期后发出条件请求，304时使用缓存的响应体
+    final AtomicInteger notModified = new AtomicInteger();
+    String url = serve(new HttpHandler() {
+
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+          notModified.incrementAndGet();
+          exchange.sendResponseHeaders(304, -1);
+          exchange.close();
+          return;
+        }
+        exchange.getResponseHeaders().add("ETag", "\"v1\"");
+        exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+        respond(exchange, 200, "cached");
+      }
+
+    });
+    HttpConfig config = new HttpConfig();
+    config.setMemoryCache("http-test");
+    HttpHelper.rebuild(config);
+
+    HttpCacheStats before = HttpHelper.cacheStats();
+    Assert.assertEquals("cached",
+        HttpHelper.requestWithBodyContent(url, HttpMethod.GET, null, ContentType.JSON)
+            .getStringValue());
+    ResponseDigest digest = HttpHelper.requestWithBodyContent(url, HttpMethod.GET, null,
+        ContentType.JSON);
+    Assert.assertEquals(200, digest.getCode());
+    Assert.assertEquals("cached", digest.getStringValue());
+    Assert.assertEquals(1, notModified.get());
+    Assert.assertEquals(before.getConditionalHitCount() + 1,
+        HttpHelper.cacheStats().getConditionalHitCount());
+  }
+
+  @Test
+  public void test6() throws Exception {
+    // 只持有响应体的流时，检测泄漏不会关闭正在读取的连接
+    final byte[] chunk = new byte[64 * 1024];
+    String url = serve(new HttpHandler() {
+
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        for (int i = 0; i < 32; i++) {
+          out.write(chunk);
+          out.flush();
+        }
+        out.close();
+      }
+
+    });
+    HttpHelper.rebuild(new HttpConfig());
+
+    long leaks = ResponseLeakDetector.check();
+    InputStream in = HttpHelper.requestStreamWithBodyContent(url, HttpMethod.GET, null,
+        ContentType.TEXT).getStreamValue();
+    byte[] buffer = new byte[8192];
+    long total = 0;
+    int read;
+    for (int i = 0; (read = in.read(buffer)) != -1; i++) {
+      total += read;
+      if (i % 32 == 0) {
+        System.gc();
+        ResponseLeakDetector.check();
+      }
+    }
+    in.close();
+    Assert.assertEquals(32L * chunk.length, total);
+    Assert.assertEquals(leaks, ResponseLeakDetector.check());
+  }
+
+  @Test
+  public void test7() throws Exception {
+    // 第一次请求超过对冲等待时间未响应时，使用对冲请求的结果并取消第一次请求
+    final AtomicInteger count = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch(1);
+    String url = serve(new HttpHandler() {
+
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        if (count.incrementAndGet() == 1) {
+          try {
+            release.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+          respond(exchange, 200, "slow");
+        } else {
+          respond(exchange, 200, "fast");
+        }
+      }
+
+    });
+    RetryPolicy policy = new RetryPolicy();
+    policy.setHedging(true);
+    policy.setHedgeDelay(100);
+    HttpConfig config = new HttpConfig();
+    config.setRetryPolicy(policy);
+    HttpHelper.rebuild(config);
+
+    try {
+      ResponseDigest digest = HttpHelper.requestWithBodyContentAsync(url, HttpMethod.GET, null,
+          ContentType.JSON).get(3, TimeUnit.SECONDS);
+      Assert.assertEquals("fast", digest.getStringValue());
+      Assert.assertEquals(2, count.get());
+    } finally {
+      release.countDown();
+    }
+  }
+
+  private String serve(HttpHandler handler) throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/", handler);
+    server.start();
+    return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+  }
+
+  private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+    byte[] bytes = body.getBytes(Charsets.UTF_8);
+    exchange.sendResponseHeaders(code, bytes.length);
+    OutputStream out = exchange.getResponseBody();
+    out.write(bytes);
+    out.close();
+  }
+
+}